@@ -0,0 +1,57 @@
+package splat.bench;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import splat.SplatException;
+import splat.lexer.Lexer;
+import splat.parser.Parser;
+import splat.parser.elements.ProgramAST;
+import splat.semanticanalyzer.SemanticAnalysisException;
+import splat.semanticanalyzer.SemanticAnalyzer;
+
+/**
+ * SemanticAnalyzer.analyze() over a whole corpus, on programs parsed up
+ * front.  Programs that do not lex, parse or pass analysis are left out.
+ * The function bodies are checked on the common pool, so the score scales
+ * with its size (-Djava.util.concurrent.ForkJoinPool.common.parallelism).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AnalyzerBenchmark {
+
+	@Param({Corpus.TESTS, Corpus.DEEP_NESTING, Corpus.MANY_FUNCTIONS, Corpus.LONG_STRINGS,
+			Corpus.GENERATED})
+	public String corpus;
+
+	private List<ProgramAST> programs;
+
+	@Setup
+	public void setup() throws IOException {
+		programs = new ArrayList<ProgramAST>();
+		for (String source : Corpus.sources(corpus)) {
+			try {
+				ProgramAST progAST = new Parser(new Lexer(source)).parse();
+				new SemanticAnalyzer(progAST).analyze();
+				programs.add(progAST);
+			} catch (SplatException ex) {
+				// A test of errors
+			}
+		}
+	}
+
+	@Benchmark
+	public void analyze() throws SemanticAnalysisException {
+		for (ProgramAST progAST : programs) {
+			new SemanticAnalyzer(progAST).analyze();
+		}
+	}
+}
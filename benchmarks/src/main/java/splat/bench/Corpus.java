@@ -0,0 +1,99 @@
+package splat.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The sets of programs the benchmarks run over, by name: "tests" is every
+ * program in the tests directory, "generated" is a random program of a
+ * million tokens, and the others are synthetic programs of one shape.
+ */
+public final class Corpus {
+
+	public static final String TESTS = "tests";
+	public static final String DEEP_NESTING = "deep-nesting";
+	public static final String MANY_FUNCTIONS = "many-functions";
+	public static final String LONG_STRINGS = "long-strings";
+	public static final String GENERATED = "generated";
+
+	// Seed of the generated program, fixed so every run measures the same one
+	private static final long SEED = 42;
+
+	private Corpus() {
+	}
+
+	/**
+	 * @return the text of every program in the corpus
+	 */
+	public static List<String> sources(String corpus) throws IOException {
+		List<String> sources = new ArrayList<String>();
+		if (corpus.equals(TESTS)) {
+			for (File file : testFiles("")) {
+				sources.add(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+			}
+		} else {
+			sources.add(synthetic(corpus));
+		}
+		return sources;
+	}
+
+	/**
+	 * @return files holding the runnable programs of the corpus.  The
+	 * 			synthetic programs are written out to temporary files
+	 */
+	public static List<File> runnableFiles(String corpus) throws IOException {
+		if (corpus.equals(TESTS)) {
+			return testFiles("_goodexecution");
+		}
+		File file = File.createTempFile("splat-" + corpus, ".splat");
+		file.deleteOnExit();
+		Files.write(file.toPath(), synthetic(corpus).getBytes(StandardCharsets.UTF_8));
+		return Arrays.asList(file);
+	}
+
+	private static String synthetic(String corpus) {
+		switch (corpus) {
+			case DEEP_NESTING:
+				return SyntheticPrograms.deepNesting(500);
+			case MANY_FUNCTIONS:
+				return SyntheticPrograms.manyFunctions(10000);
+			case LONG_STRINGS:
+				return SyntheticPrograms.longStrings(100, 10000);
+			case GENERATED:
+				ProgramGenerator generator = new ProgramGenerator(SEED);
+				generator.minTokens = 1000000;
+				return generator.generate();
+			default:
+				throw new IllegalArgumentException("Unknown corpus: " + corpus);
+		}
+	}
+
+	/*
+	 * The tests directory is found through the splat.tests property, or
+	 * relative to the working directory.
+	 */
+	private static List<File> testFiles(String suffix) throws IOException {
+		File dir = new File(System.getProperty("splat.tests", "tests"));
+		if (!dir.isDirectory()) {
+			dir = new File("../tests");
+		}
+		File[] files = dir.listFiles();
+		if (files == null) {
+			throw new IOException("No tests directory, set -Dsplat.tests=<dir>");
+		}
+		Arrays.sort(files);
+
+		List<File> result = new ArrayList<File>();
+		for (File file : files) {
+			if (file.getName().endsWith(suffix + ".splat")) {
+				result.add(file);
+			}
+		}
+		return result;
+	}
+}
@@ -0,0 +1,63 @@
+package splat.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import splat.ExecutionMode;
+import splat.Splat;
+import splat.SplatException;
+
+/**
+ * Splat.processFileAndExecute() end to end, from reading the file to the
+ * end of the run, for each runnable program of a corpus.  What the
+ * programs print is thrown away.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExecutionBenchmark {
+
+	@Param({Corpus.TESTS, Corpus.DEEP_NESTING, Corpus.MANY_FUNCTIONS, Corpus.LONG_STRINGS,
+			Corpus.GENERATED})
+	public String corpus;
+
+	@Param({"INTERPRETER", "VM", "JVM", "NODES"})
+	public ExecutionMode mode;
+
+	private List<File> files;
+	private PrintStream stdout;
+
+	@Setup
+	public void setup() throws IOException {
+		files = Corpus.runnableFiles(corpus);
+		stdout = System.out;
+		System.setOut(new PrintStream(new OutputStream() {
+			public void write(int b) {
+			}
+
+			public void write(byte[] b, int off, int len) {
+			}
+		}));
+	}
+
+	@TearDown
+	public void tearDown() {
+		System.setOut(stdout);
+	}
+
+	@Benchmark
+	public void processFileAndExecute() throws SplatException, IOException {
+		for (File file : files) {
+			new Splat(file, mode).processFileAndExecute();
+		}
+	}
+}
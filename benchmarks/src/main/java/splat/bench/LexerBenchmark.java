@@ -0,0 +1,51 @@
+package splat.bench;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import splat.lexer.LexException;
+import splat.lexer.Lexer;
+
+/**
+ * Lexer.tokenize() over a whole corpus, from text already in memory.
+ * Programs the lexer rejects are left out.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LexerBenchmark {
+
+	@Param({Corpus.TESTS, Corpus.DEEP_NESTING, Corpus.MANY_FUNCTIONS, Corpus.LONG_STRINGS,
+			Corpus.GENERATED})
+	public String corpus;
+
+	private List<String> sources;
+
+	@Setup
+	public void setup() throws IOException {
+		sources = new ArrayList<String>();
+		for (String source : Corpus.sources(corpus)) {
+			try {
+				new Lexer(source).tokenize();
+				sources.add(source);
+			} catch (LexException ex) {
+				// A test of lexer errors
+			}
+		}
+	}
+
+	@Benchmark
+	public void tokenize(Blackhole bh) throws LexException {
+		for (String source : sources) {
+			bh.consume(new Lexer(source).tokenize());
+		}
+	}
+}
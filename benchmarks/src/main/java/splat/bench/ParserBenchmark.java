@@ -0,0 +1,70 @@
+package splat.bench;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import splat.SplatException;
+import splat.lexer.LexException;
+import splat.lexer.Lexer;
+import splat.lexer.LineMap;
+import splat.lexer.Token;
+import splat.parser.ParseException;
+import splat.parser.Parser;
+
+/**
+ * Parser.parse() over a whole corpus, from tokens lexed up front, so only
+ * the parser is measured.  Programs that do not parse are left out.
+ * parseFlat() is measured on the same tokens, for the cost of building a
+ * FlatAST instead of elements.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParserBenchmark {
+
+	@Param({Corpus.TESTS, Corpus.DEEP_NESTING, Corpus.MANY_FUNCTIONS, Corpus.LONG_STRINGS,
+			Corpus.GENERATED})
+	public String corpus;
+
+	private List<List<Token>> programs;
+	private List<LineMap> lineMaps;
+
+	@Setup
+	public void setup() throws IOException {
+		programs = new ArrayList<List<Token>>();
+		lineMaps = new ArrayList<LineMap>();
+		for (String source : Corpus.sources(corpus)) {
+			try {
+				Lexer lexer = new Lexer(source);
+				List<Token> tokens = lexer.tokenize();
+				new Parser(tokens, lexer.getLineMap()).parse();
+				programs.add(tokens);
+				lineMaps.add(lexer.getLineMap());
+			} catch (SplatException ex) {
+				// A test of lexer or parser errors
+			}
+		}
+	}
+
+	@Benchmark
+	public void parse(Blackhole bh) throws ParseException, LexException {
+		for (int i = 0; i < programs.size(); i++) {
+			bh.consume(new Parser(programs.get(i), lineMaps.get(i)).parse());
+		}
+	}
+
+	@Benchmark
+	public void parseFlat(Blackhole bh) throws ParseException, LexException {
+		for (int i = 0; i < programs.size(); i++) {
+			bh.consume(new Parser(programs.get(i), lineMaps.get(i)).parseFlat());
+		}
+	}
+}
@@ -0,0 +1,520 @@
+package splat.bench;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates random SPLAT programs of any size.  The same seed and sizes
+ * always give the same program.
+ *
+ * Programs are not only valid for the parser but also well typed, and
+ * they terminate when run: loops count up to a small bound, only the
+ * first quarter of the functions (the leaves) can be called from other
+ * functions, and leaves call nothing.  Strings only grow by a literal at
+ * a time, so they stay small too.
+ */
+public class ProgramGenerator {
+
+	private static final String[] TYPES = { "Integer", "Boolean", "String" };
+
+	// Sizes, which can be changed before calling generate()
+	public int functions = 100;
+	public int globalsPerType = 3;
+	public int maxParams = 3;
+	public int maxLocals = 4;
+	public int statementsPerBlock = 6;
+	public int maxNesting = 3;
+	public int maxExprDepth = 3;
+	public int maxChain = 16;
+	public int loopIterations = 3;
+	public int mainCalls = 100;
+
+	// If not 0, functions are added past the number above until the
+	// program has at least this many tokens
+	public int minTokens = 0;
+
+	private Random random;
+	private StringBuilder sb;
+	private int tokens;
+	private boolean afterName;
+
+	private List<Function> funcs;
+	private int leafCount;
+
+	// Variables of each type in scope in the function being generated
+	private List<List<String>> vars;
+	private boolean inLeaf;
+
+	private static class Function {
+		String name;
+		List<String> paramTypes = new ArrayList<String>();
+		String retType;
+	}
+
+	public ProgramGenerator(long seed) {
+		this.random = new Random(seed);
+	}
+
+	/**
+	 * @return the number of tokens in the program last generated
+	 */
+	public int getTokenCount() {
+		return tokens;
+	}
+
+	public String generate() {
+		sb = new StringBuilder();
+		tokens = 0;
+		funcs = new ArrayList<Function>();
+		leafCount = Math.max(1, functions / 4);
+
+		token("program");
+		newline(0);
+
+		// Globals g<type><n> are visible everywhere
+		List<List<String>> globals = new ArrayList<List<String>>();
+		for (int t = 0; t < TYPES.length; t++) {
+			globals.add(new ArrayList<String>());
+			for (int i = 0; i < Math.max(1, globalsPerType); i++) {
+				String name = "g" + TYPES[t].charAt(0) + i;
+				globals.get(t).add(name);
+				declare(1, name, TYPES[t]);
+			}
+		}
+
+		// Signatures are chosen first so any function can call any leaf
+		for (int i = 0; i < leafCount; i++) {
+			funcs.add(signature(i));
+		}
+		int i = 0;
+		while (i < functions || (minTokens > 0 && tokens < minTokens)) {
+			if (i >= funcs.size()) {
+				funcs.add(signature(i));
+			}
+			function(funcs.get(i), i < leafCount, globals);
+			i++;
+		}
+
+		// The program body calls a sample of the functions
+		newline(0);
+		token("begin");
+		vars = globals;
+		inLeaf = false;
+		for (int c = 0; c < mainCalls; c++) {
+			Function func = funcs.get(random.nextInt(funcs.size()));
+			newline(1);
+			if (func.retType.equals("void")) {
+				call(func, 0);
+			} else {
+				List<String> targets = vars.get(typeIndex(func.retType));
+				token(targets.get(random.nextInt(targets.size())));
+				token(":=");
+				call(func, 0);
+			}
+			token(";");
+		}
+		for (int t = 0; t < TYPES.length; t++) {
+			for (String global : globals.get(t)) {
+				newline(1);
+				token("print");
+				token(global);
+				token(";");
+			}
+		}
+		newline(1);
+		token("print_line");
+		token(";");
+		newline(0);
+		token("end");
+		token(";");
+		sb.append('\n');
+
+		return sb.toString();
+	}
+
+	private Function signature(int index) {
+		Function func = new Function();
+		func.name = "f" + index;
+		int params = random.nextInt(maxParams + 1);
+		for (int i = 0; i < params; i++) {
+			func.paramTypes.add(randomType());
+		}
+		func.retType = random.nextInt(4) == 0 ? "void" : randomType();
+		return func;
+	}
+
+	private void function(Function func, boolean leaf, List<List<String>> globals) {
+		vars = new ArrayList<List<String>>();
+		for (List<String> ofType : globals) {
+			vars.add(new ArrayList<String>(ofType));
+		}
+		inLeaf = leaf;
+
+		newline(0);
+		newline(1);
+		token(func.name);
+		afterName = true;
+		token("(");
+		for (int i = 0; i < func.paramTypes.size(); i++) {
+			if (i > 0) {
+				token(",");
+			}
+			String name = "p" + i;
+			vars.get(typeIndex(func.paramTypes.get(i))).add(name);
+			token(name);
+			token(":");
+			token(func.paramTypes.get(i));
+		}
+		token(")");
+		token(":");
+		token(func.retType);
+		token("is");
+
+		int locals = random.nextInt(maxLocals + 1);
+		for (int i = 0; i < locals; i++) {
+			String type = randomType();
+			String name = "v" + i;
+			vars.get(typeIndex(type)).add(name);
+			declare(2, name, type);
+		}
+		// Loop counters, one per nesting level, never assigned otherwise
+		for (int i = 0; i < maxNesting; i++) {
+			declare(2, "i" + i, "Integer");
+		}
+
+		newline(1);
+		token("begin");
+		block(2, 0);
+		if (!func.retType.equals("void")) {
+			newline(2);
+			token("return");
+			expr(typeIndex(func.retType), maxExprDepth);
+			token(";");
+		}
+		newline(1);
+		token("end");
+		token(";");
+	}
+
+	private void block(int indent, int nesting) {
+		int count = 1 + random.nextInt(statementsPerBlock);
+		for (int i = 0; i < count; i++) {
+			statement(indent, nesting);
+		}
+	}
+
+	private void statement(int indent, int nesting) {
+		int kind = random.nextInt(nesting < maxNesting ? 7 : 5);
+		newline(indent);
+
+		switch (kind) {
+			case 0:
+			case 1: {
+				int type = random.nextInt(TYPES.length);
+				List<String> targets = vars.get(type);
+				token(targets.get(random.nextInt(targets.size())));
+				token(":=");
+				expr(type, maxExprDepth);
+				token(";");
+				break;
+			}
+			case 2:
+				token("print");
+				expr(random.nextInt(TYPES.length), maxExprDepth);
+				token(";");
+				break;
+			case 3:
+				if (!inLeaf) {
+					call(funcs.get(random.nextInt(leafCount)), maxExprDepth - 1);
+				} else {
+					token("print_line");
+				}
+				token(";");
+				break;
+			case 4:
+				token("print_line");
+				token(";");
+				break;
+			case 5:
+				token("if");
+				expr(1, maxExprDepth);
+				token("then");
+				block(indent + 1, nesting + 1);
+				if (random.nextBoolean()) {
+					newline(indent);
+					token("else");
+					block(indent + 1, nesting + 1);
+				}
+				newline(indent);
+				token("end");
+				token("if");
+				token(";");
+				break;
+			default: {
+				// counter := 0; while (counter < n) do ... counter := (counter + 1); end while;
+				String counter = "i" + nesting;
+				token(counter);
+				token(":=");
+				token("0");
+				token(";");
+				newline(indent);
+				token("while");
+				token("(");
+				token(counter);
+				token("<");
+				token(Integer.toString(1 + random.nextInt(loopIterations)));
+				token(")");
+				token("do");
+				block(indent + 1, nesting + 1);
+				newline(indent + 1);
+				token(counter);
+				token(":=");
+				token("(");
+				token(counter);
+				token("+");
+				token("1");
+				token(")");
+				token(";");
+				newline(indent);
+				token("end");
+				token("while");
+				token(";");
+			}
+		}
+	}
+
+	private void expr(int type, int depth) {
+		if (type == 0 && depth == maxExprDepth && maxChain > 1 && random.nextInt(8) == 0) {
+			chain();
+			return;
+		}
+		if (depth <= 0 || random.nextInt(3) == 0) {
+			leaf(type);
+			return;
+		}
+
+		switch (type) {
+			case 0: // Integer
+				switch (random.nextInt(6)) {
+					case 0:
+						token("(");
+						token("-");
+						expr(0, depth - 1);
+						token(")");
+						break;
+					case 1:
+						if (!inLeaf && callTo(0, depth)) {
+							break;
+						}
+						// fall through
+					case 2:
+						// Dividing by a literal that isn't 0 can't fail
+						token("(");
+						expr(0, depth - 1);
+						token(random.nextBoolean() ? "/" : "%");
+						token(Integer.toString(1 + random.nextInt(9)));
+						token(")");
+						break;
+					default:
+						binary(0, depth, random.nextBoolean() ? "+" : random.nextBoolean() ? "-" : "*", 0);
+				}
+				break;
+
+			case 1: // Boolean
+				switch (random.nextInt(6)) {
+					case 0:
+						token("(");
+						token("not");
+						expr(1, depth - 1);
+						token(")");
+						break;
+					case 1:
+						binary(1, depth, random.nextBoolean() ? "and" : "or", 1);
+						break;
+					case 2:
+						binary(random.nextInt(TYPES.length), depth, "==", 1);
+						break;
+					case 3:
+						if (!inLeaf && callTo(1, depth)) {
+							break;
+						}
+						// fall through
+					default:
+						String[] ops = { "<", "<=", ">", ">=" };
+						binary(0, depth, ops[random.nextInt(ops.length)], 1);
+				}
+				break;
+
+			default: // String
+				if (!inLeaf && random.nextInt(4) == 0 && callTo(2, depth)) {
+					break;
+				}
+				// Only the left side may hold a variable, so a string grows
+				// by a literal at a time however often this runs
+				token("(");
+				expr(2, depth - 1);
+				token("+");
+				stringLiteral();
+				token(")");
+		}
+	}
+
+	/*
+	 * (left op right), with both operands of the given type.
+	 */
+	private void binary(int operandType, int depth, String op, int resultType) {
+		token("(");
+		if (operandType == 2) {
+			// Keep strings from doubling, as above
+			stringLiteral();
+		} else {
+			expr(operandType, depth - 1);
+		}
+		token(op);
+		expr(operandType, depth - 1);
+		token(")");
+	}
+
+	/*
+	 * A left-deep chain of additions: ((((a + b) + c) + d) ...).
+	 */
+	private void chain() {
+		int length = 2 + random.nextInt(maxChain - 1);
+		for (int i = 1; i < length; i++) {
+			token("(");
+		}
+		leaf(0);
+		for (int i = 1; i < length; i++) {
+			token(random.nextBoolean() ? "+" : "-");
+			leaf(0);
+			token(")");
+		}
+	}
+
+	private void leaf(int type) {
+		List<String> ofType = vars.get(type);
+		if (random.nextBoolean()) {
+			token(ofType.get(random.nextInt(ofType.size())));
+			return;
+		}
+		switch (type) {
+			case 0:
+				token(Integer.toString(random.nextInt(1000)));
+				break;
+			case 1:
+				token(random.nextBoolean() ? "true" : "false");
+				break;
+			default:
+				stringLiteral();
+		}
+	}
+
+	private void stringLiteral() {
+		int length = random.nextInt(12);
+		StringBuilder lit = new StringBuilder("\"");
+		for (int i = 0; i < length; i++) {
+			lit.append((char) ('a' + random.nextInt(26)));
+		}
+		token(lit.append('"').toString());
+	}
+
+	/*
+	 * Calls a leaf function returning the given type, if there is one.
+	 */
+	private boolean callTo(int type, int depth) {
+		int start = random.nextInt(leafCount);
+		for (int i = 0; i < leafCount; i++) {
+			Function func = funcs.get((start + i) % leafCount);
+			if (func.retType.equals(TYPES[type])) {
+				call(func, depth - 1);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void call(Function func, int depth) {
+		token(func.name);
+		afterName = true;
+		token("(");
+		for (int i = 0; i < func.paramTypes.size(); i++) {
+			if (i > 0) {
+				token(",");
+			}
+			expr(typeIndex(func.paramTypes.get(i)), Math.max(0, depth));
+		}
+		token(")");
+	}
+
+	private void declare(int indent, String name, String type) {
+		newline(indent);
+		token(name);
+		token(":");
+		token(type);
+		token(";");
+	}
+
+	private String randomType() {
+		return TYPES[random.nextInt(TYPES.length)];
+	}
+
+	private static int typeIndex(String type) {
+		for (int i = 0; i < TYPES.length; i++) {
+			if (TYPES[i].equals(type)) {
+				return i;
+			}
+		}
+		throw new IllegalArgumentException(type);
+	}
+
+	private void token(String text) {
+		char last = sb.length() == 0 ? '\n' : sb.charAt(sb.length() - 1);
+		boolean tight = last == '\n' || last == '\t' || last == '('
+				|| text.equals(")") || text.equals(";") || text.equals(",")
+				|| (text.equals("(") && afterName);
+		if (!tight) {
+			sb.append(' ');
+		}
+		sb.append(text);
+		tokens++;
+		afterName = false;
+	}
+
+	private void newline(int indent) {
+		sb.append('\n');
+		for (int i = 0; i < indent; i++) {
+			sb.append('\t');
+		}
+	}
+
+	/**
+	 * Writes a program to a file, or to standard output.
+	 *
+	 * usage: ProgramGenerator seed minTokens [file]
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.err.println("usage: ProgramGenerator seed minTokens [file]");
+			System.exit(1);
+		}
+		ProgramGenerator generator = new ProgramGenerator(Long.parseLong(args[0]));
+		generator.minTokens = Integer.parseInt(args[1]);
+		String program = generator.generate();
+
+		if (args.length > 2) {
+			Files.write(Paths.get(args[2]), program.getBytes(StandardCharsets.UTF_8));
+		} else {
+			Writer out = new OutputStreamWriter(System.out, StandardCharsets.UTF_8);
+			out.write(program);
+			out.flush();
+		}
+		System.err.println(generator.getTokenCount() + " tokens");
+	}
+}
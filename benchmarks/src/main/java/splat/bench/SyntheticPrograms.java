@@ -0,0 +1,100 @@
+package splat.bench;
+
+/**
+ * Builds large SPLAT programs that stress one part of the front end each.
+ * Every program is valid and terminates, so it can be run as well.
+ */
+public final class SyntheticPrograms {
+
+	private SyntheticPrograms() {
+	}
+
+	/**
+	 * Statements nested depth deep (alternating ifs and single-pass
+	 * whiles), with an expression nested depth deep at the bottom.
+	 */
+	public static String deepNesting(int depth) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("program\n\tn : Integer;\n\tdone : Boolean;\nbegin\n");
+		for (int i = 0; i < depth; i++) {
+			indent(sb, i + 1);
+			if (i % 2 == 0) {
+				sb.append("if ((n + ").append(i).append(") > (- 1)) then\n");
+			} else {
+				sb.append("while (not done) do\n");
+			}
+		}
+
+		indent(sb, depth + 1);
+		sb.append("n := ");
+		for (int i = 0; i < depth; i++) {
+			sb.append('(');
+		}
+		sb.append("n");
+		for (int i = 0; i < depth; i++) {
+			sb.append(i % 3 == 0 ? " + " : i % 3 == 1 ? " - " : " * ").append(i % 7 + 1).append(')');
+		}
+		sb.append(";\n");
+		indent(sb, depth + 1);
+		sb.append("done := true;\n");
+
+		for (int i = depth - 1; i >= 0; i--) {
+			indent(sb, i + 1);
+			sb.append(i % 2 == 0 ? "end if;\n" : "end while;\n");
+		}
+		sb.append("\tprint n;\n\tprint_line;\nend;\n");
+		return sb.toString();
+	}
+
+	/**
+	 * count small functions.  They call each other in chains of 100, so
+	 * the program body only makes count / 100 calls.
+	 */
+	public static String manyFunctions(int count) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("program\n\ttotal : Integer;\n\n");
+		for (int i = 0; i < count; i++) {
+			sb.append("\tf").append(i).append("(x : Integer) : Integer is\n");
+			sb.append("\t\ty : Integer;\n\tbegin\n");
+			sb.append("\t\ty := ((x * 3) % 1000);\n");
+			if (i % 100 != 99 && i + 1 < count) {
+				sb.append("\t\treturn f").append(i + 1).append("((y + ").append(i).append("));\n");
+			} else {
+				sb.append("\t\treturn (y + ").append(i).append(");\n");
+			}
+			sb.append("\tend;\n\n");
+		}
+		sb.append("begin\n");
+		for (int i = 0; i < count; i += 100) {
+			sb.append("\ttotal := f").append(i).append("(total);\n");
+		}
+		sb.append("\tprint total;\n\tprint_line;\nend;\n");
+		return sb.toString();
+	}
+
+	/**
+	 * count string literals of the given length, concatenated and printed.
+	 */
+	public static String longStrings(int count, int length) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("program\n\ts : String;\nbegin\n");
+		for (int i = 0; i < count; i++) {
+			sb.append("\ts := (s + \"");
+			for (int j = 0; j < length; j++) {
+				sb.append((char) ('a' + (i + j) % 26));
+				if (j % 80 == 79) {
+					sb.append(' ');
+				}
+			}
+			sb.append("\");\n");
+		}
+		sb.append("\tprint s;\n\tprint_line;\nend;\n");
+		return sb.toString();
+	}
+
+	private static void indent(StringBuilder sb, int depth) {
+		for (int i = 0; i < depth; i++) {
+			sb.append('\t');
+		}
+	}
+}
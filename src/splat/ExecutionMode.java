@@ -0,0 +1,19 @@
+package splat;
+
+/**
+ * How Splat runs a program once it has been parsed.
+ */
+public enum ExecutionMode {
+
+	/** Walk the AST (splat.executor.Executor) */
+	INTERPRETER,
+
+	/** Compile to a JVM class and run that (splat.compiler.JvmExecutor) */
+	JVM,
+
+	/** Compile to register bytecode and run that (splat.vm.VmExecutor) */
+	VM,
+
+	/** Run a tree of self-specializing nodes (splat.nodes.NodeExecutor) */
+	NODES
+}
@@ -3,38 +3,115 @@ package splat;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.util.List;
+import java.io.PrintStream;
 
+import splat.compiler.JvmExecutor;
+import splat.executor.ExecutionException;
+import splat.executor.Executor;
 import splat.lexer.Lexer;
-import splat.lexer.Token;
+import splat.nodes.NodeExecutor;
+import splat.optimizer.ConstantFolder;
+import splat.parser.AstCache;
+import splat.parser.Parser;
+import splat.parser.elements.ProgramAST;
+import splat.semanticanalyzer.SemanticAnalyzer;
+import splat.vm.VmExecutor;
 
 public class Splat {
 
 	private File progFile;
+	private ExecutionMode mode;
+	private AstCache cache;
 	
 	public Splat(File progFile) {
+		this(progFile, ExecutionMode.INTERPRETER);
+	}
+
+	public Splat(File progFile, ExecutionMode mode) {
+		this(progFile, mode, null);
+	}
+
+	/**
+	 * @param cache where to look for the program already parsed, and to
+	 * 			keep it once it is, or null to always parse it
+	 */
+	public Splat(File progFile, ExecutionMode mode, AstCache cache) {
 		this.progFile = progFile;
+		this.mode = mode;
+		this.cache = cache;
 	}
 	
 	public void processFileAndExecute() throws SplatException, FileNotFoundException, IOException {
+		ProgramAST progAST = compile();
+		execute(progAST);
 		
-		// Step 1.  Tokenize
-		Lexer lexer = new Lexer(progFile);
-		List<Token> tokens = lexer.tokenize();
+		// THE END!
+	}
+
+	/**
+	 * Steps 1 to 4, everything before the program runs.  Each call works
+	 * on its own objects, so different files can be compiled on different
+	 * threads at once.
+	 */
+	public ProgramAST compile() throws SplatException, FileNotFoundException, IOException {
 		
-		// Step 2.  Parse
-		// Parser parser = new Parser(tokens);
-		// ProgramAST progAST = parser.parse();
+		ProgramAST progAST;
+		if (cache != null) {
+			
+			// Steps 1 and 2, unless the program was parsed before
+			progAST = cache.parse(progFile);
+			
+		} else {
+			
+			// Step 1.  Tokenize (on demand, as the parser asks for tokens)
+			Lexer lexer = new Lexer(progFile);
+			
+			// Step 2.  Parse
+			Parser parser = new Parser(lexer);
+			progAST = parser.parse();
+		}
 		
 		// Step 3.  Semantic Analysis
-		// SemanticAnalyzer analyzer = new SemanticAnalyzer(progAST);
-		// analyzer.analyze();
+		SemanticAnalyzer analyzer = new SemanticAnalyzer(progAST);
+		analyzer.analyze();
 		
-		// Step 4.  Executor
-		// Executor executor = new Executor(progAST);
-		// executor.runProgram();
-		
-		// THE END!
+		// Step 4.  Optimize
+		ConstantFolder folder = new ConstantFolder(progAST);
+		folder.fold();
+
+		return progAST;
+	}
+
+	/**
+	 * Step 5, runs a program returned by compile().
+	 */
+	public void execute(ProgramAST progAST) throws ExecutionException {
+		execute(progAST, System.out);
+	}
+
+	/**
+	 * Runs a program returned by compile(), printing to out.
+	 */
+	public void execute(ProgramAST progAST, PrintStream out) throws ExecutionException {
+		try {
+			if (mode == ExecutionMode.JVM) {
+				JvmExecutor executor = new JvmExecutor(progAST, out);
+				executor.runProgram();
+			} else if (mode == ExecutionMode.VM) {
+				VmExecutor executor = new VmExecutor(progAST, out);
+				executor.runProgram();
+			} else if (mode == ExecutionMode.NODES) {
+				NodeExecutor executor = new NodeExecutor(progAST, out);
+				executor.runProgram();
+			} else {
+				Executor executor = new Executor(progAST, out);
+				executor.runProgram();
+			}
+		} catch (ExecutionException ex) {
+			// The executors only know where in the text the error is
+			ex.locate(progAST.getLineMap());
+			throw ex;
+		}
 	}
 
 }
@@ -0,0 +1,279 @@
+package splat;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.FileSystemException;
+import java.nio.file.NoSuchFileException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import splat.parser.AstCache;
+import splat.parser.elements.ProgramAST;
+
+/**
+ * Compiles many programs in one JVM.  Every file is lexed, parsed and
+ * checked on a fork-join pool, and the errors of all of them are reported
+ * together at the end, in the order the files were given.  The programs
+ * that compiled can then be run one after the other.
+ *
+ * The lexers only share tables that never change (the keywords and the
+ * character classes), so files don't wait on each other.
+ *
+ * With -cache, programs that haven't changed since the last batch are
+ * loaded from the directory instead of lexed and parsed.
+ *
+ * usage: SplatBatch [-threads n] [-run mode] [-cache directory] file-or-directory...
+ */
+public class SplatBatch {
+
+	/**
+	 * One file of the batch: its program if it compiled, or its error.
+	 */
+	public static class Unit {
+
+		public final File progFile;
+		public final ProgramAST progAST;
+		public final Exception error;
+
+		private Unit(File progFile, ProgramAST progAST, Exception error) {
+			this.progFile = progFile;
+			this.progAST = progAST;
+			this.error = error;
+		}
+
+		/**
+		 * @return the error as file:line:column: message
+		 */
+		public String getDiagnostic() {
+			return diagnostic(progFile, error);
+		}
+	}
+
+	/**
+	 * @return the error as file:line:column: message, or file: message
+	 * 			if it has no position
+	 */
+	static String diagnostic(File progFile, Exception error) {
+		if (error instanceof SplatException) {
+			SplatException ex = (SplatException) error;
+			return progFile.getPath() + ":" + ex.getLine() + ":" + ex.getColumn()
+					+ ": " + ex.getMessage();
+		}
+		if (error instanceof IOException) {
+			return progFile.getPath() + ": cannot read file: " + reason((IOException) error);
+		}
+		return progFile.getPath() + ": " + error.getMessage();
+	}
+
+	/*
+	 * The file exceptions of java.nio have the file name as their message,
+	 * which the diagnostic starts with already.
+	 */
+	private static String reason(IOException error) {
+		if (error instanceof NoSuchFileException) {
+			return "no such file";
+		} else if (error instanceof AccessDeniedException) {
+			return "permission denied";
+		} else if (error instanceof FileSystemException) {
+			String reason = ((FileSystemException) error).getReason();
+			return reason != null ? reason : "file system error";
+		}
+		return error.getMessage();
+	}
+
+	private List<File> progFiles;
+	private int parallelism;
+	private AstCache cache;
+
+	public SplatBatch(List<File> progFiles) {
+		this(progFiles, Runtime.getRuntime().availableProcessors());
+	}
+
+	public SplatBatch(List<File> progFiles, int parallelism) {
+		this(progFiles, parallelism, null);
+	}
+
+	/**
+	 * @param cache the parsed programs to share, or null
+	 */
+	public SplatBatch(List<File> progFiles, int parallelism, AstCache cache) {
+		this.progFiles = progFiles;
+		this.parallelism = parallelism;
+		this.cache = cache;
+	}
+
+	/**
+	 * @return the .splat files in the directories and the other files as
+	 * 			they are, directories sorted by name
+	 */
+	public static List<File> collect(List<File> paths) {
+		List<File> progFiles = new ArrayList<File>();
+		for (File path : paths) {
+			File[] files = path.listFiles();
+			if (files == null) {
+				progFiles.add(path);
+				continue;
+			}
+			Arrays.sort(files);
+			for (File file : files) {
+				if (file.isFile() && file.getName().endsWith(".splat")) {
+					progFiles.add(file);
+				}
+			}
+		}
+		return progFiles;
+	}
+
+	/**
+	 * Compiles every file, in parallel.
+	 *
+	 * @return a unit per file, in the same order as the files
+	 */
+	public List<Unit> compile() {
+
+		List<Callable<Unit>> tasks = new ArrayList<Callable<Unit>>();
+		for (final File progFile : progFiles) {
+			tasks.add(new Callable<Unit>() {
+				public Unit call() {
+					return compile(progFile, cache);
+				}
+			});
+		}
+
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			List<Unit> units = new ArrayList<Unit>();
+			for (Future<Unit> future : pool.invokeAll(tasks)) {
+				units.add(future.get());
+			}
+			return units;
+
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while compiling", ex);
+		} catch (ExecutionException ex) {
+			throw new IllegalStateException("Compiler failed", ex.getCause());
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Compiles and checks a single file, on the calling thread.
+	 */
+	static Unit compile(File progFile) {
+		return compile(progFile, null);
+	}
+
+	static Unit compile(File progFile, AstCache cache) {
+		try {
+			ProgramAST progAST = new Splat(progFile, ExecutionMode.INTERPRETER, cache).compile();
+			return new Unit(progFile, progAST, null);
+
+		} catch (SplatException ex) {
+			return new Unit(progFile, null, ex);
+		} catch (IOException ex) {
+			return new Unit(progFile, null, ex);
+		} catch (StackOverflowError ex) {
+			return failed(progFile, "Program nested too deeply to compile");
+		} catch (OutOfMemoryError ex) {
+			return failed(progFile, "Out of memory while compiling");
+		} catch (RuntimeException ex) {
+			return failed(progFile, "Internal compiler error: " + ex);
+		} catch (Error ex) {
+			return failed(progFile, "Internal compiler error: " + ex);
+		}
+	}
+
+	/**
+	 * Runs the program of a unit that compiled, on the calling thread.
+	 * However the program fails, it only fails its own unit.
+	 *
+	 * @return the unit, or a unit with the error if the program failed
+	 */
+	static Unit run(Unit unit, ExecutionMode mode, PrintStream out) {
+		try {
+			new Splat(unit.progFile, mode).execute(unit.progAST, out);
+			return unit;
+
+		} catch (splat.executor.ExecutionException ex) {
+			return new Unit(unit.progFile, null, ex);
+		} catch (StackOverflowError ex) {
+			return failed(unit.progFile, "Stack overflow, recursion too deep");
+		} catch (OutOfMemoryError ex) {
+			return failed(unit.progFile, "Out of memory while running");
+		} catch (RuntimeException ex) {
+			return failed(unit.progFile, "Internal error while running: " + ex);
+		} catch (Error ex) {
+			return failed(unit.progFile, "Internal error while running: " + ex);
+		}
+	}
+
+	private static Unit failed(File progFile, String message) {
+		return new Unit(progFile, null, new Exception(message));
+	}
+
+	/**
+	 * Prints the error of every unit that has one.
+	 *
+	 * @return the number of errors
+	 */
+	public static int report(List<Unit> units, PrintStream out) {
+		int errors = 0;
+		for (Unit unit : units) {
+			if (unit.error != null) {
+				out.println(unit.getDiagnostic());
+				errors++;
+			}
+		}
+		out.println(units.size() + " files compiled, " + errors + " with errors");
+		return errors;
+	}
+
+	public static void main(String[] args) {
+
+		int parallelism = Runtime.getRuntime().availableProcessors();
+		ExecutionMode runMode = null;
+		AstCache cache = null;
+		List<File> paths = new ArrayList<File>();
+
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("-threads") && i + 1 < args.length) {
+				parallelism = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("-run") && i + 1 < args.length) {
+				runMode = ExecutionMode.valueOf(args[++i].toUpperCase());
+			} else if (args[i].equals("-cache") && i + 1 < args.length) {
+				cache = new AstCache(new File(args[++i]));
+			} else {
+				paths.add(new File(args[i]));
+			}
+		}
+		if (paths.isEmpty()) {
+			System.err.println("usage: SplatBatch [-threads n] [-run mode] [-cache directory]"
+					+ " file-or-directory...");
+			System.exit(2);
+		}
+
+		List<Unit> units = new SplatBatch(collect(paths), parallelism, cache).compile();
+
+		// Diagnostics go together at the end, after any program output
+		if (runMode != null) {
+			for (int i = 0; i < units.size(); i++) {
+				Unit unit = units.get(i);
+				if (unit.error == null) {
+					units.set(i, run(unit, runMode, System.out));
+				}
+			}
+		}
+		int errors = report(units, System.err);
+
+		System.exit(errors == 0 ? 0 : 1);
+	}
+}
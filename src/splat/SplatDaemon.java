@@ -0,0 +1,200 @@
+package splat;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compiles and runs programs on request, so that one JVM serves many
+ * programs and each finds the compiler already loaded and JIT compiled.
+ *
+ * Requests come in on standard input, one per line:
+ *
+ *   check <file>			lex, parse and check the program
+ *   run <mode> <file>		the same, then run it in the ExecutionMode
+ *   quit
+ *
+ * Each request gets one response on standard output: a line
+ * "<status> <n>", where status is ok or error, then n bytes of program
+ * output, then for an error a line with the diagnostic in the form
+ * file:line:column: message.
+ *
+ * The file is the rest of the request line, so its path may contain
+ * spaces.
+ *
+ * A run request is answered when its program ends, and its output is
+ * held in memory until then.  There is no time limit: a program that
+ * never ends blocks the daemon for good, and one that prints without end
+ * runs it out of memory, so a client that can send such programs must
+ * time out itself, and kill and restart the daemon.
+ *
+ * usage: SplatDaemon [-warmup directory]
+ */
+public class SplatDaemon {
+
+	// Rounds of compiling the warm-up programs before taking requests
+	private static final int WARMUP_ROUNDS = 20;
+
+	private BufferedReader in;
+	private OutputStream out;
+
+	public SplatDaemon(InputStream in, OutputStream out) {
+		this.in = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+		this.out = out;
+	}
+
+	/**
+	 * Answers requests until quit or the end of the input.
+	 */
+	public void serve() throws IOException {
+		String line;
+		while ((line = in.readLine()) != null) {
+			line = line.trim();
+			if (line.isEmpty()) {
+				continue;
+			}
+			if (line.equals("quit")) {
+				break;
+			}
+			handle(line);
+			out.flush();
+		}
+		out.flush();
+	}
+
+	/*
+	 * Whatever goes wrong with one request, it gets its error response,
+	 * so the next response still starts where the client expects it.
+	 */
+	private void handle(String request) throws IOException {
+		try {
+			answer(request);
+		} catch (StackOverflowError ex) {
+			respond(new byte[0], "Stack overflow handling request: " + request);
+		} catch (OutOfMemoryError ex) {
+			respond(new byte[0], "Out of memory handling request: " + request);
+		} catch (RuntimeException ex) {
+			respond(new byte[0], "Internal error handling request: " + request + ": " + ex);
+		} catch (Error ex) {
+			respond(new byte[0], "Internal error handling request: " + request + ": " + ex);
+		}
+	}
+
+	private void answer(String request) throws IOException {
+		String[] words = request.split("\\s+", 2);
+		String[] args = words.length == 2 ? words[1].split("\\s+", 2) : new String[0];
+
+		if (words[0].equals("check") && words.length == 2) {
+			SplatBatch.Unit unit = SplatBatch.compile(new File(words[1]));
+			respond(new byte[0], unit.error == null ? null : unit.getDiagnostic());
+
+		} else if (words[0].equals("run") && args.length == 2) {
+			File progFile = new File(args[1]);
+			ExecutionMode mode;
+			try {
+				mode = ExecutionMode.valueOf(args[0].toUpperCase());
+			} catch (IllegalArgumentException ex) {
+				respond(new byte[0], "Unknown execution mode: " + args[0]);
+				return;
+			}
+
+			SplatBatch.Unit unit = SplatBatch.compile(progFile);
+			if (unit.error != null) {
+				respond(new byte[0], unit.getDiagnostic());
+				return;
+			}
+
+			ByteArrayOutputStream output = new ByteArrayOutputStream();
+			PrintStream outputStream = printStream(output);
+			unit = SplatBatch.run(unit, mode, outputStream);
+			outputStream.flush();
+			respond(output.toByteArray(), unit.error == null ? null : unit.getDiagnostic());
+
+		} else {
+			respond(new byte[0], "Unknown request: " + request);
+		}
+	}
+
+	private void respond(byte[] output, String diagnostic) throws IOException {
+		String status = diagnostic == null ? "ok" : "error";
+		out.write((status + " " + output.length + "\n").getBytes(StandardCharsets.UTF_8));
+		out.write(output);
+		if (diagnostic != null) {
+			out.write((diagnostic + "\n").getBytes(StandardCharsets.UTF_8));
+		}
+	}
+
+	/**
+	 * Compiles every program in the directory a number of times, and runs
+	 * the ones named *_goodexecution.splat once in each mode, so the
+	 * first real requests don't pay for class loading and JIT compiling.
+	 */
+	public static void warmUp(File dir) {
+		File[] files = dir.listFiles();
+		if (files == null) {
+			return;
+		}
+		Arrays.sort(files);
+		List<File> progFiles = new ArrayList<File>();
+		for (File file : files) {
+			if (file.getName().endsWith(".splat")) {
+				progFiles.add(file);
+			}
+		}
+
+		for (int round = 0; round < WARMUP_ROUNDS; round++) {
+			for (File progFile : progFiles) {
+				SplatBatch.compile(progFile);
+			}
+		}
+
+		PrintStream discard = printStream(new ByteArrayOutputStream());
+		for (File progFile : progFiles) {
+			if (!progFile.getName().endsWith("_goodexecution.splat")) {
+				continue;
+			}
+			SplatBatch.Unit unit = SplatBatch.compile(progFile);
+			if (unit.error != null) {
+				continue;
+			}
+			// Only the time spent matters here, not how the program ends
+			for (ExecutionMode mode : ExecutionMode.values()) {
+				SplatBatch.run(unit, mode, discard);
+			}
+		}
+	}
+
+	private static PrintStream printStream(OutputStream out) {
+		try {
+			return new PrintStream(out, false, "UTF-8");
+		} catch (UnsupportedEncodingException ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length == 2 && args[0].equals("-warmup")) {
+			warmUp(new File(args[1]));
+		} else if (args.length != 0) {
+			System.err.println("usage: SplatDaemon [-warmup directory]");
+			System.exit(2);
+		}
+
+		// Responses only ever go to the real standard output
+		OutputStream stdout = new BufferedOutputStream(System.out);
+		System.setOut(System.err);
+
+		new SplatDaemon(System.in, stdout).serve();
+	}
+}
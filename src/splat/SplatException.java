@@ -1,27 +1,65 @@
 package splat;
 
+import splat.lexer.LineMap;
+
+/**
+ * An error in a program.  Only the offset of the error in the program's
+ * text is kept, and its line and column are found in the program's
+ * LineMap when the error is reported.  Errors found while walking the
+ * elements of a program, which don't know the map, are given it by
+ * locate() on their way out of the step that found them.
+ */
 public abstract class SplatException extends Exception {
 
-	private int line;
-	private int column;
+	private int offset;
+	private LineMap lines;
 	
-	public SplatException(String msg, int line, int column) {
+	/**
+	 * @param offset where the error is in the program text, or -1 if it
+	 * 			has no position
+	 * @param lines the map of the program, or null if it is given later
+	 * 			by locate()
+	 */
+	public SplatException(String msg, int offset, LineMap lines) {
 		super(msg);
-		this.line = line;
-		this.column = column;
+		this.offset = offset;
+		this.lines = lines;
+	}
+
+	/**
+	 * Gives the error the map of its program, unless it has one already.
+	 */
+	public void locate(LineMap lines) {
+		if (this.lines == null) {
+			this.lines = lines;
+		}
+	}
+	
+	/**
+	 * @return where the error is in the program text, or -1 if it has no
+	 * 			position
+	 */
+	public int getOffset() {
+		return offset;
 	}
 	
 	public int getLine() {
-		return line;
+		if (offset < 0 || lines == null) {
+			return -1;
+		}
+		return lines.lineOf(offset);
 	}
 	
 	public int getColumn() {
-		return column;
+		if (offset < 0 || lines == null) {
+			return -1;
+		}
+		return lines.columnOf(offset);
 	}
 	
 	public String toString() {
 		return super.getMessage() + " Error at line " 
-						+ line + ", column " + column;
+						+ getLine() + ", column " + getColumn();
 	}
 	
 }
@@ -0,0 +1,243 @@
+package splat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Runs a tester's test files in parallel on a fork-join pool.
+ *
+ * Each test writes to its own buffer and returns its own Result, so tests
+ * share no state while they run.  The results come back in the order of
+ * the files, and are printed in that order, each with how long it took.
+ *
+ * A tester only supplies the Test for one file, runSuite() does the rest:
+ * finding the files in the tests directory, running them and summing up.
+ */
+public class TestRunner {
+
+	/**
+	 * One kind of test, run on many files at once on the runner's threads,
+	 * so it must not touch any shared state, and only writes to details.
+	 */
+	public interface Test {
+
+		/**
+		 * @param details where to write anything to show after the
+		 * 			outcome, like the tokens or the AST
+		 * @return the outcome, such as "passed (lexing successful)"
+		 */
+		Outcome run(File testFile, PrintStream details) throws Exception;
+	}
+
+	public static class Outcome {
+
+		public final boolean passed;
+		public final String message;
+
+		private Outcome(boolean passed, String message) {
+			this.passed = passed;
+			this.message = message;
+		}
+
+		public static Outcome passed(String message) {
+			return new Outcome(true, "passed (" + message + ")");
+		}
+
+		public static Outcome failed(String message) {
+			return new Outcome(false, "failed - " + message);
+		}
+	}
+
+	public static class Result {
+
+		public final File testFile;
+		public final Outcome outcome;
+		public final String details;
+		public final long nanos;
+
+		private Result(File testFile, Outcome outcome, String details, long nanos) {
+			this.testFile = testFile;
+			this.outcome = outcome;
+			this.details = details;
+			this.nanos = nanos;
+		}
+	}
+
+	private int parallelism;
+
+	public TestRunner() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	public TestRunner(int parallelism) {
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * @return a runner on the number of threads given as a tester's first
+	 * 			argument, or on one per processor if there is none
+	 */
+	public static TestRunner fromArgs(String[] args) {
+		if (args.length > 0) {
+			return new TestRunner(Integer.parseInt(args[0]));
+		}
+		return new TestRunner();
+	}
+
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	/**
+	 * Runs the test on every file in the tests directory whose name ends
+	 * with one of the suffixes, then prints the results, followed by a
+	 * summary headed "FINAL <name> TESTING RESULTS".
+	 */
+	public void runSuite(String name, Test test, String... suffixes) {
+		runSuite(name, new File("tests"), test, suffixes);
+	}
+
+	/**
+	 * Runs a suite on the files in another directory, such as programs a
+	 * tester has generated.
+	 */
+	public void runSuite(String name, File testDir, Test test, String... suffixes) {
+
+		// First, we get the testing files
+
+		System.out.print("Opening test directory...");
+
+		if (!testDir.exists() || !testDir.isDirectory()) {
+			System.out.println("error!");
+			System.out.println("Cannot find directory '" + testDir + "'.");
+			System.out.println("Please create one in your project folder, and add" + " the appropriate testing files.");
+
+			return;
+		}
+
+		File[] testFiles = testDir.listFiles();
+		Arrays.sort(testFiles);
+
+		System.out.println("success");
+
+		// Now, we run the tests, all at once
+
+		System.out.println("Running tests...");
+
+		List<File> suiteFiles = new ArrayList<File>();
+		for (File testFile : testFiles) {
+			for (String suffix : suffixes) {
+				if (testFile.getName().endsWith(suffix)) {
+					suiteFiles.add(testFile);
+					break;
+				}
+			}
+		}
+
+		long start = System.nanoTime();
+		List<Result> results = run(suiteFiles, test);
+		long nanos = System.nanoTime() - start;
+
+		print(results, System.out);
+		int success = 0;
+		for (Result result : results) {
+			if (result.outcome.passed) {
+				success++;
+			}
+		}
+
+		// Finally, we output the results
+
+		String title = "FINAL " + name + " TESTING RESULTS";
+		String rule = title.replaceAll(".", "-");
+		System.out.println(rule);
+		System.out.println(title);
+		System.out.println(rule);
+		System.out.println("Tests completed: " + results.size());
+		System.out.println("Tests succeeded: " + success);
+		System.out.println("Tests falied:    " + (results.size() - success));
+		System.out.println("Time:            " + millis(nanos) + " ms on "
+				+ parallelism + " threads");
+	}
+
+	/**
+	 * @return the result of each file, in the same order as the files
+	 */
+	public List<Result> run(List<File> testFiles, final Test test) {
+
+		List<Callable<Result>> tasks = new ArrayList<Callable<Result>>();
+		for (final File testFile : testFiles) {
+			tasks.add(new Callable<Result>() {
+				public Result call() {
+					return runOne(testFile, test);
+				}
+			});
+		}
+
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			List<Result> results = new ArrayList<Result>();
+			for (Future<Result> future : pool.invokeAll(tasks)) {
+				results.add(future.get());
+			}
+			return results;
+
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while running tests", ex);
+		} catch (ExecutionException ex) {
+			// runOne() catches everything the test throws
+			throw new IllegalStateException("Test runner failed", ex.getCause());
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	private static Result runOne(File testFile, Test test) {
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		PrintStream details = new PrintStream(buffer);
+
+		long start = System.nanoTime();
+		Outcome outcome;
+		try {
+			outcome = test.run(testFile, details);
+		} catch (Exception ex) {
+			outcome = Outcome.failed("test could not run: " + ex);
+		} catch (StackOverflowError ex) {
+			outcome = Outcome.failed("stack overflow");
+		}
+		long nanos = System.nanoTime() - start;
+
+		details.flush();
+		return new Result(testFile, outcome, buffer.toString(), nanos);
+	}
+
+	/**
+	 * Prints each result as a numbered test case, with its time and
+	 * details.
+	 */
+	public static void print(List<Result> results, PrintStream out) {
+		int testCount = 0;
+		for (Result result : results) {
+			testCount++;
+			out.println("Test Case " + testCount + ": " + result.testFile.getName() + "..."
+					+ result.outcome.message + " [" + millis(result.nanos) + " ms]");
+			out.print(result.details);
+		}
+	}
+
+	/**
+	 * @return the time in milliseconds, to two decimal places
+	 */
+	public static String millis(long nanos) {
+		return String.format("%.2f", nanos / 1e6);
+	}
+}
@@ -0,0 +1,120 @@
+package splat.compiler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Assembles a class file out of fields and methods built with
+ * CodeBuilder.
+ * 
+ * The class file version is 49 (Java 5), the last one verified without
+ * StackMapTable attributes, so the generated code needs no stack map
+ * frames; every current JVM still loads it.
+ */
+public class ClassFile {
+
+	public static final int ACC_PUBLIC = 0x0001;
+	public static final int ACC_STATIC = 0x0008;
+	public static final int ACC_FINAL = 0x0010;
+	public static final int ACC_SUPER = 0x0020;
+
+	private static final int MAGIC = 0xCAFEBABE;
+	private static final int MAJOR_VERSION = 49;
+
+	private String name;
+	private ConstantPool pool;
+
+	private ByteArrayOutputStream fields;
+	private int fieldCount;
+	private ByteArrayOutputStream methods;
+	private int methodCount;
+
+	public ClassFile(String name) {
+		this.name = name;
+		this.pool = new ConstantPool();
+		this.fields = new ByteArrayOutputStream();
+		this.fieldCount = 0;
+		this.methods = new ByteArrayOutputStream();
+		this.methodCount = 0;
+	}
+
+	public ConstantPool getPool() {
+		return pool;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public void addField(int access, String fieldName, String descriptor) {
+		DataOutputStream out = new DataOutputStream(fields);
+		try {
+			out.writeShort(access);
+			out.writeShort(pool.utf8(fieldName));
+			out.writeShort(pool.utf8(descriptor));
+			out.writeShort(0);	// no attributes
+		} catch (IOException ex) {
+			throw new IllegalStateException(ex);
+		}
+		fieldCount++;
+	}
+
+	public void addMethod(int access, String methodName, String descriptor, CodeBuilder code) {
+		DataOutputStream out = new DataOutputStream(methods);
+		byte[] bytecode = code.toByteArray();
+		try {
+			out.writeShort(access);
+			out.writeShort(pool.utf8(methodName));
+			out.writeShort(pool.utf8(descriptor));
+			out.writeShort(1);	// just the Code attribute
+
+			List<int[]> handlers = code.getHandlers();
+			out.writeShort(pool.utf8("Code"));
+			out.writeInt(12 + bytecode.length + 8 * handlers.size());
+			out.writeShort(code.getMaxStack());
+			out.writeShort(code.getMaxLocals());
+			out.writeInt(bytecode.length);
+			out.write(bytecode);
+			out.writeShort(handlers.size());
+			for (int[] handler : handlers) {
+				for (int value : handler) {
+					out.writeShort(value);
+				}
+			}
+			out.writeShort(0);	// no attributes
+		} catch (IOException ex) {
+			throw new IllegalStateException(ex);
+		}
+		methodCount++;
+	}
+
+	public byte[] toByteArray() {
+		// Resolve these before the pool is written out
+		int thisClass = pool.classRef(name);
+		int superClass = pool.classRef("java/lang/Object");
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		try {
+			out.writeInt(MAGIC);
+			out.writeShort(0);
+			out.writeShort(MAJOR_VERSION);
+			out.writeShort(pool.getCount());
+			out.write(pool.toByteArray());
+			out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+			out.writeShort(thisClass);
+			out.writeShort(superClass);
+			out.writeShort(0);	// no interfaces
+			out.writeShort(fieldCount);
+			out.write(fields.toByteArray());
+			out.writeShort(methodCount);
+			out.write(methods.toByteArray());
+			out.writeShort(0);	// no attributes
+		} catch (IOException ex) {
+			throw new IllegalStateException(ex);
+		}
+		return bytes.toByteArray();
+	}
+}
@@ -0,0 +1,275 @@
+package splat.compiler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds the bytecode of a single method.  Besides the instruction bytes,
+ * it keeps track of the operand stack depth and the local variable count,
+ * which the class file needs as max_stack and max_locals.
+ * 
+ * Only the instructions the SPLAT compiler needs are provided.  Since all
+ * SPLAT values fit in a single JVM slot, stack effects are simply counted
+ * in slots.
+ */
+public class CodeBuilder {
+
+	// Opcodes
+	public static final int ICONST_0 = 0x03;
+	public static final int BIPUSH = 0x10;
+	public static final int SIPUSH = 0x11;
+	public static final int LDC = 0x12;
+	public static final int LDC_W = 0x13;
+	public static final int ILOAD = 0x15;
+	public static final int IALOAD = 0x2e;
+	public static final int ALOAD = 0x19;
+	public static final int ISTORE = 0x36;
+	public static final int ASTORE = 0x3a;
+	public static final int POP = 0x57;
+	public static final int DUP = 0x59;
+	public static final int IADD = 0x60;
+	public static final int ISUB = 0x64;
+	public static final int IMUL = 0x68;
+	public static final int IDIV = 0x6c;
+	public static final int IREM = 0x70;
+	public static final int INEG = 0x74;
+	public static final int IXOR = 0x82;
+	public static final int IFEQ = 0x99;
+	public static final int IFNE = 0x9a;
+	public static final int IF_ICMPEQ = 0x9f;
+	public static final int IF_ICMPLT = 0xa1;
+	public static final int IF_ICMPGE = 0xa2;
+	public static final int IF_ICMPGT = 0xa3;
+	public static final int IF_ICMPLE = 0xa4;
+	public static final int GOTO = 0xa7;
+	public static final int IRETURN = 0xac;
+	public static final int ARETURN = 0xb0;
+	public static final int RETURN = 0xb1;
+	public static final int GETSTATIC = 0xb2;
+	public static final int PUTSTATIC = 0xb3;
+	public static final int INVOKEVIRTUAL = 0xb6;
+	public static final int INVOKESPECIAL = 0xb7;
+	public static final int INVOKESTATIC = 0xb8;
+	public static final int NEW = 0xbb;
+	public static final int ATHROW = 0xbf;
+	public static final int WIDE = 0xc4;
+
+	private ConstantPool pool;
+
+	private byte[] code;
+	private int length;
+
+	private int stack;
+	private int maxStack;
+	private int maxLocals;
+
+	// Exception table entries: start, end, handler, catch type class
+	private List<int[]> handlers;
+
+	public CodeBuilder(ConstantPool pool, int maxLocals) {
+		this.pool = pool;
+		this.code = new byte[256];
+		this.length = 0;
+		this.stack = 0;
+		this.maxStack = 0;
+		this.maxLocals = maxLocals;
+		this.handlers = new ArrayList<int[]>();
+	}
+
+	/**
+	 * Emits an instruction that has no operands.
+	 * 
+	 * @param stackChange how many slots it pushes, minus how many it pops
+	 */
+	public void op(int opcode, int stackChange) {
+		put(opcode);
+		adjust(stackChange);
+	}
+
+	public void pushInt(int value) {
+		if (value >= -1 && value <= 5) {
+			put(ICONST_0 + value);
+		} else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+			put(BIPUSH);
+			put(value);
+		} else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+			put(SIPUSH);
+			putShort(value);
+		} else {
+			ldc(pool.integer(value));
+			return;
+		}
+		adjust(1);
+	}
+
+	public void pushString(String value) {
+		ldc(pool.string(value));
+	}
+
+	private void ldc(int index) {
+		if (index <= 0xFF) {
+			put(LDC);
+			put(index);
+		} else {
+			put(LDC_W);
+			putShort(index);
+		}
+		adjust(1);
+	}
+
+	/**
+	 * Emits a load or store (ILOAD, ALOAD, ISTORE, ASTORE) of a local.
+	 */
+	public void local(int opcode, int index) {
+		if (index > 0xFF) {
+			put(WIDE);
+			put(opcode);
+			putShort(index);
+		} else {
+			put(opcode);
+			put(index);
+		}
+		boolean load = opcode == ILOAD || opcode == ALOAD;
+		adjust(load ? 1 : -1);
+	}
+
+	public void field(int opcode, String owner, String name, String descriptor) {
+		put(opcode);
+		putShort(pool.fieldRef(owner, name, descriptor));
+		adjust(opcode == GETSTATIC ? 1 : -1);
+	}
+
+	public void invoke(int opcode, String owner, String name, String descriptor) {
+		put(opcode);
+		putShort(pool.methodRef(owner, name, descriptor));
+
+		int change = descriptor.endsWith(")V") ? 0 : 1;
+		change -= argumentCount(descriptor);
+		if (opcode != INVOKESTATIC) {
+			change--;
+		}
+		adjust(change);
+	}
+
+	public void newObject(String internalName) {
+		put(NEW);
+		putShort(pool.classRef(internalName));
+		adjust(1);
+	}
+
+	public void branch(int opcode, Label target) {
+		int at = length;
+		put(opcode);
+		putShort(0);
+		if (opcode == GOTO) {
+			// nothing popped
+		} else if (opcode >= IF_ICMPEQ) {
+			adjust(-2);
+		} else {
+			adjust(-1);
+		}
+
+		if (target.position >= 0) {
+			patch(at, target.position);
+		} else {
+			target.branches.add(at);
+		}
+	}
+
+	public void place(Label label) {
+		label.position = length;
+		for (int at : label.branches) {
+			patch(at, length);
+		}
+		label.branches.clear();
+	}
+
+	/**
+	 * Sets the stack depth at a point that can't be reached by falling
+	 * through (after a goto, return or athrow), to what it is at a branch
+	 * leading there.
+	 */
+	public void setStack(int depth) {
+		stack = depth;
+	}
+
+	/**
+	 * Sends exceptions of the given class, thrown by the code from start up
+	 * to (not including) end, to the code at handler, with just the
+	 * exception on the stack.
+	 */
+	public void handler(int start, int end, int handler, String catchType) {
+		handlers.add(new int[] { start, end, handler, pool.classRef(catchType) });
+	}
+
+	public List<int[]> getHandlers() {
+		return handlers;
+	}
+
+	public int getStack() {
+		return stack;
+	}
+
+	public int getLength() {
+		return length;
+	}
+
+	public int getMaxStack() {
+		return maxStack;
+	}
+
+	public int getMaxLocals() {
+		return maxLocals;
+	}
+
+	public byte[] toByteArray() {
+		byte[] result = new byte[length];
+		System.arraycopy(code, 0, result, 0, length);
+		return result;
+	}
+
+	private void patch(int at, int target) {
+		int offset = target - at;
+		code[at + 1] = (byte) (offset >> 8);
+		code[at + 2] = (byte) offset;
+	}
+
+	private void adjust(int change) {
+		stack += change;
+		if (stack > maxStack) {
+			maxStack = stack;
+		}
+	}
+
+	private void put(int b) {
+		if (length == code.length) {
+			byte[] bigger = new byte[code.length * 2];
+			System.arraycopy(code, 0, bigger, 0, length);
+			code = bigger;
+		}
+		code[length++] = (byte) b;
+	}
+
+	private void putShort(int value) {
+		put(value >> 8);
+		put(value);
+	}
+
+	/*
+	 * Counts the parameters in a method descriptor.  Only single slot
+	 * parameter types (int, boolean and object references) are expected.
+	 */
+	private static int argumentCount(String descriptor) {
+		int count = 0;
+		int i = 1;
+		while (descriptor.charAt(i) != ')') {
+			char c = descriptor.charAt(i);
+			if (c == 'L') {
+				i = descriptor.indexOf(';', i);
+			}
+			count++;
+			i++;
+		}
+		return count;
+	}
+}
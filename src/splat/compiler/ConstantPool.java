@@ -0,0 +1,157 @@
+package splat.compiler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The constant pool of a class file being generated.  Each constant is
+ * written once, and asking for it again returns the existing index.
+ *
+ * Indexes are only 16 bits in a class file, but constants are numbered
+ * past that anyway, so the whole program can be compiled before checking
+ * getCount() against MAX_COUNT.
+ */
+public class ConstantPool {
+
+	public static final int MAX_COUNT = 0xFFFF;
+
+	private static final int CONSTANT_UTF8 = 1;
+	private static final int CONSTANT_INTEGER = 3;
+	private static final int CONSTANT_CLASS = 7;
+	private static final int CONSTANT_STRING = 8;
+	private static final int CONSTANT_FIELDREF = 9;
+	private static final int CONSTANT_METHODREF = 10;
+	private static final int CONSTANT_NAME_AND_TYPE = 12;
+
+	private ByteArrayOutputStream bytes;
+	private DataOutputStream out;
+	private Map<String, Integer> indexes;
+	private int count;
+
+	public ConstantPool() {
+		bytes = new ByteArrayOutputStream();
+		out = new DataOutputStream(bytes);
+		indexes = new HashMap<String, Integer>();
+		count = 1;	// entry 0 is never used
+	}
+
+	public int utf8(String text) {
+		String key = "U" + text;
+		Integer index = indexes.get(key);
+		if (index != null) {
+			return index;
+		}
+		try {
+			out.writeByte(CONSTANT_UTF8);
+			out.writeUTF(text);
+		} catch (IOException ex) {
+			// writeUTF only fails this way for strings over 64K bytes
+			throw new IllegalArgumentException("Constant too long for a class file", ex);
+		}
+		return add(key);
+	}
+
+	public int integer(int value) {
+		String key = "I" + value;
+		Integer index = indexes.get(key);
+		if (index != null) {
+			return index;
+		}
+		write(CONSTANT_INTEGER);
+		writeInt(value);
+		return add(key);
+	}
+
+	public int classRef(String internalName) {
+		String key = "C" + internalName;
+		Integer index = indexes.get(key);
+		if (index != null) {
+			return index;
+		}
+		int name = utf8(internalName);
+		write(CONSTANT_CLASS);
+		writeShort(name);
+		return add(key);
+	}
+
+	public int string(String value) {
+		String key = "S" + value;
+		Integer index = indexes.get(key);
+		if (index != null) {
+			return index;
+		}
+		int text = utf8(value);
+		write(CONSTANT_STRING);
+		writeShort(text);
+		return add(key);
+	}
+
+	public int fieldRef(String owner, String name, String descriptor) {
+		return memberRef(CONSTANT_FIELDREF, owner, name, descriptor);
+	}
+
+	public int methodRef(String owner, String name, String descriptor) {
+		return memberRef(CONSTANT_METHODREF, owner, name, descriptor);
+	}
+
+	private int memberRef(int tag, String owner, String name, String descriptor) {
+		String key = tag + owner + "." + name + ":" + descriptor;
+		Integer index = indexes.get(key);
+		if (index != null) {
+			return index;
+		}
+		int ownerIndex = classRef(owner);
+		int nameAndType = nameAndType(name, descriptor);
+		write(tag);
+		writeShort(ownerIndex);
+		writeShort(nameAndType);
+		return add(key);
+	}
+
+	private int nameAndType(String name, String descriptor) {
+		String key = "N" + name + ":" + descriptor;
+		Integer index = indexes.get(key);
+		if (index != null) {
+			return index;
+		}
+		int nameIndex = utf8(name);
+		int descIndex = utf8(descriptor);
+		write(CONSTANT_NAME_AND_TYPE);
+		writeShort(nameIndex);
+		writeShort(descIndex);
+		return add(key);
+	}
+
+	/**
+	 * @return the value of constant_pool_count for the class file
+	 */
+	public int getCount() {
+		return count;
+	}
+
+	public byte[] toByteArray() {
+		return bytes.toByteArray();
+	}
+
+	private int add(String key) {
+		indexes.put(key, count);
+		return count++;
+	}
+
+	private void write(int b) {
+		bytes.write(b);
+	}
+
+	private void writeShort(int value) {
+		bytes.write(value >>> 8);
+		bytes.write(value);
+	}
+
+	private void writeInt(int value) {
+		writeShort(value >>> 16);
+		writeShort(value & 0xFFFF);
+	}
+}
@@ -0,0 +1,513 @@
+package splat.compiler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import splat.executor.ExecutionException;
+import splat.executor.Scope;
+import splat.executor.Value;
+import splat.parser.elements.*;
+
+import static splat.compiler.CodeBuilder.*;
+
+/**
+ * Translates a program into a single JVM class:
+ *
+ *   - every function becomes a static method, with Integer, Boolean and
+ *     String mapped to int, boolean and java.lang.CharSequence, and
+ *     parameters and local variables kept in JVM locals (numbered by frame
+ *     slot); Strings are joined and compared with Rope, the same as the
+ *     interpreter
+ *   - every program variable becomes a static field
+ *   - the program body becomes the static method $main(), and output goes
+ *     to the PrintStream in the static field $out
+ *
+ * The JVM needs a type for everything, which the SemanticAnalyzer has
+ * given every expression, along with every call its function, so a program
+ * must be analyzed before it is compiled.  Runtime errors (division by
+ * zero, falling off the end of a function) are thrown from the generated
+ * code as ExecutionExceptions, at the offset of their element, which the
+ * code looks up in the static field $locations.
+ */
+public class JvmCompiler {
+
+	public static final String OUT_FIELD = "$out";
+	public static final String LOCATIONS_FIELD = "$locations";
+	public static final String MAIN_METHOD = "$main";
+
+	private static final String PRINT_STREAM = "java/io/PrintStream";
+	private static final String CHAR_SEQUENCE = "java/lang/CharSequence";
+	private static final String ROPE = "splat/executor/Rope";
+	private static final String ERROR = "splat/executor/ExecutionException";
+
+	// Anything longer risks branch offsets that don't fit in 16 bits
+	private static final int MAX_CODE_LENGTH = Short.MAX_VALUE;
+
+	private ProgramAST progAST;
+	private String className;
+
+	private String[] globalNames;
+	private Type[] globalTypes;
+
+	// The function being compiled (null for the program body), and its code
+	private FunctionDecl func;
+	private CodeBuilder code;
+
+	// Calls to functions that return a value: where the call instruction
+	// starts and ends, and the location of the call
+	private List<int[]> calls;
+
+	// Where each runtime error can happen.  The code only has the index of
+	// the location, as offsets past Short.MAX_VALUE would each take a
+	// constant
+	private List<ASTElement> locations;
+
+	public JvmCompiler(ProgramAST progAST, String className) {
+		this.progAST = progAST;
+		this.className = className;
+	}
+
+	/**
+	 * @return the class file bytes of the compiled program
+	 * @throws ExecutionException if the program is too big for a class
+	 * 			file, or has a String literal too long for one
+	 */
+	public byte[] compile() throws ExecutionException {
+
+		Scope scope = progAST.resolveSlots();
+		locations = new ArrayList<ASTElement>();
+
+		ClassFile classFile = new ClassFile(className);
+		classFile.addField(ClassFile.ACC_PUBLIC | ClassFile.ACC_STATIC,
+				OUT_FIELD, "L" + PRINT_STREAM + ";");
+		classFile.addField(ClassFile.ACC_PUBLIC | ClassFile.ACC_STATIC,
+				LOCATIONS_FIELD, "[I");
+
+		globalNames = new String[scope.getGlobalCount()];
+		globalTypes = new Type[scope.getGlobalCount()];
+		for (Declaration decl : progAST.getDecls()) {
+			if (decl instanceof VariableDecl) {
+				VariableDecl var = (VariableDecl) decl;
+				globalNames[var.slot] = var.getLabel();
+				globalTypes[var.slot] = var.getType();
+				classFile.addField(ClassFile.ACC_STATIC, var.getLabel(), descriptor(var.getType()));
+			}
+		}
+
+		for (Declaration decl : progAST.getDecls()) {
+			if (decl instanceof FunctionDecl) {
+				compileFunction(classFile, (FunctionDecl) decl);
+			}
+		}
+		compileMain(classFile);
+
+		byte[] bytes = classFile.toByteArray();
+		if (classFile.getPool().getCount() > ConstantPool.MAX_COUNT) {
+			throw new ExecutionException("Program too large for the JVM backend", progAST);
+		}
+		return bytes;
+	}
+
+	/**
+	 * @return the offset of each location an error can happen at, which
+	 * 			must be put in the $locations field of the compiled class
+	 * 			before it runs
+	 */
+	public int[] getLocations() {
+		int[] offsets = new int[locations.size()];
+		for (int i = 0; i < offsets.length; i++) {
+			offsets[i] = locations.get(i).getOffset();
+		}
+		return offsets;
+	}
+
+	private void compileFunction(ClassFile classFile, FunctionDecl decl) throws ExecutionException {
+		func = decl;
+		code = new CodeBuilder(classFile.getPool(), decl.frameSize);
+		calls = new ArrayList<int[]>();
+
+		StringBuilder desc = new StringBuilder("(");
+		for (Param param : decl.getParams()) {
+			desc.append(descriptor(param.getType()));
+		}
+		desc.append(")").append(descriptor(decl.getRetType()));
+
+		for (VariableDecl var : decl.getLocalVarDecls()) {
+			pushDefault(var.getType());
+			code.local(storeOp(var.getType()), var.slot);
+		}
+
+		compileStmts(decl.getStmts());
+
+		if (decl.getRetType() == ReturnType.Void) {
+			code.op(RETURN, 0);
+		} else {
+			// Reported at the call, which the handlers below fill in
+			throwError("Function '" + decl.getLabel() + "' ended without returning a value", -1);
+		}
+
+		compileCallHandlers();
+		checkLength(decl);
+		classFile.addMethod(ClassFile.ACC_STATIC, decl.getLabel(), desc.toString(), code);
+	}
+
+	private void compileMain(ClassFile classFile) throws ExecutionException {
+		func = null;
+		code = new CodeBuilder(classFile.getPool(), 0);
+		calls = new ArrayList<int[]>();
+
+		for (int slot = 0; slot < globalNames.length; slot++) {
+			pushDefault(globalTypes[slot]);
+			code.field(PUTSTATIC, className, globalNames[slot], descriptor(globalTypes[slot]));
+		}
+
+		compileStmts(progAST.getStmts());
+		code.op(RETURN, 0);
+
+		compileCallHandlers();
+		checkLength(progAST);
+		classFile.addMethod(ClassFile.ACC_PUBLIC | ClassFile.ACC_STATIC,
+				MAIN_METHOD, "()V", code);
+	}
+
+	private void compileStmts(List<Statement> stmts) throws ExecutionException {
+		for (Statement stmt : stmts) {
+			compileStmt(stmt);
+		}
+	}
+
+	private void compileStmt(Statement stmt) throws ExecutionException {
+
+		if (stmt instanceof AssignmentStmt) {
+			AssignmentStmt assign = (AssignmentStmt) stmt;
+			compileExpr(assign.expr);
+			if (assign.global) {
+				code.field(PUTSTATIC, className, assign.label, descriptor(assign.type));
+			} else {
+				code.local(storeOp(assign.type), assign.slot);
+			}
+
+		} else if (stmt instanceof PrintStmt) {
+			code.field(GETSTATIC, className, OUT_FIELD, "L" + PRINT_STREAM + ";");
+			Expression expr = ((PrintStmt) stmt).getExpr();
+			compileExpr(expr);
+			// PrintStream has no print(CharSequence), so Strings go to print(Object)
+			String printed = expr.getType() == Type.String ? "Ljava/lang/Object;" : descriptor(expr.getType());
+			code.invoke(INVOKEVIRTUAL, PRINT_STREAM, "print", "(" + printed + ")V");
+
+		} else if (stmt instanceof PrintLineStmt) {
+			code.field(GETSTATIC, className, OUT_FIELD, "L" + PRINT_STREAM + ";");
+			code.invoke(INVOKEVIRTUAL, PRINT_STREAM, "println", "()V");
+
+		} else if (stmt instanceof ReturnStmt) {
+			compileReturn((ReturnStmt) stmt);
+
+		} else if (stmt instanceof IfConditionStmt) {
+			IfConditionStmt ifStmt = (IfConditionStmt) stmt;
+			compileExpr(ifStmt.getExpr());
+			Label otherwise = new Label();
+			code.branch(IFEQ, otherwise);
+			compileStmts(ifStmt.getStmts1());
+			if (ifStmt.getStmts2() != null) {
+				Label end = new Label();
+				code.branch(GOTO, end);
+				code.place(otherwise);
+				compileStmts(ifStmt.getStmts2());
+				code.place(end);
+			} else {
+				code.place(otherwise);
+			}
+
+		} else if (stmt instanceof WhileDoStmt) {
+			WhileDoStmt whileStmt = (WhileDoStmt) stmt;
+			Label top = new Label();
+			Label end = new Label();
+			code.place(top);
+			compileExpr(whileStmt.getExpr());
+			code.branch(IFEQ, end);
+			compileStmts(whileStmt.getStmts());
+			code.branch(GOTO, top);
+			code.place(end);
+
+		} else if (stmt instanceof NonVoidFunctionCallStmt) {
+			NonVoidFunctionCallStmt call = (NonVoidFunctionCallStmt) stmt;
+			compileCall(call.func, call.getArgs(), call);
+			if (call.func.getRetType() != ReturnType.Void) {
+				code.op(POP, -1);
+			}
+		}
+		// IfThenElse is never produced by the parser, nothing to do
+	}
+
+	private void compileReturn(ReturnStmt ret) throws ExecutionException {
+		Expression expr = ret.getExpr();
+		if (expr == null) {
+			code.op(RETURN, 0);
+			return;
+		}
+
+		compileExpr(expr);
+
+		// A return in the program body just ends the program
+		if (func == null) {
+			code.op(POP, -1);
+			code.op(RETURN, 0);
+		} else {
+			code.op(expr.getType() == Type.String ? ARETURN : IRETURN, -1);
+		}
+	}
+
+	/**
+	 * Leaves the value of the expression on the operand stack.
+	 */
+	private void compileExpr(Expression expr) throws ExecutionException {
+
+		if (expr instanceof LiteralExpr) {
+			Value constant = ((LiteralExpr) expr).getConstant();
+			switch (constant.getType()) {
+				case Integer:
+					code.pushInt(constant.getInt());
+					break;
+				case Boolean:
+					code.pushInt(constant.getBoolean() ? 1 : 0);
+					break;
+				default:
+					try {
+						code.pushString(constant.getString());
+					} catch (IllegalArgumentException ex) {
+						throw new ExecutionException("String literal too long to compile", expr);
+					}
+			}
+
+		} else if (expr instanceof LabelExpr) {
+			LabelExpr label = (LabelExpr) expr;
+			if (label.global) {
+				code.field(GETSTATIC, className, label.getValue(), descriptor(label.getType()));
+			} else {
+				code.local(label.getType() == Type.String ? ALOAD : ILOAD, label.slot);
+			}
+
+		} else if (expr instanceof UnaryOpExpr) {
+			UnaryOpExpr unary = (UnaryOpExpr) expr;
+			compileExpr(unary.getExpr());
+			if (unary.getOperator().equals("not")) {
+				code.pushInt(1);
+				code.op(IXOR, -1);
+			} else {
+				code.op(INEG, 0);
+			}
+
+		} else if (expr instanceof BinaryOpExpr) {
+			compileBinary((BinaryOpExpr) expr);
+
+		} else if (expr instanceof NonVoidFunctionCallExpr) {
+			NonVoidFunctionCallExpr call = (NonVoidFunctionCallExpr) expr;
+			compileCall(call.func, call.getArgs(), call);
+
+		} else {
+			throw new IllegalStateException("Argument list used as a value: " + expr);
+		}
+	}
+
+	private void compileBinary(BinaryOpExpr binary) throws ExecutionException {
+		String op = binary.getOperator();
+
+		// and / or only evaluate the second operand when they have to: the
+		// first operand is kept as the result if it decides the outcome
+		if (op.equals("and") || op.equals("or")) {
+			compileExpr(binary.getExpr1());
+			Label end = new Label();
+			code.op(DUP, 1);
+			code.branch(op.equals("and") ? IFEQ : IFNE, end);
+			code.op(POP, -1);
+			compileExpr(binary.getExpr2());
+			code.place(end);
+			return;
+		}
+
+		compileExpr(binary.getExpr1());
+		compileExpr(binary.getExpr2());
+		boolean strings = binary.getExpr1().getType() == Type.String;
+
+		switch (op) {
+			case "==":
+				if (strings) {
+					code.invoke(INVOKESTATIC, ROPE, "equals", "(" + descriptor(Type.String) + descriptor(Type.String) + ")Z");
+				} else {
+					compare(IF_ICMPEQ);
+				}
+				break;
+			case "+":
+				if (strings) {
+					code.invoke(INVOKESTATIC, ROPE, "concat", "(" + descriptor(Type.String) + descriptor(Type.String) + ")"
+							+ descriptor(Type.String));
+				} else {
+					code.op(IADD, -1);
+				}
+				break;
+			case "-":
+				code.op(ISUB, -1);
+				break;
+			case "*":
+				code.op(IMUL, -1);
+				break;
+			case "/":
+				checkDivisor(binary);
+				code.op(IDIV, -1);
+				break;
+			case "%":
+				checkDivisor(binary);
+				code.op(IREM, -1);
+				break;
+			case ">":
+				compare(IF_ICMPGT);
+				break;
+			case "<":
+				compare(IF_ICMPLT);
+				break;
+			case ">=":
+				compare(IF_ICMPGE);
+				break;
+			default: // "<="
+				compare(IF_ICMPLE);
+		}
+	}
+
+	/*
+	 * Replaces the two ints on top of the stack with 1 if the comparison
+	 * holds, and 0 otherwise.
+	 */
+	private void compare(int ifOpcode) {
+		Label isTrue = new Label();
+		Label end = new Label();
+		code.branch(ifOpcode, isTrue);
+		int depth = code.getStack();
+		code.pushInt(0);
+		code.branch(GOTO, end);
+		code.place(isTrue);
+		code.setStack(depth);
+		code.pushInt(1);
+		code.place(end);
+	}
+
+	/*
+	 * With the divisor on top of the stack, throws the same error the
+	 * interpreter would if it is zero.
+	 */
+	private void checkDivisor(BinaryOpExpr binary) {
+		Label ok = new Label();
+		code.op(DUP, 1);
+		code.branch(IFNE, ok);
+		int depth = code.getStack();
+		throwError("Division by zero", binary);
+		code.place(ok);
+		code.setStack(depth);
+	}
+
+	/**
+	 * Pushes the arguments and calls the function.
+	 */
+	private void compileCall(FunctionDecl callee, Expression args, ASTElement site)
+			throws ExecutionException {
+
+		StringBuilder desc = new StringBuilder("(");
+		for (Expression arg : ((ArgsExpr) args).getArgs()) {
+			compileExpr(arg);
+			desc.append(descriptor(arg.getType()));
+		}
+		desc.append(")").append(descriptor(callee.getRetType()));
+
+		int start = code.getLength();
+		code.invoke(INVOKESTATIC, className, callee.getLabel(), desc.toString());
+		if (callee.getRetType() != ReturnType.Void) {
+			calls.add(new int[] { start, code.getLength(), location(site) });
+		}
+	}
+
+	/**
+	 * Emits, after the end of the method, a handler for each call to a
+	 * function that returns a value, which gives an error from a function
+	 * that ended without returning one the position of the call.  Handlers
+	 * cost nothing unless an error is thrown.
+	 */
+	private void compileCallHandlers() {
+		for (int[] call : calls) {
+			code.handler(call[0], call[1], code.getLength(), ERROR);
+			code.setStack(1);
+			pushOffset(call[2]);
+			code.invoke(INVOKEVIRTUAL, ERROR, "atCall", "(I)L" + ERROR + ";");
+			code.op(ATHROW, -1);
+		}
+	}
+
+	private void throwError(String msg, ASTElement at) {
+		throwError(msg, location(at));
+	}
+
+	/*
+	 * @param location index of the location, or -1 for none
+	 */
+	private void throwError(String msg, int location) {
+		code.newObject(ERROR);
+		code.op(DUP, 1);
+		code.pushString(msg);
+		pushOffset(location);
+		code.invoke(INVOKESPECIAL, ERROR, "<init>", "(Ljava/lang/String;I)V");
+		code.op(ATHROW, -1);
+	}
+
+	private int location(ASTElement at) {
+		locations.add(at);
+		return locations.size() - 1;
+	}
+
+	/*
+	 * Pushes the offset of a location, read from $locations, or -1 if
+	 * there is no location
+	 */
+	private void pushOffset(int location) {
+		if (location < 0) {
+			code.pushInt(-1);
+			return;
+		}
+		code.field(GETSTATIC, className, LOCATIONS_FIELD, "[I");
+		code.pushInt(location);
+		code.op(IALOAD, -1);
+	}
+
+	private void pushDefault(Type type) {
+		if (type == Type.String) {
+			code.pushString("");
+		} else {
+			code.pushInt(0);
+		}
+	}
+
+	private void checkLength(ASTElement elem) throws ExecutionException {
+		if (code.getLength() > MAX_CODE_LENGTH) {
+			throw new ExecutionException("Too much code in one function to compile to the JVM", elem);
+		}
+	}
+
+	private static int storeOp(Type type) {
+		return type == Type.String ? ASTORE : ISTORE;
+	}
+
+	private static String descriptor(Type type) {
+		switch (type) {
+			case Integer:
+				return "I";
+			case Boolean:
+				return "Z";
+			default:
+				return "L" + CHAR_SEQUENCE + ";";
+		}
+	}
+
+	private static String descriptor(ReturnType retType) {
+		if (retType == ReturnType.Void) {
+			return "V";
+		}
+		return descriptor(Type.valueOf(retType.name()));
+	}
+}
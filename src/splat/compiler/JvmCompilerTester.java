@@ -0,0 +1,153 @@
+package splat.compiler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import splat.ExecutionMode;
+import splat.Splat;
+import splat.SplatException;
+import splat.TestRunner;
+import splat.executor.ExecutionException;
+import splat.parser.elements.ProgramAST;
+
+/**
+ * Checks the JVM backend against the limits of a class file, on programs
+ * too big to keep in the tests directory.  They are generated into a
+ * directory of their own: _goodjvm programs must print the same in JVM
+ * mode as in the interpreter, and _badjvm programs must fail to compile
+ * with the error in their .err file.
+ */
+public class JvmCompilerTester {
+
+	private TestRunner runner;
+
+	public static void main(String[] args) throws IOException {
+
+		JvmCompilerTester tester = new JvmCompilerTester(TestRunner.fromArgs(args));
+		tester.runTests();
+	}
+
+	public JvmCompilerTester(TestRunner runner) {
+		this.runner = runner;
+	}
+
+	public void runTests() throws IOException {
+
+		File dir = Files.createTempDirectory("splat-jvm").toFile();
+		try {
+			// Each function takes five constants: its name, the method
+			// reference and name-and-type it is called with, and the text
+			// and String of its missing return error, plus one for the line
+			// of its call past line 32767, so 10000 fit and 30000 are too
+			// many
+			write(dir, "jc_01_goodjvm.splat", manyFunctions(10000));
+			write(dir, "jc_02_badjvm.splat", manyFunctions(30000));
+			write(dir, "jc_02_badjvm.err", "Program too large for the JVM backend Error at line 1, column 1");
+
+			// A constant is at most 65535 bytes of modified UTF-8
+			write(dir, "jc_03_badjvm.splat", longLiteral(70000));
+			write(dir, "jc_03_badjvm.err", "String literal too long to compile Error at line 3, column 8");
+
+			runner.runSuite("JVM COMPILER", dir, new TestRunner.Test() {
+				public TestRunner.Outcome run(File testFile, PrintStream details) throws Exception {
+					return runTest(testFile, details);
+				}
+			}, "_goodjvm.splat", "_badjvm.splat");
+
+		} finally {
+			for (File file : dir.listFiles()) {
+				file.delete();
+			}
+			dir.delete();
+		}
+	}
+
+	private TestRunner.Outcome runTest(File testFile, PrintStream details) throws IOException {
+
+		boolean expectError = testFile.getName().endsWith("_badjvm.splat");
+
+		try {
+			String output = run(testFile, ExecutionMode.JVM);
+
+			if (expectError) {
+				return TestRunner.Outcome.failed("program should have been too large");
+			}
+			String expected = run(testFile, ExecutionMode.INTERPRETER);
+			if (!expected.equals(output)) {
+				details.println("Interpreter:\n" + expected + "\nJVM:\n" + output);
+				return TestRunner.Outcome.failed("output differs from the interpreter");
+			}
+			return TestRunner.Outcome.passed("compiled and ran");
+
+		} catch (ExecutionException ex) {
+
+			if (!expectError) {
+				details.println(ex);
+				return TestRunner.Outcome.failed("program should have compiled");
+			}
+			String errName = testFile.getName().replaceAll("\\.splat$", ".err");
+			File errFile = new File(testFile.getParentFile(), errName);
+			String expectedError = new String(Files.readAllBytes(errFile.toPath()),
+					StandardCharsets.UTF_8).trim();
+			if (!expectedError.equals(ex.toString())) {
+				details.println(ex);
+				return TestRunner.Outcome.failed("error does not match " + errName);
+			}
+			return TestRunner.Outcome.passed("too large to compile");
+
+		} catch (SplatException ex) {
+			details.println(ex);
+			return TestRunner.Outcome.failed("program did not compile");
+		}
+	}
+
+	private static String run(File testFile, ExecutionMode mode) throws SplatException, IOException {
+		ByteArrayOutputStream captured = new ByteArrayOutputStream();
+		Splat splat = new Splat(testFile, mode);
+		ProgramAST progAST = splat.compile();
+		splat.execute(progAST, new PrintStream(captured, true, "UTF-8"));
+		return new String(captured.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+	private static void write(File dir, String name, String text) throws IOException {
+		Files.write(new File(dir, name).toPath(), text.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/*
+	 * count small functions, each calling the next in chains of 100, so
+	 * the program body only makes count / 100 calls.
+	 */
+	private static String manyFunctions(int count) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("program\n\ttotal : Integer;\n\n");
+		for (int i = 0; i < count; i++) {
+			sb.append("\tf").append(i).append("(x : Integer) : Integer is\n\tbegin\n");
+			if (i % 100 != 99 && i + 1 < count) {
+				sb.append("\t\treturn f").append(i + 1).append("(((x * 3) % 1000));\n");
+			} else {
+				sb.append("\t\treturn (x + ").append(i).append(");\n");
+			}
+			sb.append("\tend;\n\n");
+		}
+		sb.append("begin\n");
+		for (int i = 0; i < count; i += 100) {
+			sb.append("\ttotal := f").append(i).append("(total);\n");
+		}
+		sb.append("\tprint total;\n\tprint_line;\nend;\n");
+		return sb.toString();
+	}
+
+	private static String longLiteral(int length) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("program\nbegin\n\tprint \"");
+		for (int i = 0; i < length; i++) {
+			sb.append('x');
+		}
+		sb.append("\";\nend;\n");
+		return sb.toString();
+	}
+}
@@ -0,0 +1,62 @@
+package splat.compiler;
+
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+
+import splat.executor.ExecutionException;
+import splat.parser.elements.ProgramAST;
+
+/**
+ * Runs a program by compiling it to a JVM class and calling into it, so
+ * that the program's loops and calls are JIT compiled like any Java code.
+ */
+public class JvmExecutor {
+
+	private static final String CLASS_NAME = "SplatProgram";
+
+	private ProgramAST progAST;
+	private PrintStream out;
+
+	public JvmExecutor(ProgramAST progAST) {
+		this(progAST, System.out);
+	}
+
+	public JvmExecutor(ProgramAST progAST, PrintStream out) {
+		this.progAST = progAST;
+		this.out = out;
+	}
+
+	public void runProgram() throws ExecutionException {
+
+		JvmCompiler compiler = new JvmCompiler(progAST, CLASS_NAME);
+		byte[] classBytes = compiler.compile();
+
+		ProgramClassLoader loader = new ProgramClassLoader(JvmExecutor.class.getClassLoader());
+		Class<?> program = loader.define(CLASS_NAME, classBytes);
+
+		try {
+			program.getField(JvmCompiler.OUT_FIELD).set(null, out);
+			program.getField(JvmCompiler.LOCATIONS_FIELD).set(null, compiler.getLocations());
+			program.getMethod(JvmCompiler.MAIN_METHOD).invoke(null);
+
+		} catch (InvocationTargetException ex) {
+			// Runtime errors are thrown by the compiled code as is
+			Throwable cause = ex.getCause();
+			if (cause instanceof ExecutionException) {
+				throw (ExecutionException) cause;
+			} else if (cause instanceof StackOverflowError) {
+				throw new ExecutionException("Stack overflow, recursion too deep", progAST);
+			} else if (cause instanceof Error) {
+				// Such as running out of memory, which the caller reports
+				throw (Error) cause;
+			}
+			throw new IllegalStateException("Compiled program failed", cause);
+
+		} catch (ReflectiveOperationException ex) {
+			throw new IllegalStateException("Could not run compiled program", ex);
+
+		} finally {
+			out.flush();
+		}
+	}
+}
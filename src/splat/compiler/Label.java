@@ -0,0 +1,16 @@
+package splat.compiler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A branch target in the code of a method.  Branches to a label that has
+ * not been placed yet are patched once it is.
+ */
+public class Label {
+
+	int position = -1;
+
+	// Each pending branch, as the offset of its opcode
+	List<Integer> branches = new ArrayList<Integer>();
+}
@@ -0,0 +1,16 @@
+package splat.compiler;
+
+/**
+ * Loads the class compiled from a SPLAT program.  Each program gets its own
+ * loader, so the class can be unloaded once the program is done with.
+ */
+public class ProgramClassLoader extends ClassLoader {
+
+	public ProgramClassLoader(ClassLoader parent) {
+		super(parent);
+	}
+
+	public Class<?> define(String name, byte[] classBytes) {
+		return defineClass(name, classBytes, 0, classBytes.length);
+	}
+}
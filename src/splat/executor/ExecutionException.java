@@ -0,0 +1,31 @@
+package splat.executor;
+
+import splat.SplatException;
+import splat.parser.elements.ASTElement;
+
+public class ExecutionException extends SplatException {
+
+	public ExecutionException(String msg, ASTElement elem) {
+		super(msg, elem.getOffset(), null);
+	}
+
+	public ExecutionException(String msg, int offset) {
+		super(msg, offset, null);
+	}
+
+	/**
+	 * Code compiled to the JVM can't tell where a function was called from,
+	 * so a function that ends without returning a value throws its error
+	 * with no position (offset -1), and each call it passes through calls
+	 * this on the way out.
+	 *
+	 * @return this error if it has a position already, otherwise the same
+	 * 			error at the given position
+	 */
+	public ExecutionException atCall(int offset) {
+		if (getOffset() >= 0) {
+			return this;
+		}
+		return new ExecutionException(getMessage(), offset);
+	}
+}
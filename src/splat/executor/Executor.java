@@ -0,0 +1,59 @@
+package splat.executor;
+
+import java.io.PrintStream;
+import java.util.List;
+
+import splat.parser.elements.Declaration;
+import splat.parser.elements.ProgramAST;
+import splat.parser.elements.Statement;
+import splat.parser.elements.Type;
+import splat.parser.elements.VariableDecl;
+
+/**
+ * Runs a parsed program by walking its AST.  Before anything runs, every
+ * variable reference is resolved to a frame slot, so variables are read
+ * and written by array index rather than looked up by name.
+ */
+public class Executor {
+
+	private ProgramAST progAST;
+	private PrintStream out;
+
+	public Executor(ProgramAST progAST) {
+		this(progAST, System.out);
+	}
+
+	public Executor(ProgramAST progAST, PrintStream out) {
+		this.progAST = progAST;
+		this.out = out;
+	}
+
+	public void runProgram() throws ExecutionException {
+
+		Scope scope = progAST.resolveSlots();
+		List<Statement> stmts = progAST.getStmts();
+
+		// The main program body runs with the globals as its own slots.
+		// Integer and Boolean variables start out as 0 / false already
+		Frame frame = new Frame(scope.getGlobalCount(), out);
+		for (Declaration decl : progAST.getDecls()) {
+			if (decl instanceof VariableDecl) {
+				VariableDecl var = (VariableDecl) decl;
+				if (var.getType() == Type.String) {
+					frame.setGlobalObject(var.slot, "");
+				}
+			}
+		}
+		try {
+			for (Statement stmt : stmts) {
+				stmt.execute(frame);
+			}
+		} catch (ReturnFromCall ex) {
+			// A return in the program body just ends the program
+		} catch (StackOverflowError ex) {
+			throw new ExecutionException("Stack overflow, recursion too deep", progAST);
+		} finally {
+			out.flush();
+		}
+	}
+}
@@ -0,0 +1,139 @@
+package splat.executor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import splat.ExecutionMode;
+import splat.Splat;
+import splat.SplatException;
+import splat.TestRunner;
+import splat.parser.elements.ProgramAST;
+
+public class ExecutorTester {
+
+	private ExecutionMode mode;
+	private TestRunner runner;
+	private boolean verbose;
+
+	public static void main(String[] args) {
+
+		// Optionally pick the execution mode, e.g. "JVM"
+		ExecutionMode mode = ExecutionMode.INTERPRETER;
+		if (args.length > 0) {
+			mode = ExecutionMode.valueOf(args[0].toUpperCase());
+		}
+
+		ExecutorTester tester = new ExecutorTester(true, mode);
+		tester.runTests();
+	}
+
+	public ExecutorTester(boolean seeResults) {
+		this(seeResults, ExecutionMode.INTERPRETER);
+	}
+
+	public ExecutorTester(boolean seeResults, ExecutionMode mode) {
+		this(seeResults, mode, new TestRunner());
+	}
+
+	public ExecutorTester(boolean seeResults, ExecutionMode mode, TestRunner runner) {
+		this.mode = mode;
+		this.runner = runner;
+		verbose = seeResults;
+	}
+
+	public void runTests() {
+		runner.runSuite("EXECUTOR", new TestRunner.Test() {
+			public TestRunner.Outcome run(File testFile, PrintStream details) throws IOException {
+				return runTest(testFile, details);
+			}
+		}, "_badexecution.splat", "_goodexecution.splat");
+	}
+
+	private TestRunner.Outcome runTest(File testFile, PrintStream details) throws IOException {
+
+		boolean expectExecError = testFile.getName().endsWith("_badexecution.splat");
+
+		// Expected program output, if the test comes with one
+		String outName = testFile.getName().replaceAll("\\.splat$", ".out");
+		File outFile = new File(testFile.getParentFile(), outName);
+		String expectedOutput = null;
+		if (outFile.exists()) {
+			expectedOutput = new String(Files.readAllBytes(outFile.toPath()),
+					StandardCharsets.UTF_8).replace("\r\n", "\n");
+		}
+
+		// Expected error message and position, if the test comes with one
+		String errName = testFile.getName().replaceAll("\\.splat$", ".err");
+		File errFile = new File(testFile.getParentFile(), errName);
+		String expectedError = null;
+		if (errFile.exists()) {
+			expectedError = new String(Files.readAllBytes(errFile.toPath()),
+					StandardCharsets.UTF_8).trim();
+		}
+
+		// The program prints to a buffer of its own, as other tests run at
+		// the same time
+		ByteArrayOutputStream captured = new ByteArrayOutputStream();
+
+		try {
+
+			Splat splat = new Splat(testFile, mode);
+			ProgramAST progAST = splat.compile();
+			splat.execute(progAST, new PrintStream(captured, true, "UTF-8"));
+
+			String output = new String(captured.toByteArray(), StandardCharsets.UTF_8)
+					.replace("\r\n", "\n");
+
+			// If we expected an error, but an exception wasn't thrown...fail
+			if (expectExecError) {
+				return TestRunner.Outcome.failed("execution error should have been detected");
+
+			// Ran fine, but printed the wrong thing...fail
+			} else if (expectedOutput != null && !expectedOutput.equals(output)) {
+				details.println(output);
+				return TestRunner.Outcome.failed("output does not match " + outName);
+
+			} else {
+				if (verbose) {
+					details.println(output);
+				}
+				return TestRunner.Outcome.passed("execution successful");
+			}
+
+		} catch (ExecutionException ex) {
+
+			// The expected error, but not where it should be...fail
+			if (expectExecError && expectedError != null
+					&& !expectedError.equals(ex.toString())) {
+				details.println(ex);
+				details.println();
+				return TestRunner.Outcome.failed("error does not match " + errName);
+
+			// If an execution error is what was expected...success
+			} else if (expectExecError) {
+				if (verbose) {
+					details.println(ex);
+					details.println();
+				}
+				return TestRunner.Outcome.passed("execution error caught");
+
+			// If an exception was thrown, but it shouldn't have been...fail
+			} else {
+				details.println(ex);
+				details.println();
+				return TestRunner.Outcome.failed("execution should have been successful");
+			}
+
+		} catch (SplatException ex) {
+
+			// Execution tests should all lex, parse and pass analysis
+			details.println(ex);
+			details.println();
+			return TestRunner.Outcome.failed("program did not compile");
+		}
+	}
+}
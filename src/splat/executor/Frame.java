@@ -0,0 +1,119 @@
+package splat.executor;
+
+import java.io.PrintStream;
+
+/**
+ * The variables of one function activation, plus what every statement
+ * needs to reach while it runs.  Variables live in arrays, indexed by the
+ * slot numbers handed out when the program was resolved, so reading or
+ * writing one never involves a map lookup.
+ * 
+ * Integer and Boolean variables (the latter as 1 / 0) are kept unboxed in
+ * an int array, and String variables, as a String or a Rope, in an Object
+ * array, so a slot has room in both and its type says which one it uses.
+ * Integer and Boolean code never allocates anything to hold its values.
+ * 
+ * For the main program body the local slots and the global slots are the
+ * same arrays.
+ */
+public class Frame {
+
+	private int[] ints;
+	private Object[] objects;
+	private int[] globalInts;
+	private Object[] globalObjects;
+	private PrintStream out;
+
+	// What the return statement that ended this frame's call returned
+	private int returnInt;
+	private Object returnObject;
+
+	/**
+	 * Makes the frame of the main program body, with the given number of
+	 * global slots.
+	 */
+	public Frame(int size, PrintStream out) {
+		this.ints = new int[size];
+		this.objects = new Object[size];
+		this.globalInts = ints;
+		this.globalObjects = objects;
+		this.out = out;
+	}
+
+	private Frame(int size, Frame caller) {
+		this.ints = new int[size];
+		this.objects = new Object[size];
+		this.globalInts = caller.globalInts;
+		this.globalObjects = caller.globalObjects;
+		this.out = caller.out;
+	}
+
+	/**
+	 * @return a frame for a function call made from this frame, with the
+	 * 			given number of parameter and local variable slots, all
+	 * 			0, false or null
+	 */
+	public Frame newCallFrame(int size) {
+		return new Frame(size, this);
+	}
+
+	public int getInt(int slot) {
+		return ints[slot];
+	}
+
+	public void setInt(int slot, int value) {
+		ints[slot] = value;
+	}
+
+	public Object getObject(int slot) {
+		return objects[slot];
+	}
+
+	public void setObject(int slot, Object value) {
+		objects[slot] = value;
+	}
+
+	public int getGlobalInt(int slot) {
+		return globalInts[slot];
+	}
+
+	public void setGlobalInt(int slot, int value) {
+		globalInts[slot] = value;
+	}
+
+	public Object getGlobalObject(int slot) {
+		return globalObjects[slot];
+	}
+
+	public void setGlobalObject(int slot, Object value) {
+		globalObjects[slot] = value;
+	}
+
+	/**
+	 * @return the Integer, or the Boolean as 1 / 0, returned by the call
+	 * 			this frame was made for
+	 */
+	public int getReturnInt() {
+		return returnInt;
+	}
+
+	public void setReturnInt(int value) {
+		returnInt = value;
+	}
+
+	/**
+	 * @return the String or Rope returned by the call this frame was made
+	 * 			for
+	 */
+	public Object getReturnObject() {
+		return returnObject;
+	}
+
+	public void setReturnObject(Object value) {
+		returnObject = value;
+	}
+
+	public PrintStream getOut() {
+		return out;
+	}
+}
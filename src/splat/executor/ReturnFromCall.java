@@ -0,0 +1,19 @@
+package splat.executor;
+
+/**
+ * Thrown by a return statement to unwind out of the function body that is
+ * currently executing.  This is ordinary control flow, so no stack trace
+ * is ever filled in.
+ * 
+ * The returned value, if there is one, is left in the frame of the call
+ * instead of being carried here, so nothing needs boxing and every return
+ * throws the same instance.
+ */
+public class ReturnFromCall extends Exception {
+
+	public static final ReturnFromCall INSTANCE = new ReturnFromCall();
+
+	private ReturnFromCall() {
+		super(null, null, false, false);
+	}
+}
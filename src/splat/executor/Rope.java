@@ -0,0 +1,100 @@
+package splat.executor;
+
+/**
+ * A String value built by +, kept as the first length characters of a
+ * buffer that may be shared with other Ropes.  Appending to the Rope that
+ * ends where the buffer does just extends the buffer, so building a String
+ * a piece at a time, as in s := (s + "x"), takes time in proportion to
+ * its final length rather than its square.  Appending to any other Rope
+ * copies its characters to a buffer of its own first.
+ *
+ * Characters are only ever added to the end of a buffer, past the length
+ * of every Rope made from it, so a Rope never changes once made.  A Rope
+ * is turned into a String when it is printed or compared, and that String
+ * is kept for next time.
+ *
+ * String values at run time are CharSequences, either a String or a Rope.
+ * A Rope is only used by the one program run, so it is not thread safe.
+ */
+public final class Rope implements CharSequence {
+
+	// Shorter results are made as plain Strings, which is cheaper than a
+	// buffer when there is nothing to append to later
+	private static final int MIN_LENGTH = 32;
+
+	private final StringBuilder buffer;
+	private final int length;
+
+	// This Rope as a String, made the first time it is needed
+	private String flat;
+
+	private Rope(StringBuilder buffer) {
+		this.buffer = buffer;
+		this.length = buffer.length();
+	}
+
+	/**
+	 * SPLAT's + on Strings.
+	 */
+	public static CharSequence concat(CharSequence left, CharSequence right) {
+		if (right.length() == 0) {
+			return left;
+		}
+		if (left instanceof Rope) {
+			return ((Rope) left).append(right);
+		}
+		if (left.length() == 0) {
+			return right;
+		}
+
+		int length = left.length() + right.length();
+		if (length < MIN_LENGTH) {
+			return left.toString().concat(right.toString());
+		}
+		return new Rope(new StringBuilder(length * 2).append(left).append(right));
+	}
+
+	private Rope append(CharSequence right) {
+		StringBuilder target = buffer;
+		if (buffer.length() != length) {
+			// Someone else has appended to the buffer already
+			target = new StringBuilder((length + right.length()) * 2).append(buffer, 0, length);
+		}
+		if (right instanceof Rope) {
+			Rope rope = (Rope) right;
+			target.append(rope.buffer, 0, rope.length);
+		} else {
+			target.append(right);
+		}
+		return new Rope(target);
+	}
+
+	/**
+	 * SPLAT's == on Strings.
+	 */
+	public static boolean equals(CharSequence left, CharSequence right) {
+		return left.length() == right.length() && left.toString().equals(right.toString());
+	}
+
+	public int length() {
+		return length;
+	}
+
+	public char charAt(int index) {
+		if (index >= length) {
+			throw new IndexOutOfBoundsException("index " + index + ", length " + length);
+		}
+		return buffer.charAt(index);
+	}
+
+	public CharSequence subSequence(int start, int end) {
+		return toString().substring(start, end);
+	}
+
+	public String toString() {
+		if (flat == null) {
+			flat = buffer.substring(0, length);
+		}
+		return flat;
+	}
+}
@@ -0,0 +1,97 @@
+package splat.executor;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import splat.parser.elements.Type;
+
+/**
+ * Hands out frame slots to variables and parameters before the program
+ * runs, and tells each variable reference which slot it refers to.  The
+ * program's variables get global slots; a function's parameters and local
+ * variables get slots in that function's own frame, numbered from 0 with
+ * the parameters first.
+ */
+public class Scope {
+
+	private Map<String, Integer> globalSlots;
+	private Map<String, Type> globalTypes;
+
+	// Both null while resolving the main program body
+	private Map<String, Integer> localSlots;
+	private Map<String, Type> localTypes;
+
+	public Scope() {
+		this.globalSlots = new HashMap<String, Integer>();
+		this.globalTypes = new HashMap<String, Type>();
+	}
+
+	private Scope(Scope globalScope) {
+		this.globalSlots = globalScope.globalSlots;
+		this.globalTypes = globalScope.globalTypes;
+		this.localSlots = new HashMap<String, Integer>();
+		this.localTypes = new HashMap<String, Type>();
+	}
+
+	/**
+	 * @return a fresh scope for resolving one function's body, which can
+	 * 			see the program's variables as well as its own
+	 */
+	public Scope enterFunction() {
+		return new Scope(this);
+	}
+
+	public int declareGlobal(String label, Type type) {
+		return declare(globalSlots, globalTypes, label, type);
+	}
+
+	public int declareLocal(String label, Type type) {
+		return declare(localSlots, localTypes, label, type);
+	}
+
+	private static int declare(Map<String, Integer> slots, Map<String, Type> types,
+							   String label, Type type) {
+		int slot = slots.size();
+		slots.put(label, slot);
+		types.put(label, type);
+		return slot;
+	}
+
+	/**
+	 * @return true iff the label is one of the current function's
+	 * 			parameters or local variables
+	 */
+	public boolean isLocal(String label) {
+		return localSlots != null && localSlots.containsKey(label);
+	}
+
+	public boolean isGlobal(String label) {
+		return globalSlots.containsKey(label);
+	}
+
+	/**
+	 * @return the slot of a variable, in the local frame if isLocal() and
+	 * 			in the globals otherwise
+	 */
+	public int getSlot(String label) {
+		if (isLocal(label)) {
+			return localSlots.get(label);
+		}
+		return globalSlots.get(label);
+	}
+
+	public Type getType(String label) {
+		if (isLocal(label)) {
+			return localTypes.get(label);
+		}
+		return globalTypes.get(label);
+	}
+
+	public int getLocalCount() {
+		return localSlots.size();
+	}
+
+	public int getGlobalCount() {
+		return globalSlots.size();
+	}
+}
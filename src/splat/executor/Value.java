@@ -0,0 +1,87 @@
+package splat.executor;
+
+import splat.parser.elements.Type;
+
+/**
+ * A runtime value of one of the three SPLAT types.  Values are immutable,
+ * so the same object can sit in any number of variables at once.
+ */
+public class Value {
+
+	private static final Value TRUE = new Value(Type.Boolean, 1, null);
+	private static final Value FALSE = new Value(Type.Boolean, 0, null);
+
+	private Type type;
+	private int intValue;		// Integer value, or 1 / 0 for a Boolean
+	private String stringValue;
+
+	private Value(Type type, int intValue, String stringValue) {
+		this.type = type;
+		this.intValue = intValue;
+		this.stringValue = stringValue;
+	}
+
+	public static Value of(int value) {
+		return new Value(Type.Integer, value, null);
+	}
+
+	public static Value of(boolean value) {
+		return value ? TRUE : FALSE;
+	}
+
+	public static Value of(String value) {
+		return new Value(Type.String, 0, value);
+	}
+
+	/**
+	 * @return the value a variable of the given type holds before it is
+	 * 			first assigned
+	 */
+	public static Value defaultFor(Type type) {
+		switch (type) {
+			case Integer:
+				return of(0);
+			case Boolean:
+				return FALSE;
+			default:
+				return of("");
+		}
+	}
+
+	public Type getType() {
+		return type;
+	}
+
+	public int getInt() {
+		return intValue;
+	}
+
+	public boolean getBoolean() {
+		return intValue != 0;
+	}
+
+	public String getString() {
+		return stringValue;
+	}
+
+	/**
+	 * SPLAT's == operator.  Both values must be of the same type.
+	 */
+	public boolean sameAs(Value other) {
+		if (type == Type.String) {
+			return stringValue.equals(other.stringValue);
+		}
+		return intValue == other.intValue;
+	}
+
+	public String toString() {
+		switch (type) {
+			case Integer:
+				return Integer.toString(intValue);
+			case Boolean:
+				return getBoolean() ? "true" : "false";
+			default:
+				return stringValue;
+		}
+	}
+}
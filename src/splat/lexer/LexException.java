@@ -4,8 +4,8 @@ import splat.SplatException;
 
 public class LexException extends SplatException {
 
-	public LexException(String msg, int line, int column) {
-		super(msg, line, column);
+	public LexException(String msg, int offset, LineMap lines) {
+		super(msg, offset, lines);
 	}
 	
 }
@@ -1,223 +1,310 @@
 package splat.lexer;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public class Lexer {
 
-	private File progFile;
+	// Files at least this big are memory mapped instead of read
+	private static final long MAP_THRESHOLD = 1 << 20;
 
-	public Lexer(File progFile) {
-		this.progFile = progFile;
+	// Character categories, indexed by ASCII code
+	private static final byte INVALID = 0;
+	private static final byte SPACE = 1;
+	private static final byte NEWLINE = 2;
+	private static final byte LETTER = 3;	// a-z, A-Z, _
+	private static final byte DIGIT = 4;
+	private static final byte QUOTE = 5;
+	private static final byte SYMBOL = 6;	// operators and punctuation
+
+	private static final byte[] CATEGORIES = new byte[128];
+
+	static {
+		CATEGORIES[' '] = SPACE;
+		CATEGORIES['\t'] = SPACE;
+		CATEGORIES['\r'] = SPACE;
+		CATEGORIES['\n'] = NEWLINE;
+		for (char c = 'a'; c <= 'z'; c++) {
+			CATEGORIES[c] = LETTER;
+		}
+		for (char c = 'A'; c <= 'Z'; c++) {
+			CATEGORIES[c] = LETTER;
+		}
+		CATEGORIES['_'] = LETTER;
+		for (char c = '0'; c <= '9'; c++) {
+			CATEGORIES[c] = DIGIT;
+		}
+		CATEGORIES['\"'] = QUOTE;
+		for (char c : "<>=:+-*/%{},;()".toCharArray()) {
+			CATEGORIES[c] = SYMBOL;
+		}
+	}
+
+	private char[] source;
+	private int length;
+	private int index;
+
+	private LineMap lines;
+
+	private SymbolTable symbols;
+
+	/**
+	 * Lexes a program file, decoded as UTF-8.  Large files are memory
+	 * mapped, smaller ones are read in a single bulk read.
+	 *
+	 * @throws LexException if the file is not valid UTF-8
+	 */
+	public Lexer(File progFile) throws IOException, LexException {
+		this(decode(readSource(progFile)));
 	}
 
-	public List<Token> tokenize() throws LexException, FileNotFoundException, IOException {
+	/**
+	 * Lexes UTF-8 (or plain ASCII) encoded program text that is already in
+	 * memory, from the buffer's position to its limit.
+	 *
+	 * @throws LexException if the bytes are not valid UTF-8
+	 */
+	public Lexer(ByteBuffer progBytes) throws LexException {
+		this(decode(progBytes));
+	}
+
+	/**
+	 * Lexes program text that is already in memory.
+	 */
+	public Lexer(CharSequence progText) {
+		this(progText.toString().toCharArray());
+	}
+
+	private Lexer(char[] source) {
+		this(source, 0, source.length, new LineMap(source, source.length));
+	}
+
+	/**
+	 * Lexes only source[start .. end), a region of a larger program, for
+	 * re-lexing part of a program after an edit.  Tokens get their
+	 * offsets in the whole program, and lines is its map.  The array is
+	 * not copied, so it must not change while the lexer is in use.
+	 */
+	public Lexer(char[] source, int start, int end, LineMap lines) {
+		this.source = source;
+		this.length = end;
+		this.index = start;
+
+		this.lines = lines;
+
+		this.symbols = new SymbolTable();
+	}
+
+	/**
+	 * @return the map of the program's lines, which turns the offsets of
+	 * 			its tokens into lines and columns
+	 */
+	public LineMap getLineMap() {
+		return lines;
+	}
+
+	/**
+	 * Lexes the whole program at once.
+	 * 
+	 * @return every token of the program, in order
+	 * @throws LexException if the program contains a lexical error
+	 */
+	public List<Token> tokenize() throws LexException {
 		List<Token> list = new ArrayList<Token>();
 
-		BufferedReader reader = new BufferedReader(new FileReader(progFile));
-		int ch;
-		String value = "";
-		int line = 1;
-		int column = 1;
-		boolean isQuoteOpened = false;
-		do{
-			ch = reader.read();
-			column++;
-			int category = getTokenSeparatorCategory(ch);
-			if (category != 0 && !isQuoteOpened || (ch == '\"' && !isQuoteOpened)){
-//				System.out.println("value: " + value + " char: " + (char)ch);
-				if (ch == '\"'){
-					isQuoteOpened = true;
-					if (value.length() > 0){
-						int lastCh = value.charAt(value.length()-1);
-						int lastCategory = getTokenSeparatorCategory(lastCh);
-						if (lastCategory != 1){
-							Token token = new Token(value, line, column - 1 - value.length());
-							list.add(token);
-						}
-					}
-					value = "" + (char)ch;
-					continue;
+		Token token = nextToken();
+		while (token != null) {
+			list.add(token);
+			token = nextToken();
+		}
+
+		return list;
+	}
+
+	/**
+	 * Pulls the next token out of the program, scanning only as many
+	 * characters as needed to complete it.  Labels and keywords are
+	 * classified and interned through the symbol table, literal text is
+	 * sliced directly out of the source buffer.
+	 * 
+	 * @return the next token, or null once the end of the file is reached
+	 * @throws LexException if a lexical error is found along the way
+	 */
+	public Token nextToken() throws LexException {
+
+		// Skip whitespace.  Lines are only counted if a position is needed
+		while (index < length) {
+			byte category = categoryOf(source[index]);
+			if (category == SPACE || category == NEWLINE) {
+				index++;
+			} else {
+				break;
+			}
+		}
+
+		if (index == length) {
+			return null;
+		}
+
+		int start = index;
+		char ch = source[index++];
+
+		switch (categoryOf(ch)) {
+			case LETTER: // label or keyword
+				while (index < length && isLabelChar(source[index])) {
+					index++;
 				}
-				if (category == 1){ // Non-token separator
-					if (value.length() > 0){
-						if (value.equals("=")){ // must be :=
-							throw new LexException("Unexpected " + (char)ch, line, column - 1);
-						}
-						Token token = new Token(value, line, column - 1 - value.length());
-						list.add(token);
-						value = "";
-					}
+				int slot = symbols.lookup(source, start, index - start);
+				return new Token(symbols.getKind(slot), symbols.getText(slot), start);
 
-					if (ch == '\n') {
-						line++;
-						column = 1;
-					}
+			case DIGIT: // integer literal, which can't run into a label
+				while (index < length && categoryOf(source[index]) == DIGIT) {
+					index++;
 				}
-				else if(category == 2){ // bin operators, specific symbols
-					if (value.length() == 0){
-						value = value + (char)ch;
-					}
-					else {
-						int lastCh = value.charAt(value.length()-1);
-						int lastCateg = getTokenSeparatorCategory(lastCh);
-						if (lastCateg == 3 || lastCateg == 4){ // if last char is alphanumeric
-							Token token = new Token(value, line, column - 1 - value.length());
-							list.add(token);
-							value = "" + (char)ch;
-						} else if (lastCateg == 2) { // if last char is bin operator or specific symbol
-
-							if (isPossibleToBeToken(value + (char)ch)){
-								value = value + (char)ch;
-								Token token = new Token(value, line, column - 1 - value.length());
-								list.add(token);
-								value = "";
-							}
-							else{
-								Token token = new Token(value, line, column - 1 - value.length());
-								list.add(token);
-								value = "" + (char)ch;
-							}
-						}
-					}
+				if (index < length && categoryOf(source[index]) == LETTER) {
+					throw unexpected(source[index], index);
 				}
-				else if (category == 3){ // alphabet | _
-					if (value.length() > 0){
-						int lastCh = value.charAt(value.length()-1);
-						int lastCateg = getTokenSeparatorCategory(lastCh);
-						int firstCh = value.charAt(0);
-						int firstCateg = getTokenSeparatorCategory(firstCh);
-						if ( firstCateg == 4 ){  // ex: 123abc
-							throw new LexException("Unexpected " + (char)ch, line, column - 1);
-						}
-						else if(lastCateg == 2){ // ex: >abc
-							Token token = createToken(value, line, column, ch);
-							list.add(token);
-							value = "";
-						}
-					}
-					value = value + (char)ch;
+				return new Token(TokenKind.INT_LITERAL, new String(source, start, index - start),
+						start);
+
+			case QUOTE: // string literal, up to the closing quote
+				while (index < length && source[index] != '\"') {
+					index++;
+				}
+				if (index == length) {
+					throw new LexException("quotation mark not closed", start, lines);
 				}
-				else if (category == 4){ // digits
-					if (value.length() > 0){
-						int lastCh = value.charAt(value.length()-1);
-						int lastCateg = getTokenSeparatorCategory(lastCh);
-						if (lastCateg == 2){ // bin operator | specific symbol
-							Token token = createToken(value, line, column, ch);
-							list.add(token);
-							value = "";
-						} else  {
-							value = value + (char)ch;
-						}
+				index++;
+				return new Token(TokenKind.STRING_LITERAL, new String(source, start, index - start),
+						start);
+
+			case SYMBOL: // <= >= == := or a single character symbol
+				TokenKind kind = symbolKind(ch);
+				if (index < length && source[index] == '=') {
+					switch (ch) {
+						case '<': kind = TokenKind.LESS_EQUAL; break;
+						case '>': kind = TokenKind.GREATER_EQUAL; break;
+						case '=': kind = TokenKind.EQUAL; break;
+						case ':': kind = TokenKind.ASSIGN; break;
 					}
-					value = value + (char)ch;
 				}
-			} else if (isQuoteOpened) {
-				value = value + (char)ch;
-				if (ch == '\"'){
-					Token token = new Token(value, line, column - 1 - value.length());
-					list.add(token);
-					value = "";
-					isQuoteOpened = false;
-				} else if (ch == -1) {
-					throw new LexException("quotation mark not closed", line, column - 1);
+				if (kind == null) { // a lone =, must be == or :=
+					throw unexpected(ch, start);
 				}
-			} else {
-				throw new LexException("Unexpected " + (char)ch, line, column - 1);
+				index += kind.getText().length() - 1;
+				return new Token(kind, kind.getText(), start);
+
+			default:
+				throw unexpected(ch, start);
+		}
+	}
+
+	private static TokenKind symbolKind(char ch) {
+		switch (ch) {
+			case '(': return TokenKind.LEFT_PAREN;
+			case ')': return TokenKind.RIGHT_PAREN;
+			case '{': return TokenKind.LEFT_BRACE;
+			case '}': return TokenKind.RIGHT_BRACE;
+			case ':': return TokenKind.COLON;
+			case ';': return TokenKind.SEMICOLON;
+			case ',': return TokenKind.COMMA;
+			case '+': return TokenKind.PLUS;
+			case '-': return TokenKind.MINUS;
+			case '*': return TokenKind.TIMES;
+			case '/': return TokenKind.DIVIDE;
+			case '%': return TokenKind.MOD;
+			case '<': return TokenKind.LESS;
+			case '>': return TokenKind.GREATER;
+			default: return null;
+		}
+	}
+
+	private static ByteBuffer readSource(File progFile) throws IOException {
+		try (FileChannel channel = FileChannel.open(progFile.toPath(), StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE) {
+				throw new IOException("Program file too large: " + progFile);
+			}
+			if (size >= MAP_THRESHOLD) {
+				return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
 			}
-		} while (ch != -1);
 
-		return list;
+			ByteBuffer bytes = ByteBuffer.allocate((int) size);
+			while (bytes.hasRemaining() && channel.read(bytes) != -1) {
+				// keep reading until the buffer is full
+			}
+			bytes.flip();
+			return bytes;
+		}
 	}
 
-	public int getTokenSeparatorCategory(int ch){
-		int category = 0;
-		switch (ch){
-			case ' ':
-				category = 1;
-				break;
-			case '\n':
-				category = 1;
-				break;
-			case '\r':
-				category = 1;
-				break;
-			case '\t':
-				category = 1;
-				break;
-			case -1:
-				category = 1;
-				break;
-			case '<':
-				category = 2;
-				break;
-			case '>':
-				category = 2;
-				break;
-			case '=':
-				category = 2;
-				break;
-			case ':':
-				category = 2;
-				break;
-			case '+':
-				category = 2;
-				break;
-			case '-':
-				category = 2;
-				break;
-			case '*':
-				category = 2;
-				break;
-			case '/':
-				category = 2;
-				break;
-			case '%':
-				category = 2;
-				break;
-			case '{':
-				category = 2;
-				break;
-			case '}':
-				category = 2;
-				break;
-			case ',':
-				category = 2;
-				break;
-			case ';':
-				category = 2;
-				break;
-			case '(':
-				category = 2;
-				break;
-			case ')':
-				category = 2;
+	/*
+	 * Decodes UTF-8 bytes into the lexer's character buffer.  Since SPLAT
+	 * programs are almost always pure ASCII, bytes are copied straight
+	 * across until the first non-ASCII byte, and only the remainder (if
+	 * any) goes through the general UTF-8 decoder.  Malformed input is an
+	 * error at the position it starts at, rather than a replacement
+	 * character that a string literal would take as it is.
+	 */
+	private static char[] decode(ByteBuffer bytes) throws LexException {
+		int start = bytes.position();
+		int n = bytes.remaining();
+		char[] chars = new char[n];
+
+		int i = 0;
+		while (i < n) {
+			byte b = bytes.get(start + i);
+			if (b < 0) {
 				break;
+			}
+			chars[i] = (char) b;
+			i++;
 		}
-
-		if ((ch >= 'a' && ch <= 'z') || (ch >= 'A' && ch <= 'Z') || ch == '_'){
-			category = 3;
-		} else if (Character.isDigit(ch)) {
-			category =4;
+		if (i == n) {
+			return chars;
 		}
 
-		return category;
+		// UTF-8 never decodes to more chars than it has bytes, so the rest
+		// fits in what is left of the buffer
+		ByteBuffer rest = bytes.duplicate();
+		rest.position(start + i);
+		CharBuffer decoded = CharBuffer.wrap(chars);
+		decoded.position(i);
+		CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+				.onMalformedInput(CodingErrorAction.REPORT)
+				.onUnmappableCharacter(CodingErrorAction.REPORT);
+		CoderResult result = decoder.decode(rest, decoded, true);
+		if (!result.isError()) {
+			result = decoder.flush(decoded);
+		}
+		if (result.isError()) {
+			int at = decoded.position();
+			throw new LexException("Malformed UTF-8", at, new LineMap(chars, at));
+		}
+		return Arrays.copyOf(chars, decoded.position());
 	}
 
-	public boolean isPossibleToBeToken(String value){
-		if (value.equals("<=") || value.equals("==") || value.equals(">=") || value.equals(":=")){
-			return true;
-		}
-		return false;
+	private static byte categoryOf(char ch) {
+		return ch < 128 ? CATEGORIES[ch] : INVALID;
 	}
 
-	public Token createToken(String value, int line, int column, int ch) throws LexException{
-		if (value.equals("=")){ // must be :=
-			throw new LexException("Unexpected " + (char)ch, line, column - 1);
-		}
-		return new Token(value, line, column - 1 - value.length());
+	private static boolean isLabelChar(char ch) {
+		byte category = categoryOf(ch);
+		return category == LETTER || category == DIGIT;
+	}
 
+	private LexException unexpected(char ch, int at) {
+		return new LexException("Unexpected " + ch, at, lines);
 	}
 
 }
@@ -2,88 +2,57 @@ package splat.lexer;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.List;
 
-public class LexerTester {
+import splat.TestRunner;
 
-	private File testDir;
+public class LexerTester {
 
+	private TestRunner runner;
 	private boolean verbose;
-	private int testCount;
-	private int success;
-	private int failure;
 
 	public static void main(String[] args) {
 
-		LexerTester tester = new LexerTester(true);
+		LexerTester tester = new LexerTester(true, TestRunner.fromArgs(args));
 		tester.runTests();
 	}
 
 	public LexerTester(boolean seeResults) {
+		this(seeResults, new TestRunner());
+	}
+
+	public LexerTester(boolean seeResults, TestRunner runner) {
+		this.runner = runner;
 		verbose = seeResults;
-		testCount = 0;
-		success = 0;
-		failure = 0;
 	}
 
 	public void runTests() {
-
-		// First, we get the testing files
-
-		testDir = new File("tests");
-
-		System.out.print("Opening test directory...");
-
-		if (!testDir.exists() || !testDir.isDirectory()) {
-			System.out.println("error!");
-			System.out.println("Cannot find directory 'tests'.");
-			System.out.println("Please create one in your project folder, and add" + " the appropriate testing files.");
-
-			return;
-		}
-
-		File[] testFiles = testDir.listFiles();
-
-		System.out.println("success");
-
-		// Now, we run the tests
-
-		System.out.println("Running tests...");
-
-		for (File testFile : testFiles) {
-			if (testFile.getName().endsWith("_badlex.splat")
-			 || testFile.getName().endsWith("_goodlex.splat")) {
-				try {
-					runTest(testFile);
-				} catch (IOException e) {
-					// This really shouldn't happen if we've already entered
-					// into the test directory
-					e.printStackTrace();
-				}
+		runner.runSuite("LEXER", new TestRunner.Test() {
+			public TestRunner.Outcome run(File testFile, PrintStream details) throws IOException {
+				return runTest(testFile, details);
 			}
-		}
-
-		// Finally, we output the results
-
-		System.out.println("---------------------------");
-		System.out.println("FINAL LEXER TESTING RESULTS");
-		System.out.println("---------------------------");
-		System.out.println("Tests completed: " + testCount);
-		System.out.println("Tests succeeded: " + success);
-		System.out.println("Tests falied:    " + failure);
+		}, "_badlex.splat", "_goodlex.splat");
 	}
 
-	private void runTest(File testFile) throws IOException {
-
-		Lexer lexer = new Lexer(testFile);
+	private TestRunner.Outcome runTest(File testFile, PrintStream details) throws IOException {
 
 		boolean expectLexError = testFile.getName().endsWith("_badlex.splat");
+
+		// Expected tokens and their positions, if the test comes with them
+		String tokensName = testFile.getName().replaceAll("\\.splat$", ".tokens");
+		File tokensFile = new File(testFile.getParentFile(), tokensName);
+		String expectedTokens = null;
+		if (tokensFile.exists()) {
+			expectedTokens = new String(Files.readAllBytes(tokensFile.toPath()),
+					StandardCharsets.UTF_8).replace("\r\n", "\n");
+		}
 		
 		try {
 
-			testCount++;
-			System.out.print("Test Case " + testCount + ": " + testFile.getName() + "...");
-
+			Lexer lexer = new Lexer(testFile);
 			List<Token> tokens = lexer.tokenize();
 
 			// If we successfully get to here, no lex exceptions were thrown
@@ -91,52 +60,69 @@ public class LexerTester {
 			// If we expected an error, but an exception wasn't thrown...fail
 			if (expectLexError) {
 
-				failure++;
-				System.out.println("failed - lex error should have been detected");
-				
-				outputTokens(tokens);
+				outputTokens(tokens, details);
+				return TestRunner.Outcome.failed("lex error should have been detected");
 				
+			// Lexed fine, but into the wrong tokens...fail
+			} else if (expectedTokens != null && !expectedTokens.equals(describe(tokens, lexer.getLineMap()))) {
+
+				outputTokens(tokens, details);
+				return TestRunner.Outcome.failed("tokens do not match " + tokensName);
+
 			// No exceptions thrown with no lex errors in the file...success
 			} else {
 				
-				success++;
-				System.out.println("passed (lexing successful)");
-				
 				if (verbose) {
-					outputTokens(tokens);
+					outputTokens(tokens, details);
 				}
+				return TestRunner.Outcome.passed("lexing successful");
 			}
 
 		} catch (LexException ex) {
 
 			// If a lex error is what was expected...success
 			if (expectLexError) {
-				success++;
-				System.out.println("passed (lex error caught)");
 				if (verbose) {
-					System.out.println(ex.getMessage());
-					System.out.println();
+					details.println(ex.getMessage());
+					details.println();
 				}
+				return TestRunner.Outcome.passed("lex error caught");
 
 			// If an exception was thrown, but it shouldn't have been...fail
 			} else {
-				failure++;
-				System.out.println("failed - lexing should have been successful");
-				System.out.println(ex.getMessage());
-				System.out.println();
+				details.println(ex.getMessage());
+				details.println();
+				return TestRunner.Outcome.failed("lexing should have been successful");
 			}
 
 		}
 	}
 
+	/*
+	 * @return each token, with its position, one per line
+	 */
+	private static String describe(List<Token> tokens, LineMap lines) {
+		StringBuilder out = new StringBuilder();
+		for (Token token : tokens) {
+			out.append("Token: ").append(token.getValue()).append(", at ")
+					.append(lines.lineOf(token.getOffset())).append(':')
+					.append(lines.columnOf(token.getOffset())).append('\n');
+		}
+		return out.toString();
+	}
+
 	public void outputTokens(List<Token> tokens) {
-		System.out.println("Total: " + tokens.size() +" , TOKENS:");
+		outputTokens(tokens, System.out);
+	}
+
+	public void outputTokens(List<Token> tokens, PrintStream out) {
 		if (tokens == null) {
-			System.out.println("Token list should not be null");
+			out.println("Token list should not be null");
 			return;
 		}
+		out.println("Total: " + tokens.size() +" , TOKENS:");
 		for (Token token : tokens) {
-			System.out.println(token);
+			out.println(token);
 		}
 	}
 }
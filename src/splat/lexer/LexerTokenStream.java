@@ -0,0 +1,102 @@
+package splat.lexer;
+
+/**
+ * TokenStream that pulls tokens from a Lexer on demand.  Only the tokens
+ * between the cursor and the furthest peek are held in a small ring buffer,
+ * so a token can be garbage collected as soon as the parser consumes it.
+ * 
+ * While a mark is set, consumed tokens are kept (and the buffer grows as
+ * needed) until the next call to mark(), so that reset() can rewind to it.
+ */
+public class LexerTokenStream implements TokenStream {
+
+	// Enough for the parser's peekNext() / peekTwoAhead() lookahead
+	private static final int INITIAL_CAPACITY = 2;
+
+	private Lexer lexer;
+
+	private Token[] ring;
+	private int head;	// ring index of the oldest buffered token
+	private int size;	// number of buffered tokens starting at head
+	private int pos;	// cursor offset from head (only non-zero when marked)
+	private boolean marked;
+
+	public LexerTokenStream(Lexer lexer) {
+		this.lexer = lexer;
+		this.ring = new Token[INITIAL_CAPACITY];
+		this.head = 0;
+		this.size = 0;
+		this.pos = 0;
+		this.marked = false;
+	}
+
+	public Token peek(int k) throws LexException {
+		if (!fill(pos + k + 1)) {
+			throw new IndexOutOfBoundsException("No token " + k
+					+ " positions ahead, end of file reached");
+		}
+		return ring[(head + pos + k) % ring.length];
+	}
+
+	public Token next() throws LexException {
+		Token tok = peek(0);
+		if (marked) {
+			pos++;
+		} else {
+			ring[head] = null;
+			head = (head + 1) % ring.length;
+			size--;
+		}
+		return tok;
+	}
+
+	public boolean hasNext() throws LexException {
+		return fill(pos + 1);
+	}
+
+	public void mark() {
+		// Everything before the cursor can no longer be reached
+		while (pos > 0) {
+			ring[head] = null;
+			head = (head + 1) % ring.length;
+			size--;
+			pos--;
+		}
+		marked = true;
+	}
+
+	public void reset() {
+		if (!marked) {
+			throw new IllegalStateException("reset() called without mark()");
+		}
+		pos = 0;
+	}
+
+	/*
+	 * Makes sure at least count tokens are buffered, pulling more from the
+	 * lexer if necessary.  Returns false if the file ends first.
+	 */
+	private boolean fill(int count) throws LexException {
+		while (size < count) {
+			Token tok = lexer.nextToken();
+			if (tok == null) {
+				return false;
+			}
+			if (size == ring.length) {
+				grow();
+			}
+			ring[(head + size) % ring.length] = tok;
+			size++;
+		}
+		return true;
+	}
+
+	private void grow() {
+		Token[] bigger = new Token[ring.length * 2];
+		for (int i = 0; i < size; i++) {
+			bigger[i] = ring[(head + i) % ring.length];
+		}
+		ring = bigger;
+		head = 0;
+	}
+}
@@ -0,0 +1,92 @@
+package splat.lexer;
+
+/**
+ * Turns an offset in a program's text into a line and a column.  Tokens
+ * and elements only keep their offset, and each program (the ProgramAST,
+ * and the Lexer and Parser while it is made) has one map, so the lexer
+ * never counts lines.  The lines are only found, in one pass over the
+ * text, the first time a position is asked for, which is mostly when an
+ * error is reported.  After that each position is a binary search.
+ */
+public class LineMap {
+
+	private char[] source;
+	private int length;
+
+	// Offset of the first character of each line, found on first use
+	private volatile int[] lineStarts;
+
+	/**
+	 * Maps source[0 .. length).  The array is not copied, so it must not
+	 * change while the map is in use.
+	 */
+	public LineMap(char[] source, int length) {
+		this.source = source;
+		this.length = length;
+	}
+
+	/**
+	 * Maps a text whose lines are known, such as one that was saved.
+	 */
+	public LineMap(int[] lineStarts) {
+		this.lineStarts = lineStarts;
+	}
+
+	/**
+	 * @return the line of the offset, counting from 1
+	 */
+	public int lineOf(int offset) {
+		return lineIndex(offset) + 1;
+	}
+
+	/**
+	 * @return the column of the offset, counting from 1
+	 */
+	public int columnOf(int offset) {
+		return offset - getLineStarts()[lineIndex(offset)] + 1;
+	}
+
+	/**
+	 * @return the offset of the first character of each line
+	 */
+	public int[] getLineStarts() {
+		int[] starts = lineStarts;
+		if (starts == null) {
+			starts = findLineStarts(source, length);
+			lineStarts = starts;
+		}
+		return starts;
+	}
+
+	private int lineIndex(int offset) {
+		int[] starts = getLineStarts();
+		int low = 0;
+		int high = starts.length - 1;
+		while (low < high) {
+			int mid = (low + high + 1) >>> 1;
+			if (starts[mid] <= offset) {
+				low = mid;
+			} else {
+				high = mid - 1;
+			}
+		}
+		return low;
+	}
+
+	private static int[] findLineStarts(char[] source, int length) {
+		int count = 1;
+		for (int i = 0; i < length; i++) {
+			if (source[i] == '\n') {
+				count++;
+			}
+		}
+		int[] starts = new int[count];
+		int line = 1;
+		for (int i = 0; i < length; i++) {
+			if (source[i] == '\n') {
+				starts[line++] = i + 1;
+			}
+		}
+		return starts;
+	}
+}
@@ -0,0 +1,49 @@
+package splat.lexer;
+
+import java.util.List;
+
+/**
+ * TokenStream over an already tokenized program.  The list itself is never
+ * modified, only the cursor index moves.
+ */
+public class ListTokenStream implements TokenStream {
+
+	private List<Token> tokens;
+	private int pos;
+	private int mark;
+
+	public ListTokenStream(List<Token> tokens) {
+		this.tokens = tokens;
+		this.pos = 0;
+		this.mark = -1;
+	}
+
+	public Token peek(int k) {
+		return tokens.get(pos + k);
+	}
+
+	public Token next() {
+		Token tok = tokens.get(pos);
+		pos++;
+		return tok;
+	}
+
+	public boolean hasNext() {
+		return pos < tokens.size();
+	}
+
+	public void mark() {
+		mark = pos;
+	}
+
+	public void reset() {
+		if (mark < 0) {
+			throw new IllegalStateException("reset() called without mark()");
+		}
+		pos = mark;
+	}
+
+	public int getPosition() {
+		return pos;
+	}
+}
@@ -0,0 +1,135 @@
+package splat.lexer;
+
+/**
+ * Interns the text of labels and keywords for one program, so that every
+ * occurrence of the same label shares a single String.  Keywords are
+ * entered up front with their own TokenKind, which lets the lexer
+ * classify a word with the same lookup that interns it.
+ * 
+ * Words are looked up straight from the lexer's character buffer, so no
+ * String is created for a word that has been seen before.
+ */
+public class SymbolTable {
+
+	// Holds just the keywords.  It is never changed after it is built, so
+	// the lexers of any number of threads can copy it at once
+	private static final SymbolTable KEYWORDS = new SymbolTable(TokenKind.values());
+
+	private String[] texts;
+	private TokenKind[] kinds;
+	private int[] hashes;
+	private int count;
+
+	public SymbolTable() {
+		texts = KEYWORDS.texts.clone();
+		kinds = KEYWORDS.kinds.clone();
+		hashes = KEYWORDS.hashes.clone();
+		count = KEYWORDS.count;
+	}
+
+	private SymbolTable(TokenKind[] allKinds) {
+		texts = new String[64];
+		kinds = new TokenKind[64];
+		hashes = new int[64];
+		count = 0;
+
+		for (TokenKind kind : allKinds) {
+			if (kind.isKeyword()) {
+				char[] text = kind.getText().toCharArray();
+				int slot = lookup(text, 0, text.length);
+				kinds[slot] = kind;
+			}
+		}
+	}
+
+	/**
+	 * Finds the entry for the word buf[start .. start+len), adding it as a
+	 * new label if it hasn't been seen before.
+	 * 
+	 * @return the slot of the word, to be passed to getText() / getKind()
+	 */
+	public int lookup(char[] buf, int start, int len) {
+		int hash = 0;
+		for (int i = start; i < start + len; i++) {
+			hash = 31 * hash + buf[i];
+		}
+
+		int mask = texts.length - 1;
+		int slot = hash & mask;
+		while (texts[slot] != null) {
+			if (hashes[slot] == hash && matches(texts[slot], buf, start, len)) {
+				return slot;
+			}
+			slot = (slot + 1) & mask;
+		}
+
+		texts[slot] = new String(buf, start, len);
+		kinds[slot] = TokenKind.LABEL;
+		hashes[slot] = hash;
+		count++;
+
+		// Keep the table at most half full, so probe chains stay short
+		if (count * 2 > texts.length) {
+			String text = texts[slot];
+			grow();
+			return find(text, hash);
+		}
+		return slot;
+	}
+
+	public String getText(int slot) {
+		return texts[slot];
+	}
+
+	public TokenKind getKind(int slot) {
+		return kinds[slot];
+	}
+
+	public int size() {
+		return count;
+	}
+
+	private static boolean matches(String text, char[] buf, int start, int len) {
+		if (text.length() != len) {
+			return false;
+		}
+		for (int i = 0; i < len; i++) {
+			if (text.charAt(i) != buf[start + i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private int find(String text, int hash) {
+		int mask = texts.length - 1;
+		int slot = hash & mask;
+		while (texts[slot] != text) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private void grow() {
+		String[] oldTexts = texts;
+		TokenKind[] oldKinds = kinds;
+		int[] oldHashes = hashes;
+
+		texts = new String[oldTexts.length * 2];
+		kinds = new TokenKind[oldTexts.length * 2];
+		hashes = new int[oldTexts.length * 2];
+
+		int mask = texts.length - 1;
+		for (int i = 0; i < oldTexts.length; i++) {
+			if (oldTexts[i] != null) {
+				int slot = oldHashes[i] & mask;
+				while (texts[slot] != null) {
+					slot = (slot + 1) & mask;
+				}
+				texts[slot] = oldTexts[i];
+				kinds[slot] = oldKinds[i];
+				hashes[slot] = oldHashes[i];
+			}
+		}
+	}
+}
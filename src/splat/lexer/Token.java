@@ -1,29 +1,51 @@
 package splat.lexer;
 
 public class Token {
-    private int line;
-    private int column;
+    private int offset;
+    private TokenKind kind;
     private String value;
 
-    public int getLine() {
-        return line;
+    /**
+     * @return where the token starts in the program text
+     */
+    public int getOffset() {
+        return offset;
     }
 
-    public int getColumn() {
-        return column;
+    public TokenKind getKind() {
+        return kind;
     }
 
     public String getValue() {
         return value;
     }
 
-    public Token(String value, int line, int column){
+    /**
+     * @return true iff this token is a label (keywords are not labels)
+     */
+    public boolean isLabel() {
+        return kind == TokenKind.LABEL;
+    }
+
+    /**
+     * @return true iff this token is an integer, string or boolean literal
+     */
+    public boolean isLiteral() {
+        return kind == TokenKind.INT_LITERAL || kind == TokenKind.STRING_LITERAL
+                || kind == TokenKind.TRUE || kind == TokenKind.FALSE;
+    }
+
+    /**
+     * @param offset where the token starts in the program text, which
+     *          the program's LineMap turns into a line and a column
+     */
+    public Token(TokenKind kind, String value, int offset){
+        this.kind = kind;
         this.value = value;
-        this.line = line;
-        this.column = column;
+        this.offset = offset;
     }
 
     public String toString() {
-        return  "Token: " + value + ", at " + line + ":" + column;
+        return  "Token: " + value + ", at " + offset;
     }
 }
@@ -0,0 +1,92 @@
+package splat.lexer;
+
+/**
+ * What a token is, decided once by the lexer so that the parser never has
+ * to compare token text.  Keywords and symbols each get their own kind;
+ * labels and literals share one kind each and are told apart by their
+ * text.
+ */
+public enum TokenKind {
+
+	// Keywords
+	PROGRAM("program"),
+	BEGIN("begin"),
+	END("end"),
+	IS("is"),
+	IF("if"),
+	THEN("then"),
+	ELSE("else"),
+	WHILE("while"),
+	DO("do"),
+	PRINT("print"),
+	PRINT_LINE("print_line"),
+	RETURN("return"),
+	AND("and"),
+	OR("or"),
+	NOT("not"),
+	TRUE("true"),
+	FALSE("false"),
+	INTEGER("Integer"),
+	STRING("String"),
+	BOOLEAN("Boolean"),
+	VOID("void"),
+
+	// Symbols
+	LEFT_PAREN("("),
+	RIGHT_PAREN(")"),
+	LEFT_BRACE("{"),
+	RIGHT_BRACE("}"),
+	COLON(":"),
+	SEMICOLON(";"),
+	COMMA(","),
+	ASSIGN(":="),
+	PLUS("+"),
+	MINUS("-"),
+	TIMES("*"),
+	DIVIDE("/"),
+	MOD("%"),
+	LESS("<"),
+	GREATER(">"),
+	LESS_EQUAL("<="),
+	GREATER_EQUAL(">="),
+	EQUAL("=="),
+
+	// Tokens whose text varies
+	LABEL(null),
+	INT_LITERAL(null),
+	STRING_LITERAL(null);
+
+	private final String text;
+
+	TokenKind(String text) {
+		this.text = text;
+	}
+
+	/**
+	 * @return the fixed text of a keyword or symbol, or null for labels
+	 * 			and literals
+	 */
+	public String getText() {
+		return text;
+	}
+
+	public boolean isKeyword() {
+		return ordinal() <= VOID.ordinal();
+	}
+
+	public boolean isBinaryOp() {
+		switch (this) {
+			case AND: case OR:
+			case GREATER: case LESS: case EQUAL:
+			case GREATER_EQUAL: case LESS_EQUAL:
+			case PLUS: case MINUS: case TIMES: case DIVIDE: case MOD:
+				return true;
+			default:
+				return false;
+		}
+	}
+
+	public boolean isUnaryOp() {
+		return this == NOT || this == MINUS;
+	}
+}
@@ -0,0 +1,49 @@
+package splat.lexer;
+
+/**
+ * A forward-only sequence of tokens consumed by the parser.  Tokens are
+ * never removed from the underlying source; instead a cursor moves past
+ * them, so consuming a token is a constant time operation.
+ */
+public interface TokenStream {
+
+	/**
+	 * Returns the token k positions ahead of the cursor without consuming
+	 * anything.  peek(0) is the next token.
+	 * 
+	 * @param k number of tokens to look past the cursor
+	 * @return the token at that position
+	 * @throws LexException if the stream is lexing on demand and runs into
+	 * 			a lexical error
+	 * @throws IndexOutOfBoundsException if the stream ends before it
+	 */
+	Token peek(int k) throws LexException;
+
+	/**
+	 * Returns the next token and moves the cursor past it.
+	 * 
+	 * @return the front-most token
+	 * @throws LexException if the stream is lexing on demand and runs into
+	 * 			a lexical error
+	 * @throws IndexOutOfBoundsException if there are no tokens left
+	 */
+	Token next() throws LexException;
+
+	/**
+	 * @return true iff there is at least one token left to consume
+	 */
+	boolean hasNext() throws LexException;
+
+	/**
+	 * Remembers the current cursor position, so that a later call to
+	 * reset() can rewind the stream back to it.
+	 */
+	void mark();
+
+	/**
+	 * Moves the cursor back to the position saved by the last mark().
+	 * 
+	 * @throws IllegalStateException if mark() was never called
+	 */
+	void reset();
+}
@@ -0,0 +1,23 @@
+package splat.nodes;
+
+/**
+ * An operator with two operands.
+ */
+abstract class BinaryNode extends ExprNode {
+
+	ExprNode left;
+	ExprNode right;
+
+	BinaryNode(ExprNode left, ExprNode right) {
+		this.left = adopt(left);
+		this.right = adopt(right);
+	}
+
+	protected void replaceChild(Node oldChild, Node newChild) {
+		if (left == oldChild) {
+			left = (ExprNode) newChild;
+		} else {
+			right = (ExprNode) newChild;
+		}
+	}
+}
@@ -0,0 +1,51 @@
+package splat.nodes;
+
+import splat.executor.ExecutionException;
+
+/**
+ * What the Boolean operators specialize to.
+ */
+final class BooleanNodes {
+
+	private BooleanNodes() {
+	}
+
+	static final class AndNode extends BinaryNode {
+
+		AndNode(ExprNode left, ExprNode right) {
+			super(left, right);
+		}
+
+		boolean executeBoolean(NodeFrame frame) throws ExecutionException {
+			return left.executeBoolean(frame) && right.executeBoolean(frame);
+		}
+	}
+
+	static final class OrNode extends BinaryNode {
+
+		OrNode(ExprNode left, ExprNode right) {
+			super(left, right);
+		}
+
+		boolean executeBoolean(NodeFrame frame) throws ExecutionException {
+			return left.executeBoolean(frame) || right.executeBoolean(frame);
+		}
+	}
+
+	static final class NotNode extends ExprNode {
+
+		private ExprNode operand;
+
+		NotNode(ExprNode operand) {
+			this.operand = adopt(operand);
+		}
+
+		boolean executeBoolean(NodeFrame frame) throws ExecutionException {
+			return !operand.executeBoolean(frame);
+		}
+
+		protected void replaceChild(Node oldChild, Node newChild) {
+			operand = (ExprNode) newChild;
+		}
+	}
+}
@@ -0,0 +1,84 @@
+package splat.nodes;
+
+import java.util.List;
+
+import splat.executor.ExecutionException;
+import splat.parser.elements.ASTElement;
+import splat.parser.elements.Param;
+import splat.parser.elements.ReturnType;
+import splat.parser.elements.Type;
+
+/**
+ * A call, which evaluates the arguments straight into the slots of the
+ * callee's frame.  As an expression it hands back the returned value.
+ */
+final class CallNode extends ExprNode {
+
+	private final FunctionNode function;
+	private final ExprNode[] args;
+
+	// Slot of each parameter, and whether it is a String one
+	private final int[] paramSlots;
+	private final boolean[] paramIsString;
+
+	// Where a missing return is reported
+	private final ASTElement callSite;
+
+	CallNode(FunctionNode function, ExprNode[] args, ASTElement callSite) {
+		this.function = function;
+		this.args = args;
+		this.callSite = callSite;
+		for (ExprNode arg : args) {
+			adopt(arg);
+		}
+
+		List<Param> params = function.decl.getParams();
+		paramSlots = new int[params.size()];
+		paramIsString = new boolean[params.size()];
+		for (int i = 0; i < params.size(); i++) {
+			paramSlots[i] = params.get(i).slot;
+			paramIsString[i] = params.get(i).getType() == Type.String;
+		}
+	}
+
+	/**
+	 * @return the callee's frame, holding the returned value
+	 */
+	NodeFrame call(NodeFrame caller) throws ExecutionException {
+		NodeFrame frame = function.newFrame(caller.globals);
+		for (int i = 0; i < args.length; i++) {
+			if (paramIsString[i]) {
+				frame.strings[paramSlots[i]] = args[i].executeString(caller);
+			} else {
+				frame.ints[paramSlots[i]] = args[i].executeInt(caller);
+			}
+		}
+
+		if (!function.run(frame) && function.decl.getRetType() != ReturnType.Void) {
+			throw new ExecutionException("Function '" + function.decl.getLabel()
+					+ "' ended without returning a value", callSite);
+		}
+		return frame;
+	}
+
+	int executeInt(NodeFrame frame) throws ExecutionException {
+		return call(frame).returnInt;
+	}
+
+	boolean executeBoolean(NodeFrame frame) throws ExecutionException {
+		return call(frame).returnInt != 0;
+	}
+
+	CharSequence executeString(NodeFrame frame) throws ExecutionException {
+		return call(frame).returnString;
+	}
+
+	protected void replaceChild(Node oldChild, Node newChild) {
+		for (int i = 0; i < args.length; i++) {
+			if (args[i] == oldChild) {
+				args[i] = (ExprNode) newChild;
+				return;
+			}
+		}
+	}
+}
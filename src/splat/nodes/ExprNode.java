@@ -0,0 +1,26 @@
+package splat.nodes;
+
+import splat.executor.ExecutionException;
+
+/**
+ * An expression.  Its value comes back as a primitive from the execute
+ * method for its type, and the parent knows which one to call from the
+ * type the SemanticAnalyzer gave the expression.
+ *
+ * Booleans live in the same int slots as integers, as 1 and 0, so a
+ * Boolean expression can be asked for executeInt() too.
+ */
+abstract class ExprNode extends Node {
+
+	int executeInt(NodeFrame frame) throws ExecutionException {
+		return executeBoolean(frame) ? 1 : 0;
+	}
+
+	boolean executeBoolean(NodeFrame frame) throws ExecutionException {
+		throw new IllegalStateException(getClass().getSimpleName() + " has no Boolean value");
+	}
+
+	CharSequence executeString(NodeFrame frame) throws ExecutionException {
+		throw new IllegalStateException(getClass().getSimpleName() + " has no String value");
+	}
+}
@@ -0,0 +1,65 @@
+package splat.nodes;
+
+import splat.executor.ExecutionException;
+import splat.parser.elements.FunctionDecl;
+import splat.parser.elements.Type;
+import splat.parser.elements.VariableDecl;
+
+/**
+ * A function, whose body is only turned into nodes when it is first
+ * called.
+ */
+final class FunctionNode {
+
+	final FunctionDecl decl;
+
+	private final NodeBuilder builder;
+	private StmtNode[] body;
+
+	// Slots of the String local variables, which start out as ""
+	private final int[] stringVarSlots;
+
+	FunctionNode(FunctionDecl decl, NodeBuilder builder) {
+		this.decl = decl;
+		this.builder = builder;
+
+		int count = 0;
+		for (VariableDecl var : decl.getLocalVarDecls()) {
+			if (var.getType() == Type.String) {
+				count++;
+			}
+		}
+		stringVarSlots = new int[count];
+		count = 0;
+		for (VariableDecl var : decl.getLocalVarDecls()) {
+			if (var.getType() == Type.String) {
+				stringVarSlots[count++] = var.slot;
+			}
+		}
+	}
+
+	/**
+	 * @return a frame for a call, with the local variables set to their
+	 * 			defaults
+	 */
+	NodeFrame newFrame(NodeFrame globals) {
+		NodeFrame frame = new NodeFrame(decl.frameSize, globals);
+		for (int slot : stringVarSlots) {
+			frame.strings[slot] = "";
+		}
+		return frame;
+	}
+
+	/**
+	 * Runs the body in a frame made by newFrame(), with the arguments in
+	 * their slots.
+	 *
+	 * @return true if a return statement ran
+	 */
+	boolean run(NodeFrame frame) throws ExecutionException {
+		if (body == null) {
+			body = builder.stmts(decl.getStmts());
+		}
+		return StmtNode.executeAll(body, frame);
+	}
+}
@@ -0,0 +1,162 @@
+package splat.nodes;
+
+import splat.executor.ExecutionException;
+import splat.parser.elements.BinaryOpExpr;
+
+/**
+ * What the Integer operators specialize to.  Operands and results are
+ * plain ints, and comparisons give plain booleans.
+ */
+final class IntNodes {
+
+	private IntNodes() {
+	}
+
+	static final class IntAddNode extends BinaryNode {
+
+		IntAddNode(ExprNode left, ExprNode right) {
+			super(left, right);
+		}
+
+		int executeInt(NodeFrame frame) throws ExecutionException {
+			return left.executeInt(frame) + right.executeInt(frame);
+		}
+	}
+
+	static final class IntSubNode extends BinaryNode {
+
+		IntSubNode(ExprNode left, ExprNode right) {
+			super(left, right);
+		}
+
+		int executeInt(NodeFrame frame) throws ExecutionException {
+			return left.executeInt(frame) - right.executeInt(frame);
+		}
+	}
+
+	static final class IntMulNode extends BinaryNode {
+
+		IntMulNode(ExprNode left, ExprNode right) {
+			super(left, right);
+		}
+
+		int executeInt(NodeFrame frame) throws ExecutionException {
+			return left.executeInt(frame) * right.executeInt(frame);
+		}
+	}
+
+	static final class IntDivNode extends BinaryNode {
+
+		// Where division by zero is reported
+		private final BinaryOpExpr source;
+
+		IntDivNode(ExprNode left, ExprNode right, BinaryOpExpr source) {
+			super(left, right);
+			this.source = source;
+		}
+
+		int executeInt(NodeFrame frame) throws ExecutionException {
+			int dividend = left.executeInt(frame);
+			int divisor = right.executeInt(frame);
+			if (divisor == 0) {
+				throw new ExecutionException("Division by zero", source);
+			}
+			return dividend / divisor;
+		}
+	}
+
+	static final class IntRemNode extends BinaryNode {
+
+		// Where division by zero is reported
+		private final BinaryOpExpr source;
+
+		IntRemNode(ExprNode left, ExprNode right, BinaryOpExpr source) {
+			super(left, right);
+			this.source = source;
+		}
+
+		int executeInt(NodeFrame frame) throws ExecutionException {
+			int dividend = left.executeInt(frame);
+			int divisor = right.executeInt(frame);
+			if (divisor == 0) {
+				throw new ExecutionException("Division by zero", source);
+			}
+			return dividend % divisor;
+		}
+	}
+
+	static final class IntNegNode extends ExprNode {
+
+		private ExprNode operand;
+
+		IntNegNode(ExprNode operand) {
+			this.operand = adopt(operand);
+		}
+
+		int executeInt(NodeFrame frame) throws ExecutionException {
+			return -operand.executeInt(frame);
+		}
+
+		protected void replaceChild(Node oldChild, Node newChild) {
+			operand = (ExprNode) newChild;
+		}
+	}
+
+	/**
+	 * == on Integers, and on Booleans, which are ints too
+	 */
+	static final class IntEqualNode extends BinaryNode {
+
+		IntEqualNode(ExprNode left, ExprNode right) {
+			super(left, right);
+		}
+
+		boolean executeBoolean(NodeFrame frame) throws ExecutionException {
+			return left.executeInt(frame) == right.executeInt(frame);
+		}
+	}
+
+	static final class IntLessThanNode extends BinaryNode {
+
+		IntLessThanNode(ExprNode left, ExprNode right) {
+			super(left, right);
+		}
+
+		boolean executeBoolean(NodeFrame frame) throws ExecutionException {
+			return left.executeInt(frame) < right.executeInt(frame);
+		}
+	}
+
+	static final class IntLessEqualNode extends BinaryNode {
+
+		IntLessEqualNode(ExprNode left, ExprNode right) {
+			super(left, right);
+		}
+
+		boolean executeBoolean(NodeFrame frame) throws ExecutionException {
+			return left.executeInt(frame) <= right.executeInt(frame);
+		}
+	}
+
+	static final class IntGreaterThanNode extends BinaryNode {
+
+		IntGreaterThanNode(ExprNode left, ExprNode right) {
+			super(left, right);
+		}
+
+		boolean executeBoolean(NodeFrame frame) throws ExecutionException {
+			return left.executeInt(frame) > right.executeInt(frame);
+		}
+	}
+
+	static final class IntGreaterEqualNode extends BinaryNode {
+
+		IntGreaterEqualNode(ExprNode left, ExprNode right) {
+			super(left, right);
+		}
+
+		boolean executeBoolean(NodeFrame frame) throws ExecutionException {
+			return left.executeInt(frame) >= right.executeInt(frame);
+		}
+	}
+}
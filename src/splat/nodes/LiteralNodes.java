@@ -0,0 +1,49 @@
+package splat.nodes;
+
+/**
+ * What a literal specializes to: its value, ready to hand out.
+ */
+final class LiteralNodes {
+
+	private LiteralNodes() {
+	}
+
+	static final class ConstIntNode extends ExprNode {
+
+		private final int value;
+
+		ConstIntNode(int value) {
+			this.value = value;
+		}
+
+		int executeInt(NodeFrame frame) {
+			return value;
+		}
+	}
+
+	static final class ConstBooleanNode extends ExprNode {
+
+		private final boolean value;
+
+		ConstBooleanNode(boolean value) {
+			this.value = value;
+		}
+
+		boolean executeBoolean(NodeFrame frame) {
+			return value;
+		}
+	}
+
+	static final class ConstStringNode extends ExprNode {
+
+		private final String value;
+
+		ConstStringNode(String value) {
+			this.value = value;
+		}
+
+		CharSequence executeString(NodeFrame frame) {
+			return value;
+		}
+	}
+}
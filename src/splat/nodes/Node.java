@@ -0,0 +1,40 @@
+package splat.nodes;
+
+/**
+ * A node of the tree the NodeExecutor runs.  A node can put another node
+ * in its own place in its parent, which is how an UninitializedExprNode
+ * turns into the node specialized for its element.
+ */
+abstract class Node {
+
+	Node parent;
+
+	/**
+	 * Makes this node the parent of the child.
+	 *
+	 * @return the child
+	 */
+	protected <T extends Node> T adopt(T child) {
+		child.parent = this;
+		return child;
+	}
+
+	/**
+	 * Puts newNode in the place of this node in its parent.
+	 *
+	 * @return newNode
+	 */
+	protected <T extends Node> T replace(T newNode) {
+		parent.replaceChild(this, newNode);
+		newNode.parent = parent;
+		return newNode;
+	}
+
+	/**
+	 * Puts newChild in the place of oldChild.  Every node with children
+	 * overrides this for the fields it keeps them in.
+	 */
+	protected void replaceChild(Node oldChild, Node newChild) {
+		throw new IllegalStateException(getClass().getSimpleName() + " has no children");
+	}
+}
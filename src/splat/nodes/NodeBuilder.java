@@ -0,0 +1,192 @@
+package splat.nodes;
+
+import java.io.PrintStream;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import splat.executor.Value;
+import splat.parser.elements.*;
+
+import static splat.nodes.BooleanNodes.*;
+import static splat.nodes.IntNodes.*;
+import static splat.nodes.LiteralNodes.*;
+import static splat.nodes.StmtNodes.*;
+import static splat.nodes.StringNodes.*;
+import static splat.nodes.VariableNodes.*;
+
+/**
+ * Makes the nodes of a program from its elements, as they are needed.
+ * The statements of a function are made when it is first called, and
+ * each expression is made an UninitializedExprNode, which comes back to
+ * specialize() when it first runs.  The elements themselves are only
+ * read, and stay what the program is.
+ */
+final class NodeBuilder {
+
+	private PrintStream out;
+	private Map<FunctionDecl, FunctionNode> functions;
+
+	NodeBuilder(PrintStream out) {
+		this.out = out;
+		this.functions = new IdentityHashMap<FunctionDecl, FunctionNode>();
+	}
+
+	FunctionNode function(FunctionDecl decl) {
+		FunctionNode function = functions.get(decl);
+		if (function == null) {
+			function = new FunctionNode(decl, this);
+			functions.put(decl, function);
+		}
+		return function;
+	}
+
+	StmtNode[] stmts(List<Statement> stmts) {
+		StmtNode[] nodes = new StmtNode[stmts.size()];
+		for (int i = 0; i < nodes.length; i++) {
+			nodes[i] = stmt(stmts.get(i));
+		}
+		return nodes;
+	}
+
+	private StmtNode stmt(Statement stmt) {
+
+		if (stmt instanceof AssignmentStmt) {
+			AssignmentStmt assign = (AssignmentStmt) stmt;
+			ExprNode expr = expr(assign.expr);
+			if (assign.type == Type.String) {
+				return assign.global ? new AssignGlobalStringNode(assign.slot, expr)
+						: new AssignLocalStringNode(assign.slot, expr);
+			}
+			return assign.global ? new AssignGlobalIntNode(assign.slot, expr)
+					: new AssignLocalIntNode(assign.slot, expr);
+
+		} else if (stmt instanceof PrintStmt) {
+			Expression expr = ((PrintStmt) stmt).getExpr();
+			switch (expr.getType()) {
+				case Integer:
+					return new PrintIntNode(expr(expr), out);
+				case Boolean:
+					return new PrintBooleanNode(expr(expr), out);
+				default:
+					return new PrintStringNode(expr(expr), out);
+			}
+
+		} else if (stmt instanceof PrintLineStmt) {
+			return new PrintLineNode(out);
+
+		} else if (stmt instanceof ReturnStmt) {
+			Expression expr = ((ReturnStmt) stmt).getExpr();
+			if (expr == null) {
+				return new ReturnNode();
+			} else if (expr.getType() == Type.String) {
+				return new ReturnStringNode(expr(expr));
+			}
+			return new ReturnIntNode(expr(expr));
+
+		} else if (stmt instanceof IfConditionStmt) {
+			IfConditionStmt ifStmt = (IfConditionStmt) stmt;
+			StmtNode[] elseStmts = ifStmt.getStmts2() == null ? null : stmts(ifStmt.getStmts2());
+			return new IfNode(expr(ifStmt.getExpr()), stmts(ifStmt.getStmts1()), elseStmts);
+
+		} else if (stmt instanceof WhileDoStmt) {
+			WhileDoStmt whileStmt = (WhileDoStmt) stmt;
+			return new WhileNode(expr(whileStmt.getExpr()), stmts(whileStmt.getStmts()));
+
+		} else if (stmt instanceof NonVoidFunctionCallStmt) {
+			NonVoidFunctionCallStmt call = (NonVoidFunctionCallStmt) stmt;
+			return new CallStmtNode(call(call.func, call.getArgs(), call));
+		}
+
+		// IfThenElse is never produced by the parser
+		throw new IllegalStateException("Cannot run " + stmt.getClass().getSimpleName());
+	}
+
+	ExprNode expr(Expression expr) {
+		return new UninitializedExprNode(expr, this);
+	}
+
+	/**
+	 * @return the node for what the expression does with the types the
+	 * 			SemanticAnalyzer gave it, with its operands uninitialized
+	 */
+	ExprNode specialize(Expression expr) {
+
+		if (expr instanceof LiteralExpr) {
+			Value constant = ((LiteralExpr) expr).getConstant();
+			switch (constant.getType()) {
+				case Integer:
+					return new ConstIntNode(constant.getInt());
+				case Boolean:
+					return new ConstBooleanNode(constant.getBoolean());
+				default:
+					return new ConstStringNode(constant.getString());
+			}
+
+		} else if (expr instanceof LabelExpr) {
+			LabelExpr label = (LabelExpr) expr;
+			if (label.getType() == Type.String) {
+				return label.global ? new ReadGlobalStringNode(label.slot)
+						: new ReadLocalStringNode(label.slot);
+			}
+			return label.global ? new ReadGlobalIntNode(label.slot)
+					: new ReadLocalIntNode(label.slot);
+
+		} else if (expr instanceof UnaryOpExpr) {
+			UnaryOpExpr unary = (UnaryOpExpr) expr;
+			ExprNode operand = expr(unary.getExpr());
+			return unary.getOperator().equals("not") ? new NotNode(operand) : new IntNegNode(operand);
+
+		} else if (expr instanceof BinaryOpExpr) {
+			return binary((BinaryOpExpr) expr);
+
+		} else if (expr instanceof NonVoidFunctionCallExpr) {
+			NonVoidFunctionCallExpr call = (NonVoidFunctionCallExpr) expr;
+			return call(call.func, call.getArgs(), call);
+		}
+
+		throw new IllegalStateException("Argument list used as a value");
+	}
+
+	private ExprNode binary(BinaryOpExpr binary) {
+		ExprNode left = expr(binary.getExpr1());
+		ExprNode right = expr(binary.getExpr2());
+		boolean strings = binary.getExpr1().getType() == Type.String;
+
+		switch (binary.getOperator()) {
+			case "and":
+				return new AndNode(left, right);
+			case "or":
+				return new OrNode(left, right);
+			case "==":
+				return strings ? new StringEqualNode(left, right) : new IntEqualNode(left, right);
+			case "+":
+				return strings ? new ConcatNode(left, right) : new IntAddNode(left, right);
+			case "-":
+				return new IntSubNode(left, right);
+			case "*":
+				return new IntMulNode(left, right);
+			case "/":
+				return new IntDivNode(left, right, binary);
+			case "%":
+				return new IntRemNode(left, right, binary);
+			case ">":
+				return new IntGreaterThanNode(left, right);
+			case "<":
+				return new IntLessThanNode(left, right);
+			case ">=":
+				return new IntGreaterEqualNode(left, right);
+			default: // "<="
+				return new IntLessEqualNode(left, right);
+		}
+	}
+
+	private CallNode call(FunctionDecl func, Expression args, ASTElement callSite) {
+		List<Expression> argList = ((ArgsExpr) args).getArgs();
+		ExprNode[] argNodes = new ExprNode[argList.size()];
+		for (int i = 0; i < argNodes.length; i++) {
+			argNodes[i] = expr(argList.get(i));
+		}
+		return new CallNode(function(func), argNodes, callSite);
+	}
+}
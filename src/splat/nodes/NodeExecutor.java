@@ -0,0 +1,63 @@
+package splat.nodes;
+
+import java.io.PrintStream;
+
+import splat.executor.ExecutionException;
+import splat.executor.Scope;
+import splat.parser.elements.Declaration;
+import splat.parser.elements.ProgramAST;
+import splat.parser.elements.Type;
+import splat.parser.elements.VariableDecl;
+
+/**
+ * Runs a program as a tree of self-specializing nodes.  The tree starts
+ * out with an uninitialized node for every expression, and the first time
+ * one runs it replaces itself with a node made for the operator and the
+ * types it turned out to have, such as an IntAddNode or an
+ * IntLessThanNode.  From then on the parent calls that node directly,
+ * and integers and booleans are passed around as ints and booleans, from
+ * the constants through to the int slots of the frames, without ever
+ * being boxed.
+ *
+ * The types come from the SemanticAnalyzer, so a node never has to
+ * change again once it is specialized.  The elements of the program are
+ * not changed; the nodes are built from them, as they are needed, for
+ * each run.
+ */
+public class NodeExecutor {
+
+	private ProgramAST progAST;
+	private PrintStream out;
+
+	public NodeExecutor(ProgramAST progAST) {
+		this(progAST, System.out);
+	}
+
+	public NodeExecutor(ProgramAST progAST, PrintStream out) {
+		this.progAST = progAST;
+		this.out = out;
+	}
+
+	public void runProgram() throws ExecutionException {
+
+		Scope scope = progAST.resolveSlots();
+
+		NodeFrame globals = new NodeFrame(scope.getGlobalCount(), null);
+		for (Declaration decl : progAST.getDecls()) {
+			if (decl instanceof VariableDecl && ((VariableDecl) decl).getType() == Type.String) {
+				globals.strings[((VariableDecl) decl).slot] = "";
+			}
+		}
+
+		// The main program body runs with the globals as its own slots
+		StmtNode[] body = new NodeBuilder(out).stmts(progAST.getStmts());
+		try {
+			// A return in the program body just ends the program
+			StmtNode.executeAll(body, globals);
+		} catch (StackOverflowError ex) {
+			throw new ExecutionException("Stack overflow, recursion too deep", progAST);
+		} finally {
+			out.flush();
+		}
+	}
+}
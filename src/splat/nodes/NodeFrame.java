@@ -0,0 +1,30 @@
+package splat.nodes;
+
+/**
+ * The variables of one function activation.  Integer and Boolean
+ * variables live in ints and String variables (a String or a Rope) in
+ * strings, both indexed by the slots the program was resolved to, so a
+ * variable is never boxed.
+ *
+ * For the main program body the frame is the globals frame itself.
+ */
+final class NodeFrame {
+
+	final int[] ints;
+	final CharSequence[] strings;
+	final NodeFrame globals;
+
+	// The value of the return statement that ended the call
+	int returnInt;
+	CharSequence returnString;
+
+	/**
+	 * @param globals the frame of the program variables, or null to make
+	 * 			that frame
+	 */
+	NodeFrame(int size, NodeFrame globals) {
+		this.ints = new int[size];
+		this.strings = new CharSequence[size];
+		this.globals = globals == null ? this : globals;
+	}
+}
@@ -0,0 +1,29 @@
+package splat.nodes;
+
+import splat.executor.ExecutionException;
+
+/**
+ * A statement.
+ */
+abstract class StmtNode extends Node {
+
+	/**
+	 * @return true if a return statement ran, which leaves the returned
+	 * 			value in the frame
+	 */
+	abstract boolean execute(NodeFrame frame) throws ExecutionException;
+
+	/**
+	 * Runs the statements in order, up to a return.
+	 *
+	 * @return true if a return statement ran
+	 */
+	static boolean executeAll(StmtNode[] stmts, NodeFrame frame) throws ExecutionException {
+		for (StmtNode stmt : stmts) {
+			if (stmt.execute(frame)) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
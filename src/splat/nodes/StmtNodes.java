@@ -0,0 +1,250 @@
+package splat.nodes;
+
+import java.io.PrintStream;
+
+import splat.executor.ExecutionException;
+
+/**
+ * The statements.  Each is made for the types involved when its function
+ * is first called, so none of them looks at a type while it runs.
+ */
+final class StmtNodes {
+
+	private StmtNodes() {
+	}
+
+	/**
+	 * A statement with one expression in it.
+	 */
+	abstract static class ExprStmtNode extends StmtNode {
+
+		ExprNode expr;
+
+		ExprStmtNode(ExprNode expr) {
+			this.expr = adopt(expr);
+		}
+
+		protected void replaceChild(Node oldChild, Node newChild) {
+			expr = (ExprNode) newChild;
+		}
+	}
+
+	/**
+	 * Assigns an Integer or a Boolean
+	 */
+	static final class AssignLocalIntNode extends ExprStmtNode {
+
+		private final int slot;
+
+		AssignLocalIntNode(int slot, ExprNode expr) {
+			super(expr);
+			this.slot = slot;
+		}
+
+		boolean execute(NodeFrame frame) throws ExecutionException {
+			frame.ints[slot] = expr.executeInt(frame);
+			return false;
+		}
+	}
+
+	static final class AssignGlobalIntNode extends ExprStmtNode {
+
+		private final int slot;
+
+		AssignGlobalIntNode(int slot, ExprNode expr) {
+			super(expr);
+			this.slot = slot;
+		}
+
+		boolean execute(NodeFrame frame) throws ExecutionException {
+			frame.globals.ints[slot] = expr.executeInt(frame);
+			return false;
+		}
+	}
+
+	static final class AssignLocalStringNode extends ExprStmtNode {
+
+		private final int slot;
+
+		AssignLocalStringNode(int slot, ExprNode expr) {
+			super(expr);
+			this.slot = slot;
+		}
+
+		boolean execute(NodeFrame frame) throws ExecutionException {
+			frame.strings[slot] = expr.executeString(frame);
+			return false;
+		}
+	}
+
+	static final class AssignGlobalStringNode extends ExprStmtNode {
+
+		private final int slot;
+
+		AssignGlobalStringNode(int slot, ExprNode expr) {
+			super(expr);
+			this.slot = slot;
+		}
+
+		boolean execute(NodeFrame frame) throws ExecutionException {
+			frame.globals.strings[slot] = expr.executeString(frame);
+			return false;
+		}
+	}
+
+	static final class PrintIntNode extends ExprStmtNode {
+
+		private final PrintStream out;
+
+		PrintIntNode(ExprNode expr, PrintStream out) {
+			super(expr);
+			this.out = out;
+		}
+
+		boolean execute(NodeFrame frame) throws ExecutionException {
+			out.print(expr.executeInt(frame));
+			return false;
+		}
+	}
+
+	static final class PrintBooleanNode extends ExprStmtNode {
+
+		private final PrintStream out;
+
+		PrintBooleanNode(ExprNode expr, PrintStream out) {
+			super(expr);
+			this.out = out;
+		}
+
+		boolean execute(NodeFrame frame) throws ExecutionException {
+			out.print(expr.executeBoolean(frame));
+			return false;
+		}
+	}
+
+	static final class PrintStringNode extends ExprStmtNode {
+
+		private final PrintStream out;
+
+		PrintStringNode(ExprNode expr, PrintStream out) {
+			super(expr);
+			this.out = out;
+		}
+
+		boolean execute(NodeFrame frame) throws ExecutionException {
+			out.print(expr.executeString(frame).toString());
+			return false;
+		}
+	}
+
+	static final class PrintLineNode extends StmtNode {
+
+		private final PrintStream out;
+
+		PrintLineNode(PrintStream out) {
+			this.out = out;
+		}
+
+		boolean execute(NodeFrame frame) {
+			out.println();
+			return false;
+		}
+	}
+
+	static final class ReturnNode extends StmtNode {
+
+		boolean execute(NodeFrame frame) {
+			return true;
+		}
+	}
+
+	/**
+	 * Returns an Integer or a Boolean
+	 */
+	static final class ReturnIntNode extends ExprStmtNode {
+
+		ReturnIntNode(ExprNode expr) {
+			super(expr);
+		}
+
+		boolean execute(NodeFrame frame) throws ExecutionException {
+			frame.returnInt = expr.executeInt(frame);
+			return true;
+		}
+	}
+
+	static final class ReturnStringNode extends ExprStmtNode {
+
+		ReturnStringNode(ExprNode expr) {
+			super(expr);
+		}
+
+		boolean execute(NodeFrame frame) throws ExecutionException {
+			frame.returnString = expr.executeString(frame);
+			return true;
+		}
+	}
+
+	/**
+	 * The condition is the expression
+	 */
+	static final class IfNode extends ExprStmtNode {
+
+		private final StmtNode[] thenStmts;
+		private final StmtNode[] elseStmts;	// null if there is no else
+
+		IfNode(ExprNode cond, StmtNode[] thenStmts, StmtNode[] elseStmts) {
+			super(cond);
+			this.thenStmts = thenStmts;
+			this.elseStmts = elseStmts;
+		}
+
+		boolean execute(NodeFrame frame) throws ExecutionException {
+			if (expr.executeBoolean(frame)) {
+				return executeAll(thenStmts, frame);
+			} else if (elseStmts != null) {
+				return executeAll(elseStmts, frame);
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * The condition is the expression
+	 */
+	static final class WhileNode extends ExprStmtNode {
+
+		private final StmtNode[] body;
+
+		WhileNode(ExprNode cond, StmtNode[] body) {
+			super(cond);
+			this.body = body;
+		}
+
+		boolean execute(NodeFrame frame) throws ExecutionException {
+			while (expr.executeBoolean(frame)) {
+				if (executeAll(body, frame)) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * A call whose value, if any, is dropped
+	 */
+	static final class CallStmtNode extends StmtNode {
+
+		private final CallNode call;
+
+		CallStmtNode(CallNode call) {
+			this.call = adopt(call);
+		}
+
+		boolean execute(NodeFrame frame) throws ExecutionException {
+			call.call(frame);
+			return false;
+		}
+	}
+}
@@ -0,0 +1,36 @@
+package splat.nodes;
+
+import splat.executor.ExecutionException;
+import splat.executor.Rope;
+
+/**
+ * What the String operators specialize to.  Strings built by + are Ropes,
+ * so one built up in a loop grows in place.
+ */
+final class StringNodes {
+
+	private StringNodes() {
+	}
+
+	static final class ConcatNode extends BinaryNode {
+
+		ConcatNode(ExprNode left, ExprNode right) {
+			super(left, right);
+		}
+
+		CharSequence executeString(NodeFrame frame) throws ExecutionException {
+			return Rope.concat(left.executeString(frame), right.executeString(frame));
+		}
+	}
+
+	static final class StringEqualNode extends BinaryNode {
+
+		StringEqualNode(ExprNode left, ExprNode right) {
+			super(left, right);
+		}
+
+		boolean executeBoolean(NodeFrame frame) throws ExecutionException {
+			return Rope.equals(left.executeString(frame), right.executeString(frame));
+		}
+	}
+}
@@ -0,0 +1,38 @@
+package splat.nodes;
+
+import splat.executor.ExecutionException;
+import splat.parser.elements.Expression;
+
+/**
+ * Every expression starts out as one of these.  The first time it runs it
+ * asks the NodeBuilder for the node specialized for its element, puts
+ * that in its own place, and runs it; after that the parent calls the
+ * specialized node directly.  Its operands start out uninitialized in
+ * turn, so code that never runs is never specialized.
+ */
+final class UninitializedExprNode extends ExprNode {
+
+	private final Expression expr;
+	private final NodeBuilder builder;
+
+	UninitializedExprNode(Expression expr, NodeBuilder builder) {
+		this.expr = expr;
+		this.builder = builder;
+	}
+
+	int executeInt(NodeFrame frame) throws ExecutionException {
+		return specialize().executeInt(frame);
+	}
+
+	boolean executeBoolean(NodeFrame frame) throws ExecutionException {
+		return specialize().executeBoolean(frame);
+	}
+
+	CharSequence executeString(NodeFrame frame) throws ExecutionException {
+		return specialize().executeString(frame);
+	}
+
+	private ExprNode specialize() {
+		return replace(builder.specialize(expr));
+	}
+}
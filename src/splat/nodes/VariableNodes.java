@@ -0,0 +1,71 @@
+package splat.nodes;
+
+/**
+ * What a variable reference specializes to: a read of its slot, in the
+ * current frame or the globals, from the int or the String slots.
+ */
+final class VariableNodes {
+
+	private VariableNodes() {
+	}
+
+	static final class ReadLocalIntNode extends ExprNode {
+
+		private final int slot;
+
+		ReadLocalIntNode(int slot) {
+			this.slot = slot;
+		}
+
+		int executeInt(NodeFrame frame) {
+			return frame.ints[slot];
+		}
+
+		boolean executeBoolean(NodeFrame frame) {
+			return frame.ints[slot] != 0;
+		}
+	}
+
+	static final class ReadGlobalIntNode extends ExprNode {
+
+		private final int slot;
+
+		ReadGlobalIntNode(int slot) {
+			this.slot = slot;
+		}
+
+		int executeInt(NodeFrame frame) {
+			return frame.globals.ints[slot];
+		}
+
+		boolean executeBoolean(NodeFrame frame) {
+			return frame.globals.ints[slot] != 0;
+		}
+	}
+
+	static final class ReadLocalStringNode extends ExprNode {
+
+		private final int slot;
+
+		ReadLocalStringNode(int slot) {
+			this.slot = slot;
+		}
+
+		CharSequence executeString(NodeFrame frame) {
+			return frame.strings[slot];
+		}
+	}
+
+	static final class ReadGlobalStringNode extends ExprNode {
+
+		private final int slot;
+
+		ReadGlobalStringNode(int slot) {
+			this.slot = slot;
+		}
+
+		CharSequence executeString(NodeFrame frame) {
+			return frame.globals.strings[slot];
+		}
+	}
+}
@@ -0,0 +1,179 @@
+package splat.optimizer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import splat.executor.ExecutionException;
+import splat.executor.Value;
+import splat.lexer.Token;
+import splat.lexer.TokenKind;
+import splat.parser.elements.*;
+
+/**
+ * Simplifies a program before it runs.  Operators applied to literals
+ * are replaced by the literal they compute, if statements whose condition
+ * is a literal are replaced by the branch that would run, and while loops
+ * whose condition is the literal false are dropped.
+ *
+ * Anything that would fail when run, like (1 / 0), is left as it is, so
+ * the error is still reported where and when it was before.  The program
+ * must have been through the SemanticAnalyzer, so there are no type errors
+ * left to fold.
+ */
+public class ConstantFolder {
+
+	private ProgramAST progAST;
+
+	public ConstantFolder(ProgramAST progAST) {
+		this.progAST = progAST;
+	}
+
+	public void fold() {
+		for (Declaration decl : progAST.getDecls()) {
+			if (decl instanceof FunctionDecl) {
+				foldStmts(((FunctionDecl) decl).getStmts());
+			}
+		}
+		foldStmts(progAST.getStmts());
+	}
+
+	/*
+	 * Folds the statements of the list in place.
+	 */
+	private void foldStmts(List<Statement> stmts) {
+		List<Statement> folded = new ArrayList<Statement>(stmts.size());
+		for (Statement stmt : stmts) {
+			foldStmt(stmt, folded);
+		}
+		stmts.clear();
+		stmts.addAll(folded);
+	}
+
+	/*
+	 * Adds whatever the statement folds to, if anything, to the list.
+	 */
+	private void foldStmt(Statement stmt, List<Statement> folded) {
+
+		if (stmt instanceof AssignmentStmt) {
+			AssignmentStmt assign = (AssignmentStmt) stmt;
+			assign.expr = foldExpr(assign.expr);
+
+		} else if (stmt instanceof PrintStmt) {
+			PrintStmt print = (PrintStmt) stmt;
+			print.expr = foldExpr(print.expr);
+
+		} else if (stmt instanceof ReturnStmt) {
+			ReturnStmt ret = (ReturnStmt) stmt;
+			if (ret.expr != null) {
+				ret.expr = foldExpr(ret.expr);
+			}
+
+		} else if (stmt instanceof NonVoidFunctionCallStmt) {
+			foldExpr(((NonVoidFunctionCallStmt) stmt).args);
+
+		} else if (stmt instanceof IfConditionStmt) {
+			IfConditionStmt ifStmt = (IfConditionStmt) stmt;
+			ifStmt.expr = foldExpr(ifStmt.expr);
+			foldStmts(ifStmt.stmts1);
+			if (ifStmt.stmts2 != null) {
+				foldStmts(ifStmt.stmts2);
+			}
+
+			// SPLAT has no block scope, so a branch can simply be spliced in
+			Value cond = constantOf(ifStmt.expr);
+			if (cond != null && cond.getType() == Type.Boolean) {
+				if (cond.getBoolean()) {
+					folded.addAll(ifStmt.stmts1);
+				} else if (ifStmt.stmts2 != null) {
+					folded.addAll(ifStmt.stmts2);
+				}
+				return;
+			}
+
+		} else if (stmt instanceof WhileDoStmt) {
+			WhileDoStmt whileStmt = (WhileDoStmt) stmt;
+			whileStmt.expr = foldExpr(whileStmt.expr);
+			foldStmts(whileStmt.stmts);
+
+			Value cond = constantOf(whileStmt.expr);
+			if (cond != null && cond.getType() == Type.Boolean && !cond.getBoolean()) {
+				return;
+			}
+		}
+
+		folded.add(stmt);
+	}
+
+	/**
+	 * @return the folded expression, which is either a new literal or the
+	 * 			same expression with its operands folded
+	 */
+	private Expression foldExpr(Expression expr) {
+
+		if (expr instanceof BinaryOpExpr) {
+			BinaryOpExpr binary = (BinaryOpExpr) expr;
+			binary.expr1 = foldExpr(binary.expr1);
+			binary.expr2 = foldExpr(binary.expr2);
+			if (constantOf(binary.expr1) != null && constantOf(binary.expr2) != null) {
+				return evaluate(binary);
+			}
+
+		} else if (expr instanceof UnaryOpExpr) {
+			UnaryOpExpr unary = (UnaryOpExpr) expr;
+			unary.expr = foldExpr(unary.expr);
+			if (constantOf(unary.expr) != null) {
+				return evaluate(unary);
+			}
+
+		} else if (expr instanceof NonVoidFunctionCallExpr) {
+			foldExpr(((NonVoidFunctionCallExpr) expr).args);
+
+		} else if (expr instanceof ArgsExpr) {
+			List<Expression> args = ((ArgsExpr) expr).args;
+			for (int i = 0; i < args.size(); i++) {
+				args.set(i, foldExpr(args.get(i)));
+			}
+		}
+
+		return expr;
+	}
+
+	/*
+	 * Replaces an operator whose operands are all literals by its value.
+	 * Literals don't look at the scope or the frame, so there is no need
+	 * for either.
+	 */
+	private Expression evaluate(Expression expr) {
+		Value value;
+		try {
+			expr.resolveSlots(null);
+			value = expr.evaluate(null);
+		} catch (ExecutionException ex) {
+			return expr;
+		}
+
+		switch (value.getType()) {
+			case Integer:
+				return literal(expr, TokenKind.INT_LITERAL, Integer.toString(value.getInt()));
+			case Boolean:
+				return literal(expr, value.getBoolean() ? TokenKind.TRUE : TokenKind.FALSE,
+						Boolean.toString(value.getBoolean()));
+			default:
+				return literal(expr, TokenKind.STRING_LITERAL, "\"" + value.getString() + "\"");
+		}
+	}
+
+	private static LiteralExpr literal(Expression at, TokenKind kind, String text) {
+		return new LiteralExpr(new Token(kind, text, at.getOffset()), text);
+	}
+
+	/**
+	 * @return the value of the expression if it is a literal, or null
+	 */
+	private static Value constantOf(Expression expr) {
+		if (expr instanceof LiteralExpr) {
+			return ((LiteralExpr) expr).getConstant();
+		}
+		return null;
+	}
+}
@@ -0,0 +1,107 @@
+package splat.optimizer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import splat.Splat;
+import splat.SplatException;
+import splat.TestRunner;
+import splat.lexer.Lexer;
+import splat.parser.Parser;
+import splat.parser.elements.AstPrinter;
+import splat.parser.elements.ProgramAST;
+import splat.semanticanalyzer.SemanticAnalyzer;
+
+/**
+ * Checks what the ConstantFolder leaves of the execution tests.  Each
+ * program is compiled, which folds it, and folding it again must change
+ * nothing.  A test that comes with a .folded file must fold to the
+ * program printed there, and that program must parse, check and fold
+ * back to itself, so what the folder makes is still SPLAT.
+ */
+public class ConstantFolderTester {
+
+	private TestRunner runner;
+	private boolean verbose;
+
+	public static void main(String[] args) {
+
+		ConstantFolderTester tester = new ConstantFolderTester(true, TestRunner.fromArgs(args));
+		tester.runTests();
+	}
+
+	public ConstantFolderTester(boolean seeResults, TestRunner runner) {
+		this.runner = runner;
+		verbose = seeResults;
+	}
+
+	public void runTests() {
+		runner.runSuite("CONSTANT FOLDER", new TestRunner.Test() {
+			public TestRunner.Outcome run(File testFile, PrintStream details) throws IOException {
+				return runTest(testFile, details);
+			}
+		}, "_goodexecution.splat");
+	}
+
+	private TestRunner.Outcome runTest(File testFile, PrintStream details) throws IOException {
+
+		// Expected folded program, if the test comes with one
+		String foldedName = testFile.getName().replaceAll("\\.splat$", ".folded");
+		File foldedFile = new File(testFile.getParentFile(), foldedName);
+		String expectedFolded = null;
+		if (foldedFile.exists()) {
+			expectedFolded = new String(Files.readAllBytes(foldedFile.toPath()),
+					StandardCharsets.UTF_8).replace("\r\n", "\n").trim();
+		}
+
+		try {
+
+			ProgramAST prog = new Splat(testFile).compile();
+			String folded = AstPrinter.toString(prog);
+
+			// Folding what is already folded should find nothing to do
+			new ConstantFolder(prog).fold();
+			if (!folded.equals(AstPrinter.toString(prog))) {
+				details.println(AstPrinter.toString(prog));
+				return TestRunner.Outcome.failed("folding again changed the program");
+			}
+
+			if (expectedFolded == null) {
+				if (verbose) {
+					details.println(folded);
+				}
+				return TestRunner.Outcome.passed("folding successful");
+			}
+
+			// Folded, but into the wrong program...fail
+			if (!expectedFolded.equals(folded)) {
+				details.println(folded);
+				return TestRunner.Outcome.failed("program does not match " + foldedName);
+			}
+
+			// What the folder made must still be a program
+			ProgramAST reparsed = new Parser(new Lexer(folded)).parse();
+			new SemanticAnalyzer(reparsed).analyze();
+			new ConstantFolder(reparsed).fold();
+			if (!folded.equals(AstPrinter.toString(reparsed))) {
+				details.println(AstPrinter.toString(reparsed));
+				return TestRunner.Outcome.failed("folded program does not parse back to itself");
+			}
+
+			if (verbose) {
+				details.println(folded);
+			}
+			return TestRunner.Outcome.passed("folded as expected");
+
+		} catch (SplatException ex) {
+
+			// Execution tests should all lex, parse and pass analysis
+			details.println(ex);
+			details.println();
+			return TestRunner.Outcome.failed("program did not compile");
+		}
+	}
+}
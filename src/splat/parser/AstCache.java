@@ -0,0 +1,110 @@
+package splat.parser;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import splat.lexer.LexException;
+import splat.lexer.Lexer;
+import splat.parser.elements.ProgramAST;
+
+/**
+ * Keeps the parsed programs in a directory, so a program that hasn't
+ * changed since it was last parsed is loaded instead of lexed and parsed.
+ *
+ * An entry is named by the SHA-256 hash of the compiler version and the
+ * program text, and holds the program as AstWriter writes it.  Entries
+ * are never out of date: a changed program, or a new compiler version,
+ * simply has a different name.  Entries are written to a temporary file
+ * first and then renamed, so several compilers, in one JVM or in many,
+ * can share the directory.
+ *
+ * The cache holds programs as they are parsed, so the ConstantFolder and
+ * the executors see the same tree either way.
+ */
+public class AstCache {
+
+	/**
+	 * Part of the name of every entry.  It must change whenever the lexer,
+	 * the parser, the elements or AstWriter change what a program parses
+	 * to, which makes every entry written before it invisible.
+	 */
+	public static final String VERSION = "splat-ast-2";
+
+	private File dir;
+
+	public AstCache(File dir) {
+		this.dir = dir;
+	}
+
+	/**
+	 * Parses the program file, or loads it if the same text has been
+	 * parsed before.
+	 */
+	public ProgramAST parse(File progFile) throws ParseException, LexException, IOException {
+		byte[] source = Files.readAllBytes(progFile.toPath());
+		File entry = new File(dir, key(source) + ".ast");
+
+		if (entry.isFile()) {
+			try {
+				return new AstReader(Files.readAllBytes(entry.toPath())).read(VERSION);
+			} catch (IOException ex) {
+				// A damaged entry is parsed again, and replaced
+			}
+		}
+
+		ProgramAST progAST = new Parser(new Lexer(ByteBuffer.wrap(source))).parse();
+		store(entry, new AstWriter().write(progAST, VERSION));
+		return progAST;
+	}
+
+	/*
+	 * Failing to store an entry only means the program is parsed again
+	 * next time, so it isn't an error.
+	 */
+	private void store(File entry, byte[] bytes) {
+		File temp = null;
+		try {
+			dir.mkdirs();
+			temp = File.createTempFile(entry.getName(), ".tmp", dir);
+			Files.write(temp.toPath(), bytes);
+			Files.move(temp.toPath(), entry.toPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+			temp = null;
+		} catch (IOException ex) {
+			// Not cached
+		} finally {
+			if (temp != null) {
+				temp.delete();
+			}
+		}
+	}
+
+	/**
+	 * @return the hash of the compiler version and the source, in hex
+	 */
+	static String key(byte[] source) {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException ex) {
+			// Every Java platform has SHA-256
+			throw new IllegalStateException(ex);
+		}
+		digest.update(VERSION.getBytes(StandardCharsets.UTF_8));
+		digest.update((byte) 0);
+		digest.update(source);
+
+		StringBuilder hex = new StringBuilder(64);
+		for (byte b : digest.digest()) {
+			hex.append(Character.forDigit((b >> 4) & 0xf, 16));
+			hex.append(Character.forDigit(b & 0xf, 16));
+		}
+		return hex.toString();
+	}
+}
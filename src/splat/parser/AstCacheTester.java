@@ -0,0 +1,163 @@
+package splat.parser;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import splat.SplatException;
+import splat.TestRunner;
+import splat.lexer.Lexer;
+import splat.parser.elements.ProgramAST;
+
+/**
+ * Checks that a program comes out of the AstCache the same as it went in.
+ * Every program that parses is written and read back, then parsed through
+ * a cache twice, once to store it and once to load it, and then again
+ * after its entry is cut short, and after bits of it are flipped.  Each
+ * time it must be the same as the program the Parser gives, down to the
+ * line and column of each element.  Programs that don't parse must fail
+ * through the cache with the same error.
+ *
+ * The program read back is also damaged a byte at a time, which the
+ * reader must notice, and must fail on only with an IOException even
+ * when the checksum is made to match, as it must on a count too big to
+ * be real.
+ */
+public class AstCacheTester {
+
+	private TestRunner runner;
+
+	public static void main(String[] args) {
+
+		AstCacheTester tester = new AstCacheTester(TestRunner.fromArgs(args));
+		tester.runTests();
+	}
+
+	public AstCacheTester(TestRunner runner) {
+		this.runner = runner;
+	}
+
+	public void runTests() {
+		runner.runSuite("AST CACHE", new TestRunner.Test() {
+			public TestRunner.Outcome run(File testFile, PrintStream details) throws Exception {
+				return runTest(testFile, details);
+			}
+		}, "_goodparse.splat", "_badparse.splat", "_goodexecution.splat");
+	}
+
+	/*
+	 * Has a cache directory of its own, as other files are tested at the
+	 * same time.
+	 */
+	private TestRunner.Outcome runTest(File testFile, PrintStream details) throws Exception {
+
+		String expected = parse(testFile);
+
+		File dir = Files.createTempDirectory("splat-cache").toFile();
+		try {
+			AstCache cache = new AstCache(dir);
+			String[] attempts = { "storing", "loading", "storing again", "loading damaged" };
+			for (String attempt : attempts) {
+				String actual = parse(cache, testFile);
+				if (!actual.equals(expected)) {
+					details.println("Parser:\n" + expected + "\nCache:\n" + actual);
+					return TestRunner.Outcome.failed(attempt + " differs");
+				}
+
+				File[] entries = dir.listFiles();
+				if (attempt.equals("storing") && entries.length != (expected.startsWith("error") ? 0 : 1)) {
+					return TestRunner.Outcome.failed(entries.length + " entries stored");
+				}
+
+				// Cut every entry short, which the last attempt must notice
+				if (attempt.equals("loading")) {
+					for (File entry : entries) {
+						byte[] bytes = Files.readAllBytes(entry.toPath());
+						Files.write(entry.toPath(), Arrays.copyOf(bytes, bytes.length / 2));
+					}
+				}
+
+				// Flip bits all through every entry, which the last attempt
+				// must notice too
+				if (attempt.equals("storing again")) {
+					for (File entry : entries) {
+						byte[] bytes = Files.readAllBytes(entry.toPath());
+						for (int i = 0; i < bytes.length; i += 7) {
+							bytes[i] ^= 0x5a;
+						}
+						Files.write(entry.toPath(), bytes);
+					}
+				}
+			}
+		} finally {
+			for (File entry : dir.listFiles()) {
+				entry.delete();
+			}
+			dir.delete();
+		}
+
+		if (!expected.startsWith("error")) {
+			ProgramAST prog = new Parser(new Lexer(testFile)).parse();
+			byte[] bytes = new AstWriter().write(prog, AstCache.VERSION);
+			String actual = IncrementalParserTester.describe(new AstReader(bytes).read(AstCache.VERSION));
+			if (!actual.equals(expected)) {
+				details.println("Parser:\n" + expected + "\nRead back:\n" + actual);
+				return TestRunner.Outcome.failed("reading back differs");
+			}
+
+			for (int i = 0; i < bytes.length; i++) {
+				byte[] damaged = bytes.clone();
+				damaged[i] ^= 0x5a;
+				if (reads(damaged)) {
+					return TestRunner.Outcome.failed("damage to byte " + i + " not noticed");
+				}
+
+				// Any other exception fails the test as it is
+				AstWriter.seal(damaged);
+				reads(damaged);
+
+				// Make the number at i as big as numbers get, which as a
+				// count must not be allocated for
+				damaged = bytes.clone();
+				Arrays.fill(damaged, i, Math.min(i + 4, damaged.length), (byte) 0xff);
+				if (i + 4 < damaged.length) {
+					damaged[i + 4] = 0x07;
+				}
+				AstWriter.seal(damaged);
+				reads(damaged);
+			}
+			return TestRunner.Outcome.passed(bytes.length + " bytes");
+		}
+		return TestRunner.Outcome.passed("same error");
+	}
+
+	/**
+	 * @return true if the program was read, false for an IOException
+	 */
+	private static boolean reads(byte[] bytes) {
+		try {
+			new AstReader(bytes).read(AstCache.VERSION);
+			return true;
+		} catch (IOException ex) {
+			return false;
+		}
+	}
+
+	private static String parse(File testFile) throws IOException {
+		try {
+			return IncrementalParserTester.describe(new Parser(new Lexer(testFile)).parse());
+		} catch (SplatException ex) {
+			return "error: " + ex.getMessage();
+		}
+	}
+
+	private static String parse(AstCache cache, File testFile) throws IOException {
+		try {
+			return IncrementalParserTester.describe(cache.parse(testFile));
+		} catch (SplatException ex) {
+			return "error: " + ex.getMessage();
+		}
+	}
+}
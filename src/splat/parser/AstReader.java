@@ -0,0 +1,251 @@
+package splat.parser;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import splat.lexer.LineMap;
+import splat.lexer.Token;
+import splat.parser.elements.*;
+
+import static splat.parser.AstWriter.*;
+
+/**
+ * Reads back a program written by AstWriter.
+ */
+public class AstReader {
+
+	private static final Type[] TYPES = Type.values();
+	private static final ReturnType[] RETURN_TYPES = ReturnType.values();
+
+	private byte[] bytes;
+	private ByteBuffer in;
+	private List<String> strings;
+	private int lastOffset;
+
+	public AstReader(byte[] bytes) {
+		this.bytes = bytes;
+		this.in = ByteBuffer.wrap(bytes);
+		this.strings = new ArrayList<String>();
+	}
+
+	/**
+	 * @param version compiler version the program must have been written
+	 * 			with
+	 * @return the program
+	 * @throws IOException if the bytes are not a program written with this
+	 * 			version, or have been damaged
+	 */
+	public ProgramAST read(String version) throws IOException {
+		if (bytes.length < 4 || in.getInt(bytes.length - 4) != checksum(bytes)) {
+			throw new IOException("Program is corrupt");
+		}
+		in.limit(bytes.length - 4);
+
+		// Bytes that pass the checksum can still be wrong, so every way of
+		// failing to decode them is turned into an IOException
+		try {
+			if (in.getInt() != MAGIC || !readString().equals(version)) {
+				throw new IOException("Not written by compiler version " + version);
+			}
+
+			int lineCount = readCount();
+			if (lineCount < 1) {
+				throw new IOException("Program is corrupt");
+			}
+			int[] lineStarts = new int[lineCount];
+			for (int i = 1; i < lineStarts.length; i++) {
+				lineStarts[i] = lineStarts[i - 1] + readNumber();
+			}
+			LineMap lines = new LineMap(lineStarts);
+
+			Token startTok = readPosition();
+			int declCount = readCount();
+			List<Declaration> decls = new ArrayList<Declaration>(declCount);
+			for (int i = 0; i < declCount; i++) {
+				decls.add(readDecl());
+			}
+			List<Statement> stmts = readStmts();
+
+			if (in.hasRemaining()) {
+				throw new IOException("Unexpected bytes after the program");
+			}
+			return new ProgramAST(decls, stmts, startTok, lines);
+
+		} catch (BufferUnderflowException ex) {
+			throw new IOException("Program is cut short");
+		} catch (RuntimeException ex) {
+			throw new IOException("Program is corrupt", ex);
+		} catch (StackOverflowError ex) {
+			throw new IOException("Program is nested too deeply to read");
+		}
+	}
+
+	private Declaration readDecl() throws IOException {
+		int tag = in.get();
+		Token tok = readPosition();
+
+		if (tag == VAR_DECL) {
+			String label = readString();
+			return new VariableDecl(tok, label, TYPES[in.get()]);
+
+		} else if (tag == FUNC_DECL) {
+			String label = readString();
+			int paramCount = readCount();
+			List<Param> params = new ArrayList<Param>(paramCount);
+			for (int i = 0; i < paramCount; i++) {
+				Token paramTok = readPosition();
+				String paramLabel = readString();
+				params.add(new Param(paramTok, paramLabel, TYPES[in.get()]));
+			}
+			ReturnType retType = RETURN_TYPES[in.get()];
+			int varCount = readCount();
+			List<VariableDecl> localVarDecls = new ArrayList<VariableDecl>(varCount);
+			for (int i = 0; i < varCount; i++) {
+				Token varTok = readPosition();
+				String varLabel = readString();
+				localVarDecls.add(new VariableDecl(varTok, varLabel, TYPES[in.get()]));
+			}
+			List<Statement> stmts = readStmts();
+			return new FunctionDecl(tok, label, params, retType, localVarDecls, stmts);
+		}
+		throw new IOException("Unknown declaration tag " + tag);
+	}
+
+	private List<Statement> readStmts() throws IOException {
+		int count = readCount();
+		List<Statement> stmts = new ArrayList<Statement>(count);
+		for (int i = 0; i < count; i++) {
+			stmts.add(readStmt());
+		}
+		return stmts;
+	}
+
+	private Statement readStmt() throws IOException {
+		int tag = in.get();
+		Token tok = readPosition();
+
+		switch (tag) {
+			case ASSIGN:
+				String label = readString();
+				return new AssignmentStmt(tok, label, readExpr());
+			case PRINT:
+				return new PrintStmt(tok, readExpr());
+			case PRINT_LINE:
+				return new PrintLineStmt(tok);
+			case RETURN:
+				return new ReturnStmt(tok);
+			case RETURN_VALUE:
+				return new ReturnStmt(tok, readExpr());
+			case CALL_STMT: {
+				Expression callLabel = readExpr();
+				return new NonVoidFunctionCallStmt(tok, callLabel, readExpr());
+			}
+			case IF: {
+				Expression expr = readExpr();
+				return new IfConditionStmt(tok, expr, readStmts());
+			}
+			case IF_ELSE: {
+				Expression expr = readExpr();
+				List<Statement> stmts1 = readStmts();
+				return new IfConditionStmt(tok, expr, stmts1, readStmts());
+			}
+			case WHILE: {
+				Expression expr = readExpr();
+				return new WhileDoStmt(tok, expr, readStmts());
+			}
+			default:
+				throw new IOException("Unknown statement tag " + tag);
+		}
+	}
+
+	private Expression readExpr() throws IOException {
+		int tag = in.get();
+		Token tok = readPosition();
+
+		switch (tag) {
+			case BINARY: {
+				String operator = readString();
+				Expression expr1 = readExpr();
+				return new BinaryOpExpr(tok, operator, expr1, readExpr());
+			}
+			case UNARY: {
+				String operator = readString();
+				return new UnaryOpExpr(tok, operator, readExpr());
+			}
+			case LABEL:
+				return new LabelExpr(tok, readString());
+			case LITERAL:
+				return new LiteralExpr(tok, readString());
+			case CALL_EXPR: {
+				Expression label = readExpr();
+				return new NonVoidFunctionCallExpr(tok, label, readExpr());
+			}
+			case ARGS: {
+				int count = readCount();
+				List<Expression> args = new ArrayList<Expression>(count);
+				for (int i = 0; i < count; i++) {
+					args.add(readExpr());
+				}
+				return new ArgsExpr(tok, args);
+			}
+			default:
+				throw new IOException("Unknown expression tag " + tag);
+		}
+	}
+
+	/*
+	 * Elements only keep where the token they are made from is, so that
+	 * is all the token has
+	 */
+	private Token readPosition() {
+		int zigzag = readNumber();
+		lastOffset += (zigzag >>> 1) ^ -(zigzag & 1);
+		return new Token(null, null, lastOffset);
+	}
+
+	private String readString() throws IOException {
+		int index = readNumber();
+		if (index != 0) {
+			return strings.get(index - 1);
+		}
+
+		int length = readNumber();
+		if (length < 0) {
+			throw new IOException("Program is corrupt");
+		} else if (length > in.remaining()) {
+			throw new IOException("Program is cut short");
+		}
+		String s = new String(in.array(), in.position(), length, StandardCharsets.UTF_8);
+		in.position(in.position() + length);
+		strings.add(s);
+		return s;
+	}
+
+	/*
+	 * Every element of a list takes a byte at least, so a count of more
+	 * than are left can only be damage, and must not be allocated for
+	 */
+	private int readCount() throws IOException {
+		int count = readNumber();
+		if (count < 0 || count > in.remaining()) {
+			throw new IOException("Program is corrupt");
+		}
+		return count;
+	}
+
+	private int readNumber() {
+		int n = 0;
+		int shift = 0;
+		int b;
+		do {
+			b = in.get();
+			n |= (b & 0x7f) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+		return n;
+	}
+}
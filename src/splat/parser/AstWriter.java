@@ -0,0 +1,286 @@
+package splat.parser;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import splat.parser.elements.*;
+
+/**
+ * Writes a program in the binary form the AstCache keeps on disk, which
+ * AstReader reads back.
+ *
+ * The line starts of the program come first.  Then each element is a tag
+ * byte, its offset, and then its fields, with lists written as a count
+ * followed by the elements.  Numbers are written in 7 bits a byte, and
+ * offsets as the difference from the offset before, so most take one
+ * byte.  A string is written out the first time it is used, and after
+ * that only as its index, so a label used many times costs a byte or two
+ * each time.  A CRC-32 of all of that ends the entry, so an entry damaged
+ * on disk is noticed instead of read as a different program.
+ */
+public class AstWriter {
+
+	// Starts every entry, ahead of the version
+	static final int MAGIC = 0x53504c41;	// SPLA
+
+	// Tags of the elements
+	static final int VAR_DECL = 1;
+	static final int FUNC_DECL = 2;
+	static final int ASSIGN = 3;
+	static final int PRINT = 4;
+	static final int PRINT_LINE = 5;
+	static final int RETURN = 6;
+	static final int RETURN_VALUE = 7;
+	static final int CALL_STMT = 8;
+	static final int IF = 9;
+	static final int IF_ELSE = 10;
+	static final int WHILE = 11;
+	static final int BINARY = 12;
+	static final int UNARY = 13;
+	static final int LABEL = 14;
+	static final int LITERAL = 15;
+	static final int CALL_EXPR = 16;
+	static final int ARGS = 17;
+
+	private ByteArrayOutputStream out;
+	private Map<String, Integer> strings;
+	private int lastOffset;
+
+	public AstWriter() {
+		this.out = new ByteArrayOutputStream(4096);
+		this.strings = new HashMap<String, Integer>();
+	}
+
+	/**
+	 * @param version compiler version, which the reader must be given
+	 * 			too, or it won't read the program
+	 * @return the program, in binary
+	 */
+	public byte[] write(ProgramAST progAST, String version) {
+		writeInt(MAGIC);
+		writeString(version);
+
+		int[] lineStarts = progAST.getLineMap().getLineStarts();
+		writeNumber(lineStarts.length);
+		for (int i = 1; i < lineStarts.length; i++) {
+			writeNumber(lineStarts[i] - lineStarts[i - 1]);
+		}
+
+		writePosition(progAST);
+		writeNumber(progAST.getDecls().size());
+		for (Declaration decl : progAST.getDecls()) {
+			writeDecl(decl);
+		}
+		writeStmts(progAST.getStmts());
+		writeInt(0);
+
+		byte[] bytes = out.toByteArray();
+		seal(bytes);
+		return bytes;
+	}
+
+	/**
+	 * @return the CRC-32 of an entry, all but its last four bytes
+	 */
+	static int checksum(byte[] bytes) {
+		CRC32 crc = new CRC32();
+		crc.update(bytes, 0, bytes.length - 4);
+		return (int) crc.getValue();
+	}
+
+	/**
+	 * Sets the last four bytes of an entry to its checksum.
+	 */
+	static void seal(byte[] bytes) {
+		int crc = checksum(bytes);
+		int end = bytes.length;
+		bytes[end - 4] = (byte) (crc >>> 24);
+		bytes[end - 3] = (byte) (crc >>> 16);
+		bytes[end - 2] = (byte) (crc >>> 8);
+		bytes[end - 1] = (byte) crc;
+	}
+
+	private void writeDecl(Declaration decl) {
+		if (decl instanceof VariableDecl) {
+			VariableDecl var = (VariableDecl) decl;
+			writeElement(VAR_DECL, var);
+			writeString(var.label);
+			out.write(var.type.ordinal());
+
+		} else if (decl instanceof FunctionDecl) {
+			FunctionDecl func = (FunctionDecl) decl;
+			writeElement(FUNC_DECL, func);
+			writeString(func.label);
+			writeNumber(func.params.size());
+			for (Param param : func.params) {
+				writePosition(param);
+				writeString(param.label);
+				out.write(param.type.ordinal());
+			}
+			out.write(func.retType.ordinal());
+			writeNumber(func.localVarDecls.size());
+			for (VariableDecl var : func.localVarDecls) {
+				writePosition(var);
+				writeString(var.label);
+				out.write(var.type.ordinal());
+			}
+			writeStmts(func.stmts);
+
+		} else {
+			throw new IllegalArgumentException("Cannot write " + decl.getClass().getSimpleName());
+		}
+	}
+
+	private void writeStmts(List<Statement> stmts) {
+		writeNumber(stmts.size());
+		for (Statement stmt : stmts) {
+			writeStmt(stmt);
+		}
+	}
+
+	private void writeStmt(Statement stmt) {
+		if (stmt instanceof AssignmentStmt) {
+			AssignmentStmt assign = (AssignmentStmt) stmt;
+			writeElement(ASSIGN, assign);
+			writeString(assign.label);
+			writeExpr(assign.expr);
+
+		} else if (stmt instanceof PrintStmt) {
+			writeElement(PRINT, stmt);
+			writeExpr(((PrintStmt) stmt).expr);
+
+		} else if (stmt instanceof PrintLineStmt) {
+			writeElement(PRINT_LINE, stmt);
+
+		} else if (stmt instanceof ReturnStmt) {
+			ReturnStmt ret = (ReturnStmt) stmt;
+			if (ret.expr == null) {
+				writeElement(RETURN, ret);
+			} else {
+				writeElement(RETURN_VALUE, ret);
+				writeExpr(ret.expr);
+			}
+
+		} else if (stmt instanceof NonVoidFunctionCallStmt) {
+			NonVoidFunctionCallStmt call = (NonVoidFunctionCallStmt) stmt;
+			writeElement(CALL_STMT, call);
+			writeExpr(call.label);
+			writeExpr(call.args);
+
+		} else if (stmt instanceof IfConditionStmt) {
+			IfConditionStmt ifStmt = (IfConditionStmt) stmt;
+			writeElement(ifStmt.stmts2 == null ? IF : IF_ELSE, ifStmt);
+			writeExpr(ifStmt.expr);
+			writeStmts(ifStmt.stmts1);
+			if (ifStmt.stmts2 != null) {
+				writeStmts(ifStmt.stmts2);
+			}
+
+		} else if (stmt instanceof WhileDoStmt) {
+			WhileDoStmt whileStmt = (WhileDoStmt) stmt;
+			writeElement(WHILE, whileStmt);
+			writeExpr(whileStmt.expr);
+			writeStmts(whileStmt.stmts);
+
+		} else {
+			throw new IllegalArgumentException("Cannot write " + stmt.getClass().getSimpleName());
+		}
+	}
+
+	private void writeExpr(Expression expr) {
+		if (expr instanceof BinaryOpExpr) {
+			BinaryOpExpr binary = (BinaryOpExpr) expr;
+			writeElement(BINARY, binary);
+			writeString(binary.operator);
+			writeExpr(binary.expr1);
+			writeExpr(binary.expr2);
+
+		} else if (expr instanceof UnaryOpExpr) {
+			UnaryOpExpr unary = (UnaryOpExpr) expr;
+			writeElement(UNARY, unary);
+			writeString(unary.operator);
+			writeExpr(unary.expr);
+
+		} else if (expr instanceof LabelExpr) {
+			writeElement(LABEL, expr);
+			writeString(((LabelExpr) expr).value);
+
+		} else if (expr instanceof LiteralExpr) {
+			writeElement(LITERAL, expr);
+			writeString(((LiteralExpr) expr).value);
+
+		} else if (expr instanceof NonVoidFunctionCallExpr) {
+			NonVoidFunctionCallExpr call = (NonVoidFunctionCallExpr) expr;
+			writeElement(CALL_EXPR, call);
+			writeExpr(call.label);
+			writeExpr(call.args);
+
+		} else if (expr instanceof ArgsExpr) {
+			List<Expression> args = ((ArgsExpr) expr).args;
+			writeElement(ARGS, expr);
+			writeNumber(args.size());
+			for (Expression arg : args) {
+				writeExpr(arg);
+			}
+
+		} else {
+			throw new IllegalArgumentException("Cannot write " + expr.getClass().getSimpleName());
+		}
+	}
+
+	private void writeElement(int tag, ASTElement elem) {
+		out.write(tag);
+		writePosition(elem);
+	}
+
+	/*
+	 * Elements mostly come in the order of the text, so the offset is
+	 * written as how far it is from the one before, zigzag encoded so
+	 * that small steps back are small numbers too
+	 */
+	private void writePosition(ASTElement elem) {
+		int step = elem.getOffset() - lastOffset;
+		writeNumber((step << 1) ^ (step >> 31));
+		lastOffset = elem.getOffset();
+	}
+
+	/*
+	 * Index 0 introduces a new string, any other is one written before
+	 */
+	private void writeString(String s) {
+		Integer index = strings.get(s);
+		if (index != null) {
+			writeNumber(index);
+			return;
+		}
+		strings.put(s, strings.size() + 1);
+
+		byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		writeNumber(0);
+		writeNumber(bytes.length);
+		out.write(bytes, 0, bytes.length);
+	}
+
+	/*
+	 * Writes a number that is not negative, 7 bits at a time, low bits
+	 * first, with the top bit set on every byte but the last
+	 */
+	private void writeNumber(int n) {
+		while ((n & ~0x7f) != 0) {
+			out.write((n & 0x7f) | 0x80);
+			n >>>= 7;
+		}
+		out.write(n);
+	}
+
+	private void writeInt(int n) {
+		out.write(n >>> 24);
+		out.write(n >>> 16);
+		out.write(n >>> 8);
+		out.write(n);
+	}
+}
@@ -0,0 +1,111 @@
+package splat.parser;
+
+import java.util.List;
+
+import splat.lexer.LineMap;
+import splat.lexer.Token;
+import splat.parser.elements.*;
+
+/**
+ * Makes the Parser's nodes into elements, the program the rest of the
+ * compiler works on.
+ */
+class ElementBuilder implements NodeBuilder<ASTElement> {
+
+	private LineMap lines;
+
+	/**
+	 * @param lines the map of the program the tokens are from
+	 */
+	ElementBuilder(LineMap lines) {
+		this.lines = lines;
+	}
+
+	/**
+	 * The Parser only puts the elements of one production in a list, so
+	 * the list can be taken as a list of those.
+	 */
+	@SuppressWarnings("unchecked")
+	static <T extends ASTElement> List<T> listOf(List<ASTElement> elements) {
+		return (List<T>) (List<?>) elements;
+	}
+
+	public ASTElement program(Token tok, List<ASTElement> decls, List<ASTElement> stmts) {
+		return new ProgramAST(ElementBuilder.<Declaration>listOf(decls),
+				ElementBuilder.<Statement>listOf(stmts), tok, lines);
+	}
+
+	public ASTElement varDecl(Token tok, String label, Type type) {
+		return new VariableDecl(tok, label, type);
+	}
+
+	public ASTElement param(Token tok, String label, Type type) {
+		return new Param(tok, label, type);
+	}
+
+	public ASTElement funcDecl(Token tok, String label, List<ASTElement> params,
+			ReturnType retType, List<ASTElement> localVarDecls, List<ASTElement> stmts) {
+		return new FunctionDecl(tok, label, ElementBuilder.<Param>listOf(params), retType,
+				ElementBuilder.<VariableDecl>listOf(localVarDecls),
+				ElementBuilder.<Statement>listOf(stmts));
+	}
+
+	public ASTElement assign(Token tok, String label, ASTElement expr) {
+		return new AssignmentStmt(tok, label, (Expression) expr);
+	}
+
+	public ASTElement print(Token tok, ASTElement expr) {
+		return new PrintStmt(tok, (Expression) expr);
+	}
+
+	public ASTElement printLine(Token tok) {
+		return new PrintLineStmt(tok);
+	}
+
+	public ASTElement returnStmt(Token tok, ASTElement expr) {
+		if (expr == null) {
+			return new ReturnStmt(tok);
+		}
+		return new ReturnStmt(tok, (Expression) expr);
+	}
+
+	public ASTElement callStmt(Token tok, String label, List<ASTElement> args) {
+		return new NonVoidFunctionCallStmt(tok, new LabelExpr(tok, label),
+				new ArgsExpr(tok, ElementBuilder.<Expression>listOf(args)));
+	}
+
+	public ASTElement ifStmt(Token tok, ASTElement expr, List<ASTElement> stmts1,
+			List<ASTElement> stmts2) {
+		if (stmts2 == null) {
+			return new IfConditionStmt(tok, (Expression) expr,
+					ElementBuilder.<Statement>listOf(stmts1));
+		}
+		return new IfConditionStmt(tok, (Expression) expr, ElementBuilder.<Statement>listOf(stmts1),
+				ElementBuilder.<Statement>listOf(stmts2));
+	}
+
+	public ASTElement whileStmt(Token tok, ASTElement expr, List<ASTElement> stmts) {
+		return new WhileDoStmt(tok, (Expression) expr, ElementBuilder.<Statement>listOf(stmts));
+	}
+
+	public ASTElement binary(Token tok, String operator, ASTElement expr1, ASTElement expr2) {
+		return new BinaryOpExpr(tok, operator, (Expression) expr1, (Expression) expr2);
+	}
+
+	public ASTElement unary(Token tok, String operator, ASTElement expr) {
+		return new UnaryOpExpr(tok, operator, (Expression) expr);
+	}
+
+	public ASTElement label(Token tok, String label) {
+		return new LabelExpr(tok, label);
+	}
+
+	public ASTElement literal(Token tok, String text) {
+		return new LiteralExpr(tok, text);
+	}
+
+	public ASTElement call(Token tok, String label, List<ASTElement> args) {
+		return new NonVoidFunctionCallExpr(tok, new LabelExpr(tok, label),
+				new ArgsExpr(tok, ElementBuilder.<Expression>listOf(args)));
+	}
+}
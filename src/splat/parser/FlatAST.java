@@ -0,0 +1,443 @@
+package splat.parser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import splat.lexer.LineMap;
+import splat.lexer.Token;
+import splat.parser.elements.*;
+
+/**
+ * A program held in a few flat arrays instead of one object per element,
+ * for programs with millions of elements.  Parser.parseFlat() builds one
+ * straight from the tokens.
+ *
+ * Node n has a kind, the offset of its token, and operands, which are ints at
+ * operand(n, 0), operand(n, 1) ... and mean different things for each
+ * kind:
+ *
+ *   PROGRAM		decls (LIST), stmts (LIST)
+ *   VAR_DECL		label (string), type (Type ordinal)
+ *   PARAM		label (string), type (Type ordinal)
+ *   FUNC_DECL	label (string), params (LIST), return type (ReturnType
+ *   				ordinal), local variables (LIST), stmts (LIST)
+ *   ASSIGN		label (string), expr
+ *   PRINT		expr
+ *   PRINT_LINE
+ *   RETURN		expr, or NONE
+ *   CALL_STMT	label (string), args (LIST)
+ *   IF			expr, stmts (LIST), else stmts (LIST), or NONE
+ *   WHILE		expr, stmts (LIST)
+ *   BINARY		operator (string), expr, expr
+ *   UNARY		operator (string), expr
+ *   LABEL		label (string)
+ *   LITERAL		text (string), as LiteralExpr.value
+ *   CALL_EXPR	label (string), args (LIST)
+ *   LIST			count, then that many nodes
+ *
+ * A string operand is an index into the string pool, which holds each
+ * distinct string once.  Children always come before their parent, so
+ * the root is the last node.  Lines and columns are found through the
+ * program's LineMap.
+ */
+public class FlatAST {
+
+	// Kinds of nodes
+	public static final byte PROGRAM = 0;
+	public static final byte VAR_DECL = 1;
+	public static final byte PARAM = 2;
+	public static final byte FUNC_DECL = 3;
+	public static final byte ASSIGN = 4;
+	public static final byte PRINT = 5;
+	public static final byte PRINT_LINE = 6;
+	public static final byte RETURN = 7;
+	public static final byte CALL_STMT = 8;
+	public static final byte IF = 9;
+	public static final byte WHILE = 10;
+	public static final byte BINARY = 11;
+	public static final byte UNARY = 12;
+	public static final byte LABEL = 13;
+	public static final byte LITERAL = 14;
+	public static final byte CALL_EXPR = 15;
+	public static final byte LIST = 16;
+
+	// Operand of a missing node, such as a return without a value
+	public static final int NONE = -1;
+
+	private byte[] kinds;
+	private int[] offsets;
+	private int[] firsts;		// index of the first operand in operands
+	private int[] operands;
+	private String[] strings;
+	private LineMap lines;
+	private int size;
+
+	private FlatAST(Builder builder) {
+		this.size = builder.size;
+		this.kinds = Arrays.copyOf(builder.kinds, size);
+		this.offsets = Arrays.copyOf(builder.offsets, size);
+		this.firsts = Arrays.copyOf(builder.firsts, size + 1);
+		this.operands = Arrays.copyOf(builder.operands, builder.firsts[size]);
+		this.strings = builder.strings.toArray(new String[builder.strings.size()]);
+		this.lines = builder.lines;
+	}
+
+	/**
+	 * @return the number of nodes
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return the PROGRAM node
+	 */
+	public int getRoot() {
+		return size - 1;
+	}
+
+	public byte kind(int node) {
+		return kinds[node];
+	}
+
+	public int operand(int node, int i) {
+		return operands[firsts[node] + i];
+	}
+
+	/**
+	 * @return the string the operand is the index of
+	 */
+	public String string(int node, int i) {
+		return strings[operand(node, i)];
+	}
+
+	/**
+	 * @return the number of nodes in a LIST node
+	 */
+	public int count(int list) {
+		return operand(list, 0);
+	}
+
+	/**
+	 * @return the i'th node of a LIST node
+	 */
+	public int element(int list, int i) {
+		return operand(list, 1 + i);
+	}
+
+	public int offset(int node) {
+		return offsets[node];
+	}
+
+	public int line(int node) {
+		return lines.lineOf(offsets[node]);
+	}
+
+	public int column(int node) {
+		return lines.columnOf(offsets[node]);
+	}
+
+	/**
+	 * @return roughly how many bytes the arrays take
+	 */
+	public long byteSize() {
+		long bytes = kinds.length + 4L * (offsets.length + firsts.length + operands.length);
+		for (String s : strings) {
+			bytes += 40 + 2L * s.length();
+		}
+		return bytes;
+	}
+
+	/**
+	 * Builds the same program out of elements, for the executors, which
+	 * only run those.
+	 */
+	public ProgramAST toProgramAST() {
+		int root = getRoot();
+		int decls = operand(root, 0);
+		List<Declaration> declList = new ArrayList<Declaration>(count(decls));
+		for (int i = 0; i < count(decls); i++) {
+			declList.add(toDecl(element(decls, i)));
+		}
+		return new ProgramAST(declList, toStmts(operand(root, 1)), tokenOf(root), lines);
+	}
+
+	private Declaration toDecl(int node) {
+		if (kind(node) == VAR_DECL) {
+			return toVar(node);
+		}
+
+		int params = operand(node, 1);
+		List<Param> paramList = new ArrayList<Param>(count(params));
+		for (int i = 0; i < count(params); i++) {
+			int param = element(params, i);
+			paramList.add(new Param(tokenOf(param), string(param, 0),
+					Type.values()[operand(param, 1)]));
+		}
+		int vars = operand(node, 3);
+		List<VariableDecl> varList = new ArrayList<VariableDecl>(count(vars));
+		for (int i = 0; i < count(vars); i++) {
+			varList.add(toVar(element(vars, i)));
+		}
+		return new FunctionDecl(tokenOf(node), string(node, 0), paramList,
+				ReturnType.values()[operand(node, 2)], varList, toStmts(operand(node, 4)));
+	}
+
+	private VariableDecl toVar(int node) {
+		return new VariableDecl(tokenOf(node), string(node, 0), Type.values()[operand(node, 1)]);
+	}
+
+	private List<Statement> toStmts(int list) {
+		List<Statement> stmts = new ArrayList<Statement>(count(list));
+		for (int i = 0; i < count(list); i++) {
+			stmts.add(toStmt(element(list, i)));
+		}
+		return stmts;
+	}
+
+	private Statement toStmt(int node) {
+		Token tok = tokenOf(node);
+		switch (kind(node)) {
+			case ASSIGN:
+				return new AssignmentStmt(tok, string(node, 0), toExpr(operand(node, 1)));
+			case PRINT:
+				return new PrintStmt(tok, toExpr(operand(node, 0)));
+			case PRINT_LINE:
+				return new PrintLineStmt(tok);
+			case RETURN:
+				if (operand(node, 0) == NONE) {
+					return new ReturnStmt(tok);
+				}
+				return new ReturnStmt(tok, toExpr(operand(node, 0)));
+			case CALL_STMT:
+				return new NonVoidFunctionCallStmt(tok, new LabelExpr(tok, string(node, 0)),
+						toArgs(tok, operand(node, 1)));
+			case IF:
+				if (operand(node, 2) == NONE) {
+					return new IfConditionStmt(tok, toExpr(operand(node, 0)), toStmts(operand(node, 1)));
+				}
+				return new IfConditionStmt(tok, toExpr(operand(node, 0)), toStmts(operand(node, 1)),
+						toStmts(operand(node, 2)));
+			case WHILE:
+				return new WhileDoStmt(tok, toExpr(operand(node, 0)), toStmts(operand(node, 1)));
+			default:
+				throw new IllegalStateException("Node " + node + " is not a statement");
+		}
+	}
+
+	private Expression toExpr(int node) {
+		Token tok = tokenOf(node);
+		switch (kind(node)) {
+			case BINARY:
+				return new BinaryOpExpr(tok, string(node, 0), toExpr(operand(node, 1)),
+						toExpr(operand(node, 2)));
+			case UNARY:
+				return new UnaryOpExpr(tok, string(node, 0), toExpr(operand(node, 1)));
+			case LABEL:
+				return new LabelExpr(tok, string(node, 0));
+			case LITERAL:
+				return new LiteralExpr(tok, string(node, 0));
+			case CALL_EXPR:
+				return new NonVoidFunctionCallExpr(tok, new LabelExpr(tok, string(node, 0)),
+						toArgs(tok, operand(node, 1)));
+			default:
+				throw new IllegalStateException("Node " + node + " is not an expression");
+		}
+	}
+
+	private ArgsExpr toArgs(Token tok, int list) {
+		List<Expression> args = new ArrayList<Expression>(count(list));
+		for (int i = 0; i < count(list); i++) {
+			args.add(toExpr(element(list, i)));
+		}
+		return new ArgsExpr(tok, args);
+	}
+
+	/*
+	 * Elements only keep where their token is
+	 */
+	private Token tokenOf(int node) {
+		return new Token(null, null, offsets[node]);
+	}
+
+	/**
+	 * Makes the Parser's nodes into a FlatAST.  A node is added when the
+	 * Parser makes it, after its children, and is its index.
+	 */
+	static class Builder implements NodeBuilder<Integer> {
+
+		private byte[] kinds = new byte[1024];
+		private int[] offsets = new int[1024];
+		private int[] firsts = new int[1025];
+		private int[] operands = new int[2048];
+		private int size;
+		private LineMap lines;
+
+		private List<String> strings = new ArrayList<String>();
+		private Map<String, Integer> stringIndex = new HashMap<String, Integer>();
+
+		/**
+		 * @param lines the map of the program the tokens are from
+		 */
+		Builder(LineMap lines) {
+			this.lines = lines;
+		}
+
+		public Integer program(Token tok, List<Integer> decls, List<Integer> stmts) {
+			return add(PROGRAM, tok, list(decls), list(stmts));
+		}
+
+		public Integer varDecl(Token tok, String label, Type type) {
+			return add(VAR_DECL, tok, string(label), type.ordinal());
+		}
+
+		public Integer param(Token tok, String label, Type type) {
+			return add(PARAM, tok, string(label), type.ordinal());
+		}
+
+		public Integer funcDecl(Token tok, String label, List<Integer> params,
+				ReturnType retType, List<Integer> localVarDecls, List<Integer> stmts) {
+			return add(FUNC_DECL, tok, string(label), list(params), retType.ordinal(),
+					list(localVarDecls), list(stmts));
+		}
+
+		public Integer assign(Token tok, String label, Integer expr) {
+			return add(ASSIGN, tok, string(label), expr);
+		}
+
+		public Integer print(Token tok, Integer expr) {
+			return add(PRINT, tok, expr);
+		}
+
+		public Integer printLine(Token tok) {
+			return add(PRINT_LINE, tok);
+		}
+
+		public Integer returnStmt(Token tok, Integer expr) {
+			return add(RETURN, tok, expr == null ? NONE : expr);
+		}
+
+		public Integer callStmt(Token tok, String label, List<Integer> args) {
+			return add(CALL_STMT, tok, string(label), list(args));
+		}
+
+		public Integer ifStmt(Token tok, Integer expr, List<Integer> stmts1, List<Integer> stmts2) {
+			return add(IF, tok, expr, list(stmts1), stmts2 == null ? NONE : list(stmts2));
+		}
+
+		public Integer whileStmt(Token tok, Integer expr, List<Integer> stmts) {
+			return add(WHILE, tok, expr, list(stmts));
+		}
+
+		public Integer binary(Token tok, String operator, Integer expr1, Integer expr2) {
+			return add(BINARY, tok, string(operator), expr1, expr2);
+		}
+
+		public Integer unary(Token tok, String operator, Integer expr) {
+			return add(UNARY, tok, string(operator), expr);
+		}
+
+		public Integer label(Token tok, String label) {
+			return add(LABEL, tok, string(label));
+		}
+
+		public Integer literal(Token tok, String text) {
+			return add(LITERAL, tok, string(text));
+		}
+
+		public Integer call(Token tok, String label, List<Integer> args) {
+			return add(CALL_EXPR, tok, string(label), list(args));
+		}
+
+		private int add(byte kind, Token tok) {
+			return begin(kind, tok);
+		}
+
+		private int add(byte kind, Token tok, int a) {
+			begin(kind, tok);
+			operand(a);
+			return size - 1;
+		}
+
+		private int add(byte kind, Token tok, int a, int b) {
+			begin(kind, tok);
+			operand(a);
+			operand(b);
+			return size - 1;
+		}
+
+		private int add(byte kind, Token tok, int a, int b, int c) {
+			begin(kind, tok);
+			operand(a);
+			operand(b);
+			operand(c);
+			return size - 1;
+		}
+
+		private int add(byte kind, Token tok, int a, int b, int c, int d, int e) {
+			begin(kind, tok);
+			operand(a);
+			operand(b);
+			operand(c);
+			operand(d);
+			operand(e);
+			return size - 1;
+		}
+
+		/*
+		 * @return the index of the string in the pool
+		 */
+		private int string(String s) {
+			Integer index = stringIndex.get(s);
+			if (index == null) {
+				index = strings.size();
+				strings.add(s);
+				stringIndex.put(s, index);
+			}
+			return index;
+		}
+
+		/*
+		 * @return a LIST node of the nodes
+		 */
+		private int list(List<Integer> nodes) {
+			begin(LIST, null);
+			operand(nodes.size());
+			for (int node : nodes) {
+				operand(node);
+			}
+			return size - 1;
+		}
+
+		FlatAST build() {
+			return new FlatAST(this);
+		}
+
+		private int begin(byte kind, Token tok) {
+			if (size + 1 == firsts.length) {
+				kinds = Arrays.copyOf(kinds, size * 2);
+				offsets = Arrays.copyOf(offsets, size * 2);
+				firsts = Arrays.copyOf(firsts, size * 2 + 1);
+			}
+			kinds[size] = kind;
+			if (tok != null) {
+				offsets[size] = tok.getOffset();
+			}
+			firsts[size + 1] = firsts[size];
+			return size++;
+		}
+
+		// Adds an operand to the last node
+		private void operand(int value) {
+			int end = firsts[size];
+			if (end == operands.length) {
+				operands = Arrays.copyOf(operands, end * 2);
+			}
+			operands[end] = value;
+			firsts[size] = end + 1;
+		}
+	}
+}
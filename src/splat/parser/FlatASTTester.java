@@ -0,0 +1,66 @@
+package splat.parser;
+
+import java.io.File;
+import java.io.PrintStream;
+
+import splat.SplatException;
+import splat.TestRunner;
+import splat.lexer.Lexer;
+
+/**
+ * Checks that the Parser builds the same program as a FlatAST as it does
+ * as elements.  Every parse test is parsed both ways, and the FlatAST,
+ * made back into elements, must be the same as the elements down to the
+ * line and column of each one.  Programs that don't parse must fail with
+ * the same error.
+ */
+public class FlatASTTester {
+
+	private TestRunner runner;
+
+	public static void main(String[] args) {
+
+		FlatASTTester tester = new FlatASTTester(TestRunner.fromArgs(args));
+		tester.runTests();
+	}
+
+	public FlatASTTester(TestRunner runner) {
+		this.runner = runner;
+	}
+
+	public void runTests() {
+		runner.runSuite("FLAT AST", new TestRunner.Test() {
+			public TestRunner.Outcome run(File testFile, PrintStream details) throws Exception {
+				return runTest(testFile, details);
+			}
+		}, "_goodparse.splat", "_badparse.splat", "_goodexecution.splat");
+	}
+
+	private TestRunner.Outcome runTest(File testFile, PrintStream details) throws Exception {
+
+		String expected;
+		try {
+			expected = IncrementalParserTester.describe(new Parser(new Lexer(testFile)).parse());
+		} catch (SplatException ex) {
+			expected = "error: " + ex.getMessage();
+		}
+
+		String actual;
+		FlatAST flat = null;
+		try {
+			flat = new Parser(new Lexer(testFile)).parseFlat();
+			actual = IncrementalParserTester.describe(flat.toProgramAST());
+		} catch (SplatException ex) {
+			actual = "error: " + ex.getMessage();
+		}
+
+		if (!actual.equals(expected)) {
+			details.println("Elements:\n" + expected + "\nFlatAST:\n" + actual);
+			return TestRunner.Outcome.failed("flat program differs");
+		}
+		if (flat == null) {
+			return TestRunner.Outcome.passed("same error");
+		}
+		return TestRunner.Outcome.passed(flat.size() + " nodes");
+	}
+}
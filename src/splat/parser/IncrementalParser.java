@@ -0,0 +1,346 @@
+package splat.parser;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import splat.lexer.LexException;
+import splat.lexer.Lexer;
+import splat.lexer.LexerTokenStream;
+import splat.lexer.LineMap;
+import splat.lexer.Token;
+import splat.lexer.TokenStream;
+import splat.parser.elements.*;
+
+/**
+ * Keeps a program parsed while its text is being edited.
+ *
+ * The text is split into spans: the header (program), one span per
+ * top-level declaration, and the body (begin ... end ;).  A span starts at
+ * its first token and runs up to the start of the next one, so the spaces
+ * after a declaration belong to it.  After an edit, only the spans the edit
+ * touches are lexed and parsed again.  Every other Declaration is kept,
+ * and the ones after the edit are replaced by copies moved along the text
+ * by as much as it grew or shrank.  Each version of the text gets a LineMap of
+ * its own, as a map that errors and programs already refer to must not
+ * change.
+ *
+ * An edit of the header, an edit the spans can't be parsed again after,
+ * and the first edit after one that left the program with an error, parse
+ * the whole program again, so errors are always the same as
+ * Parser.parse() would report for the same text.
+ *
+ * The trees are kept from one version of the program to the next, but
+ * each program handed out is a copy of them, so it can be analyzed,
+ * folded and run like a program from the Parser.
+ */
+public class IncrementalParser {
+
+	/*
+	 * A declaration, and where its span starts and ends in the text
+	 */
+	private static class Span {
+
+		int start;
+		int end;
+		Declaration decl;
+
+		Span(int start, int end, Declaration decl) {
+			this.start = start;
+			this.end = end;
+			this.decl = decl;
+		}
+	}
+
+	private char[] text;
+	private LineMap lines;
+
+	private Token startTok;
+	private List<Span> spans;
+	private int bodyStart;		// the span of the body runs to the end
+	private List<Statement> stmts;
+
+	// False after an edit left the program with an error
+	private boolean valid;
+
+	public IncrementalParser(CharSequence progText) throws ParseException, LexException {
+		this.text = progText.toString().toCharArray();
+		this.lines = new LineMap(text, text.length);
+		this.valid = false;
+		parseAll();
+	}
+
+	/**
+	 * @return the program as of the last edit, a new copy each time
+	 */
+	public ProgramAST getProgram() {
+		List<Declaration> decls = new ArrayList<Declaration>(spans.size());
+		for (Span span : spans) {
+			decls.add(copy(span.decl, 0));
+		}
+		return new ProgramAST(decls, copy(stmts, 0), startTok, lines);
+	}
+
+	public String getText() {
+		return new String(text);
+	}
+
+	/**
+	 * Replaces the text from start up to end with the replacement, and
+	 * brings the program up to date with it.
+	 *
+	 * @return the program as of this edit
+	 * @throws ParseException if the program no longer parses
+	 * @throws LexException if the program no longer lexes
+	 */
+	public ProgramAST edit(int start, int end, CharSequence replacement)
+			throws ParseException, LexException {
+
+		if (start < 0 || end < start || end > text.length) {
+			throw new IndexOutOfBoundsException("Edit " + start + ".." + end
+					+ " outside of the text of length " + text.length);
+		}
+
+		applyText(start, end, replacement);
+
+		if (!valid || start < firstSpanStart()) {
+			parseAll();
+			return getProgram();
+		}
+
+		int delta = replacement.length() - (end - start);
+
+		// The spans from first up to last (or the body, if last is
+		// spans.size()) are the ones to parse again.  A span that starts
+		// right where the edit ends is one of them, as the replacement
+		// may run into its first token
+		int first = 0;
+		while (first < spans.size() && spans.get(first).end < start) {
+			first++;
+		}
+		int last = first;
+		while (last < spans.size() && spans.get(last).start <= end) {
+			last++;
+		}
+		boolean withBody = last == spans.size();
+
+		int regionStart = first < spans.size() ? spans.get(first).start : bodyStart;
+		int regionEnd = withBody ? text.length : spans.get(last).start + delta;
+
+		try {
+			List<Span> reparsed = new ArrayList<Span>();
+			List<Statement> newStmts = parseRegion(regionStart, regionEnd, withBody, reparsed);
+
+			for (int i = last; i < spans.size(); i++) {
+				Span span = spans.get(i);
+				span.start += delta;
+				span.end += delta;
+				if (delta != 0) {
+					span.decl = copy(span.decl, delta);
+				}
+			}
+			spans.subList(first, last).clear();
+			spans.addAll(first, reparsed);
+
+			if (withBody) {
+				stmts = newStmts;
+			} else {
+				bodyStart += delta;
+				if (delta != 0) {
+					stmts = copy(stmts, delta);
+				}
+			}
+			return getProgram();
+
+		} catch (ParseException ex) {
+			// The whole program may parse differently, if at all
+			parseAll();
+			return getProgram();
+		} catch (LexException ex) {
+			parseAll();
+			return getProgram();
+		}
+	}
+
+	private void applyText(int start, int end, CharSequence replacement) {
+		char[] newText = new char[text.length - (end - start) + replacement.length()];
+		System.arraycopy(text, 0, newText, 0, start);
+		for (int i = 0; i < replacement.length(); i++) {
+			newText[start + i] = replacement.charAt(i);
+		}
+		System.arraycopy(text, end, newText, start + replacement.length(), text.length - end);
+		text = newText;
+		lines = new LineMap(text, text.length);
+	}
+
+	private int firstSpanStart() {
+		return spans.isEmpty() ? bodyStart : spans.get(0).start;
+	}
+
+	/*
+	 * Parses the whole text, the same way Parser.parse() does, but a
+	 * declaration at a time so the spans are known.
+	 */
+	private void parseAll() throws ParseException, LexException {
+		valid = false;
+		TokenStream stream = new LexerTokenStream(new Lexer(text, 0, text.length, lines));
+		Parser parser = new Parser(stream, lines);
+
+		Token newStartTok = parser.parseHeader();
+		List<Span> newSpans = new ArrayList<Span>();
+		while (!parser.atBody()) {
+			int declStart = stream.peek(0).getOffset();
+			Declaration decl = parser.parseDeclaration();
+			newSpans.add(new Span(declStart, 0, decl));
+		}
+		int newBodyStart = stream.peek(0).getOffset();
+		List<Statement> newStmts = parser.parseBody();
+
+		for (int i = 0; i < newSpans.size(); i++) {
+			newSpans.get(i).end = i + 1 < newSpans.size() ? newSpans.get(i + 1).start : newBodyStart;
+		}
+
+		startTok = newStartTok;
+		spans = newSpans;
+		bodyStart = newBodyStart;
+		stmts = newStmts;
+		valid = true;
+	}
+
+	/*
+	 * Lexes and parses text[regionStart .. regionEnd), which holds whole
+	 * declarations, followed by the body if withBody is set.
+	 *
+	 * @return the statements of the body, or null without it
+	 */
+	private List<Statement> parseRegion(int regionStart, int regionEnd, boolean withBody,
+			List<Span> reparsed) throws ParseException, LexException {
+
+		TokenStream stream = new LexerTokenStream(new Lexer(text, regionStart, regionEnd, lines));
+		Parser parser = new Parser(stream, lines);
+
+		while ((withBody || stream.hasNext()) && !parser.atBody()) {
+			int declStart = stream.peek(0).getOffset();
+			Declaration decl = parser.parseDeclaration();
+			reparsed.add(new Span(declStart, 0, decl));
+		}
+		if (!withBody && stream.hasNext()) {
+			// The body now starts before the declarations that follow
+			throw new ParseException("Declaration expected", stream.peek(0), lines);
+		}
+		int end = regionEnd;
+		List<Statement> newStmts = null;
+		if (withBody) {
+			end = stream.peek(0).getOffset();
+			bodyStart = end;
+			newStmts = parser.parseBody();
+		}
+
+		for (int i = reparsed.size() - 1; i >= 0; i--) {
+			reparsed.get(i).end = end;
+			end = reparsed.get(i).start;
+		}
+		return newStmts;
+	}
+
+	/*
+	 * Copies a tree, moved along the text by delta.  The SemanticAnalyzer,
+	 * slot resolution and the ConstantFolder all change the program they
+	 * are given, so the trees kept here are never handed out, and are
+	 * never changed either, as only copies are moved.
+	 */
+	private static Declaration copy(Declaration decl, int delta) {
+		if (decl instanceof VariableDecl) {
+			return copy((VariableDecl) decl, delta);
+		}
+		FunctionDecl func = (FunctionDecl) decl;
+		List<Param> params = new ArrayList<Param>(func.params.size());
+		for (Param param : func.params) {
+			params.add(new Param(at(param, delta), param.label, param.type));
+		}
+		List<VariableDecl> vars = new ArrayList<VariableDecl>(func.localVarDecls.size());
+		for (VariableDecl var : func.localVarDecls) {
+			vars.add(copy(var, delta));
+		}
+		return new FunctionDecl(at(func, delta), func.label, params, func.retType, vars,
+				copy(func.stmts, delta));
+	}
+
+	private static VariableDecl copy(VariableDecl var, int delta) {
+		return new VariableDecl(at(var, delta), var.label, var.type);
+	}
+
+	private static List<Statement> copy(List<Statement> stmts, int delta) {
+		List<Statement> copies = new ArrayList<Statement>(stmts.size());
+		for (Statement stmt : stmts) {
+			copies.add(copy(stmt, delta));
+		}
+		return copies;
+	}
+
+	private static Statement copy(Statement stmt, int delta) {
+		Token tok = at(stmt, delta);
+
+		if (stmt instanceof AssignmentStmt) {
+			AssignmentStmt assign = (AssignmentStmt) stmt;
+			return new AssignmentStmt(tok, assign.label, copy(assign.expr, delta));
+		} else if (stmt instanceof PrintStmt) {
+			return new PrintStmt(tok, copy(((PrintStmt) stmt).expr, delta));
+		} else if (stmt instanceof PrintLineStmt) {
+			return new PrintLineStmt(tok);
+		} else if (stmt instanceof ReturnStmt) {
+			Expression expr = ((ReturnStmt) stmt).expr;
+			if (expr == null) {
+				return new ReturnStmt(tok);
+			}
+			return new ReturnStmt(tok, copy(expr, delta));
+		} else if (stmt instanceof NonVoidFunctionCallStmt) {
+			NonVoidFunctionCallStmt call = (NonVoidFunctionCallStmt) stmt;
+			return new NonVoidFunctionCallStmt(tok, copy(call.label, delta), copy(call.args, delta));
+		} else if (stmt instanceof IfConditionStmt) {
+			IfConditionStmt ifStmt = (IfConditionStmt) stmt;
+			if (ifStmt.stmts2 == null) {
+				return new IfConditionStmt(tok, copy(ifStmt.expr, delta), copy(ifStmt.stmts1, delta));
+			}
+			return new IfConditionStmt(tok, copy(ifStmt.expr, delta), copy(ifStmt.stmts1, delta),
+					copy(ifStmt.stmts2, delta));
+		} else if (stmt instanceof WhileDoStmt) {
+			WhileDoStmt whileStmt = (WhileDoStmt) stmt;
+			return new WhileDoStmt(tok, copy(whileStmt.expr, delta), copy(whileStmt.stmts, delta));
+		}
+		throw new IllegalStateException("Cannot copy " + stmt.getClass().getSimpleName());
+	}
+
+	private static Expression copy(Expression expr, int delta) {
+		Token tok = at(expr, delta);
+
+		if (expr instanceof BinaryOpExpr) {
+			BinaryOpExpr binary = (BinaryOpExpr) expr;
+			return new BinaryOpExpr(tok, binary.operator, copy(binary.expr1, delta),
+					copy(binary.expr2, delta));
+		} else if (expr instanceof UnaryOpExpr) {
+			UnaryOpExpr unary = (UnaryOpExpr) expr;
+			return new UnaryOpExpr(tok, unary.operator, copy(unary.expr, delta));
+		} else if (expr instanceof LabelExpr) {
+			return new LabelExpr(tok, ((LabelExpr) expr).value);
+		} else if (expr instanceof LiteralExpr) {
+			return new LiteralExpr(tok, ((LiteralExpr) expr).value);
+		} else if (expr instanceof NonVoidFunctionCallExpr) {
+			NonVoidFunctionCallExpr call = (NonVoidFunctionCallExpr) expr;
+			return new NonVoidFunctionCallExpr(tok, copy(call.label, delta), copy(call.args, delta));
+		} else if (expr instanceof ArgsExpr) {
+			List<Expression> args = new ArrayList<Expression>(((ArgsExpr) expr).args.size());
+			for (Expression arg : ((ArgsExpr) expr).args) {
+				args.add(copy(arg, delta));
+			}
+			return new ArgsExpr(tok, args);
+		}
+		throw new IllegalStateException("Cannot copy " + expr.getClass().getSimpleName());
+	}
+
+	/*
+	 * Elements only keep where their token is
+	 */
+	private static Token at(ASTElement elem, int delta) {
+		return new Token(null, null, elem.getOffset() + delta);
+	}
+}
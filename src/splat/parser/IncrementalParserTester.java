@@ -0,0 +1,246 @@
+package splat.parser;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import splat.Splat;
+import splat.SplatException;
+import splat.TestRunner;
+import splat.lexer.Lexer;
+import splat.lexer.LineMap;
+import splat.optimizer.ConstantFolder;
+import splat.parser.elements.*;
+import splat.semanticanalyzer.SemanticAnalyzer;
+
+/**
+ * Checks the IncrementalParser against the Parser.  Every program that
+ * parses is edited at each of its characters, by inserting a line break,
+ * inserting a letter and deleting the character, and each edit is then
+ * undone.  After every edit and every undo, the incremental program must
+ * be the same as parsing the whole text again, down to the line and
+ * column of each element, or fail with the same error.
+ *
+ * An execution test is also compiled and run, edited, and compiled and
+ * run again, as compiling changes the program it is given, and must not
+ * change the trees the next version of the program is made from.
+ */
+public class IncrementalParserTester {
+
+	private static final String[] INSERTS = { "\n", "x" };
+
+	private TestRunner runner;
+
+	public static void main(String[] args) {
+
+		IncrementalParserTester tester = new IncrementalParserTester(TestRunner.fromArgs(args));
+		tester.runTests();
+	}
+
+	public IncrementalParserTester(TestRunner runner) {
+		this.runner = runner;
+	}
+
+	public void runTests() {
+		runner.runSuite("INCREMENTAL PARSER", new TestRunner.Test() {
+			public TestRunner.Outcome run(File testFile, PrintStream details) throws Exception {
+				return runTest(testFile, details);
+			}
+		}, "_goodparse.splat", "_goodexecution.splat");
+	}
+
+	private TestRunner.Outcome runTest(File testFile, PrintStream details) throws Exception {
+
+		String text = new String(Files.readAllBytes(testFile.toPath()), StandardCharsets.UTF_8);
+		IncrementalParser incremental = new IncrementalParser(text);
+
+		if (testFile.getName().endsWith("_goodexecution.splat")) {
+			String error = checkRuns(incremental, testFile);
+			if (!error.isEmpty()) {
+				details.println(error);
+				return TestRunner.Outcome.failed("compiling and editing differs");
+			}
+		}
+
+		int edits = 0;
+		for (int i = 0; i <= text.length(); i++) {
+			for (String insert : INSERTS) {
+				edits += 2;
+				String error = check(incremental, i, i, insert)
+						+ check(incremental, i, i + insert.length(), "");
+				if (!error.isEmpty()) {
+					details.println(error);
+					return TestRunner.Outcome.failed("inserting at " + i + " differs");
+				}
+			}
+			if (i < text.length()) {
+				edits += 2;
+				String deleted = text.substring(i, i + 1);
+				String error = check(incremental, i, i + 1, "")
+						+ check(incremental, i, i, deleted);
+				if (!error.isEmpty()) {
+					details.println(error);
+					return TestRunner.Outcome.failed("deleting at " + i + " differs");
+				}
+			}
+		}
+		return TestRunner.Outcome.passed(edits + " edits");
+	}
+
+	/*
+	 * Makes the edit, and compares the result with a full parse.
+	 *
+	 * @return what differs, or the empty string
+	 */
+	private static String check(IncrementalParser incremental, int start, int end, String replacement) {
+
+		String expected;
+		String actual;
+		try {
+			actual = describe(incremental.edit(start, end, replacement));
+		} catch (SplatException ex) {
+			actual = ex.getClass().getSimpleName() + ": " + ex.getMessage();
+		}
+		try {
+			expected = describe(new Parser(new Lexer(incremental.getText())).parse());
+		} catch (SplatException ex) {
+			expected = ex.getClass().getSimpleName() + ": " + ex.getMessage();
+		}
+
+		if (expected.equals(actual)) {
+			return "";
+		}
+		return "Text:\n" + incremental.getText() + "\nIncremental:\n" + actual
+				+ "\nFull:\n" + expected + "\n";
+	}
+
+	/*
+	 * Compiles and runs the program, adds an empty line in the middle and
+	 * does the same, then takes the line out again and does the same.
+	 * The output must always be what the program prints, and the program
+	 * from before any of it must still be where it was.
+	 *
+	 * @return what differs, or the empty string
+	 */
+	private static String checkRuns(IncrementalParser incremental, File testFile)
+			throws SplatException, IOException {
+
+		String text = incremental.getText();
+		String expected = run(new Parser(new Lexer(text)).parse(), testFile);
+
+		ProgramAST before = incremental.getProgram();
+		String positions = describe(before);
+
+		int line = text.indexOf('\n', text.length() / 2) + 1;
+		String[][] steps = { { "", "" }, { "\n", "" }, { "", "\n" } };
+		for (String[] step : steps) {
+			String error = check(incremental, line, line + step[1].length(), step[0]);
+			if (!error.isEmpty()) {
+				return error;
+			}
+			String actual = run(incremental.getProgram(), testFile);
+			if (!expected.equals(actual)) {
+				return "Text:\n" + incremental.getText() + "\nIncremental output:\n" + actual
+						+ "\nFull output:\n" + expected + "\n";
+			}
+		}
+
+		if (!positions.equals(describe(before))) {
+			return "Program from before the edits changed:\n" + describe(before)
+					+ "\nWas:\n" + positions + "\n";
+		}
+		return "";
+	}
+
+	/*
+	 * @return what the program prints
+	 */
+	private static String run(ProgramAST prog, File testFile) throws SplatException, IOException {
+		new SemanticAnalyzer(prog).analyze();
+		new ConstantFolder(prog).fold();
+
+		ByteArrayOutputStream captured = new ByteArrayOutputStream();
+		new Splat(testFile).execute(prog, new PrintStream(captured, true, "UTF-8"));
+		return new String(captured.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+	/*
+	 * @return the program, with the position of every element
+	 */
+	static String describe(ProgramAST prog) {
+		LineMap lines = prog.getLineMap();
+		StringBuilder out = new StringBuilder(prog.toString()).append('\n');
+		position(prog, lines, out);
+		for (Declaration decl : prog.getDecls()) {
+			position(decl, lines, out);
+			if (decl instanceof FunctionDecl) {
+				FunctionDecl func = (FunctionDecl) decl;
+				for (Param param : func.params) {
+					position(param, lines, out);
+				}
+				for (VariableDecl var : func.localVarDecls) {
+					position(var, lines, out);
+				}
+				describe(func.stmts, lines, out);
+			}
+		}
+		describe(prog.getStmts(), lines, out);
+		return out.toString();
+	}
+
+	private static void describe(List<Statement> stmts, LineMap lines, StringBuilder out) {
+		for (Statement stmt : stmts) {
+			position(stmt, lines, out);
+
+			if (stmt instanceof AssignmentStmt) {
+				describe(((AssignmentStmt) stmt).expr, lines, out);
+			} else if (stmt instanceof PrintStmt) {
+				describe(((PrintStmt) stmt).expr, lines, out);
+			} else if (stmt instanceof ReturnStmt) {
+				if (((ReturnStmt) stmt).expr != null) {
+					describe(((ReturnStmt) stmt).expr, lines, out);
+				}
+			} else if (stmt instanceof NonVoidFunctionCallStmt) {
+				describe(((NonVoidFunctionCallStmt) stmt).label, lines, out);
+				describe(((NonVoidFunctionCallStmt) stmt).args, lines, out);
+			} else if (stmt instanceof IfConditionStmt) {
+				IfConditionStmt ifStmt = (IfConditionStmt) stmt;
+				describe(ifStmt.expr, lines, out);
+				describe(ifStmt.stmts1, lines, out);
+				if (ifStmt.stmts2 != null) {
+					describe(ifStmt.stmts2, lines, out);
+				}
+			} else if (stmt instanceof WhileDoStmt) {
+				describe(((WhileDoStmt) stmt).expr, lines, out);
+				describe(((WhileDoStmt) stmt).stmts, lines, out);
+			}
+		}
+	}
+
+	private static void describe(Expression expr, LineMap lines, StringBuilder out) {
+		position(expr, lines, out);
+
+		if (expr instanceof BinaryOpExpr) {
+			describe(((BinaryOpExpr) expr).expr1, lines, out);
+			describe(((BinaryOpExpr) expr).expr2, lines, out);
+		} else if (expr instanceof UnaryOpExpr) {
+			describe(((UnaryOpExpr) expr).expr, lines, out);
+		} else if (expr instanceof NonVoidFunctionCallExpr) {
+			describe(((NonVoidFunctionCallExpr) expr).label, lines, out);
+			describe(((NonVoidFunctionCallExpr) expr).args, lines, out);
+		} else if (expr instanceof ArgsExpr) {
+			for (Expression arg : ((ArgsExpr) expr).args) {
+				describe(arg, lines, out);
+			}
+		}
+	}
+
+	private static void position(ASTElement elem, LineMap lines, StringBuilder out) {
+		out.append(lines.lineOf(elem.getOffset())).append(':')
+				.append(lines.columnOf(elem.getOffset())).append(' ');
+	}
+}
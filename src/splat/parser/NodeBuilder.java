@@ -0,0 +1,61 @@
+package splat.parser;
+
+import java.util.List;
+
+import splat.lexer.Token;
+import splat.parser.elements.ReturnType;
+import splat.parser.elements.Type;
+
+/**
+ * Makes the nodes of a program as the Parser recognizes them, so the one
+ * grammar can build different trees: elements (ElementBuilder) or a
+ * FlatAST (FlatAST.Builder).  The nodes of a node's children are always
+ * made before it, and handed to it as they were returned.  Each node is
+ * made at the token the matching element is positioned at.
+ *
+ * @param <N> what the builder makes each node into
+ */
+interface NodeBuilder<N> {
+
+	N program(Token tok, List<N> decls, List<N> stmts);
+
+	N varDecl(Token tok, String label, Type type);
+
+	N param(Token tok, String label, Type type);
+
+	N funcDecl(Token tok, String label, List<N> params, ReturnType retType,
+			   List<N> localVarDecls, List<N> stmts);
+
+	N assign(Token tok, String label, N expr);
+
+	N print(Token tok, N expr);
+
+	N printLine(Token tok);
+
+	/**
+	 * @param expr the value, or null for a return without one
+	 */
+	N returnStmt(Token tok, N expr);
+
+	N callStmt(Token tok, String label, List<N> args);
+
+	/**
+	 * @param stmts2 the else branch, or null for an if without one
+	 */
+	N ifStmt(Token tok, N expr, List<N> stmts1, List<N> stmts2);
+
+	N whileStmt(Token tok, N expr, List<N> stmts);
+
+	N binary(Token tok, String operator, N expr1, N expr2);
+
+	N unary(Token tok, String operator, N expr);
+
+	N label(Token tok, String label);
+
+	/**
+	 * @param text the literal as written, quotes and all
+	 */
+	N literal(Token tok, String text);
+
+	N call(Token tok, String label, List<N> args);
+}
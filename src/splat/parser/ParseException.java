@@ -1,15 +1,16 @@
 package splat.parser;
 
 import splat.SplatException;
+import splat.lexer.LineMap;
 import splat.lexer.Token;
 
 public class ParseException extends SplatException {
 	
-	public ParseException(String msg, Token tok) {
-		super(msg, tok.getLine(), tok.getColumn());
+	public ParseException(String msg, Token tok, LineMap lines) {
+		super(msg, tok.getOffset(), lines);
 	}
 	
-	public ParseException(String msg, int line, int column) {
-		super(msg, line, column);
+	public ParseException(String msg, int offset, LineMap lines) {
+		super(msg, offset, lines);
 	}
 }
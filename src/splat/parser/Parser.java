@@ -3,99 +3,205 @@ package splat.parser;
 import java.util.ArrayList;
 import java.util.List;
 
+import splat.lexer.LexException;
+import splat.lexer.Lexer;
+import splat.lexer.LexerTokenStream;
+import splat.lexer.LineMap;
+import splat.lexer.ListTokenStream;
 import splat.lexer.Token;
+import splat.lexer.TokenKind;
+import splat.lexer.TokenStream;
 import splat.parser.elements.*;
 
+/**
+ * Parses a program, top down, a method per production.  Each method hands
+ * what it recognizes to a NodeBuilder, which makes the elements of the
+ * program for parse(), or the nodes of a FlatAST for parseFlat().
+ */
 public class Parser {
 
-	private List<Token> tokens;
+	private TokenStream tokens;
+	private LineMap lines;
+	private ElementBuilder elements;
 	
-	public Parser(List<Token> tokens) {
+	/**
+	 * @param lines the map of the program the tokens are from
+	 */
+	public Parser(List<Token> tokens, LineMap lines) {
+		this(new ListTokenStream(tokens), lines);
+	}
+
+	/**
+	 * Parses straight from the lexer, which produces tokens only as the
+	 * parser asks for them.
+	 */
+	public Parser(Lexer lexer) {
+		this(new LexerTokenStream(lexer), lexer.getLineMap());
+	}
+
+	/**
+	 * @param lines the map of the program the tokens are from
+	 */
+	public Parser(TokenStream tokens, LineMap lines) {
 		this.tokens = tokens;
+		this.lines = lines;
+		this.elements = new ElementBuilder(lines);
 	}
 
 	/**
 	 * Compares the next token to an expected value, and throws
-	 * an exception if they don't match.  This removes the front-most
+	 * an exception if they don't match.  This consumes the front-most
 	 * (next) token  
 	 * 
-	 * @param expected value of the next token
+	 * @param expected kind of the next token
 	 * @throws ParseException if the actual token doesn't match what 
 	 * 			was expected
 	 */
-	private void checkNext(String expected) throws ParseException {
+	private void checkNext(TokenKind expected) throws ParseException, LexException {
 
-		Token tok = tokens.remove(0);
+		Token tok = tokens.next();
 		
-		if (!tok.getValue().equals(expected)) {
-			throw new ParseException("Expected '"+ expected + "', got '" 
-					+ tok.getValue()+ "'.", tok);
+		if (tok.getKind() != expected) {
+			throw new ParseException("Expected '"+ expected.getText() + "', got '" 
+					+ tok.getValue()+ "'.", tok, lines);
 		}
 	}
 	
 	/**
-	 * Returns a boolean indicating whether or not the next token matches
-	 * the expected String value.  This does not remove the token from the
-	 * token list.
+	 * Returns a boolean indicating whether or not the next token is of
+	 * the expected kind.  This does not consume the token from the
+	 * token stream.
 	 * 
-	 * @param expected value of the next token
-	 * @return true iff the token value matches the expected string
+	 * @param expected kind of the next token
+	 * @return true iff the token kind matches the expected kind
 	 */
-	private boolean peekNext(String expected) {
-		return tokens.get(0).getValue().equals(expected);
+	private boolean peekNext(TokenKind expected) throws LexException {
+		return tokens.peek(0).getKind() == expected;
 	}
 	
 	/**
 	 * Returns a boolean indicating whether or not the token directly after
-	 * the front most token matches the expected String value.  This does 
-	 * not remove any tokens from the token list.
+	 * the front most token is of the expected kind.  This does 
+	 * not consume any tokens from the token stream.
 	 * 
-	 * @param expected value of the token directly after the next token
-	 * @return true iff the value matches the expected string
+	 * @param expected kind of the token directly after the next token
+	 * @return true iff the kind matches the expected kind
 	 */
-	private boolean peekTwoAhead(String expected) {
-		return tokens.get(1).getValue().equals(expected);
+	private boolean peekTwoAhead(TokenKind expected) throws LexException {
+		return tokens.peek(1).getKind() == expected;
 	}
 	
 	
+	public ProgramAST parse() throws ParseException, LexException {
+		return (ProgramAST) parseProgram(elements);
+	}
+
+	/**
+	 * Parses the same as parse(), into a FlatAST instead of elements.
+	 */
+	public FlatAST parseFlat() throws ParseException, LexException {
+		FlatAST.Builder ast = new FlatAST.Builder(lines);
+		parseProgram(ast);
+		return ast.build();
+	}
+	
 	/*
 	 *  <program> ::= program <decls> begin <stmts> end ;
 	 */
-	public ProgramAST parse() throws ParseException {
+	private <N> N parseProgram(NodeBuilder<N> nodes) throws ParseException, LexException {
 		
 		try {
 			// Needed for 'program' token position info
-			Token startTok = tokens.get(0);
+			Token startTok = tokens.peek(0);
 			
-			checkNext("program");
+			checkNext(TokenKind.PROGRAM);
 
-			List<Declaration> decls = parseDecls();
+			List<N> decls = parseDecls(nodes);
 			
-			checkNext("begin");
+			checkNext(TokenKind.BEGIN);
 			
-			List<Statement> stmts = parseStmts();
+			List<N> stmts = parseStmts(nodes);
 
-			checkNext("end");
-			checkNext(";");
+			checkNext(TokenKind.END);
+			checkNext(TokenKind.SEMICOLON);
 	
-			return new ProgramAST(decls, stmts, startTok);
+			return nodes.program(startTok, decls, stmts);
 			
-		// This might happen if we do a tokens.get(), and nothing is there!
+		// This might happen if we do a tokens.peek(), and nothing is there!
 		} catch (IndexOutOfBoundsException ex) {
 			
-			throw new ParseException("Unexpectedly reached the end of file.", -1, -1);
+			throw new ParseException("Unexpectedly reached the end of file.", -1, lines);
 		}
 	}
 	
+	/*
+	 * The methods below parse a program a piece at a time, for the
+	 * IncrementalParser, which needs to know where each piece ends.
+	 * Together they accept exactly what parse() accepts.
+	 */
+
+	/**
+	 * Parses program, the start of the program.
+	 * 
+	 * @return the 'program' token
+	 */
+	Token parseHeader() throws ParseException, LexException {
+		try {
+			Token startTok = tokens.peek(0);
+			checkNext(TokenKind.PROGRAM);
+			return startTok;
+		} catch (IndexOutOfBoundsException ex) {
+			throw new ParseException("Unexpectedly reached the end of file.", -1, lines);
+		}
+	}
+
+	/**
+	 * @return true iff the declarations are over and the body is next
+	 */
+	boolean atBody() throws ParseException, LexException {
+		try {
+			return peekNext(TokenKind.BEGIN);
+		} catch (IndexOutOfBoundsException ex) {
+			throw new ParseException("Unexpectedly reached the end of file.", -1, lines);
+		}
+	}
+
+	/**
+	 * Parses a single top-level declaration.  Tokens after it are left in
+	 * the stream.
+	 */
+	Declaration parseDeclaration() throws ParseException, LexException {
+		try {
+			return (Declaration) parseDecl(elements);
+		} catch (IndexOutOfBoundsException ex) {
+			throw new ParseException("Unexpectedly reached the end of file.", -1, lines);
+		}
+	}
+
+	/**
+	 * Parses the body of the program, begin <stmts> end ;
+	 */
+	List<Statement> parseBody() throws ParseException, LexException {
+		try {
+			checkNext(TokenKind.BEGIN);
+			List<ASTElement> stmts = parseStmts(elements);
+			checkNext(TokenKind.END);
+			checkNext(TokenKind.SEMICOLON);
+			return ElementBuilder.listOf(stmts);
+		} catch (IndexOutOfBoundsException ex) {
+			throw new ParseException("Unexpectedly reached the end of file.", -1, lines);
+		}
+	}
+
 	/*
 	 *  <decls> ::= (  <decl>  )*
 	 */
-	private List<Declaration> parseDecls() throws ParseException {
+	private <N> List<N> parseDecls(NodeBuilder<N> nodes) throws ParseException, LexException {
 		
-		List<Declaration> decls = new ArrayList<Declaration>();
+		List<N> decls = new ArrayList<N>();
 		
-		while (!peekNext("begin")) {
-			Declaration decl = parseDecl();
+		while (!peekNext(TokenKind.BEGIN)) {
+			N decl = parseDecl(nodes);
 			decls.add(decl);
 		}
 		return decls;
@@ -104,15 +210,15 @@ public class Parser {
 	/*
 	 * <decl> ::= <var-decl> | <func-decl>
 	 */
-	private Declaration parseDecl() throws ParseException {
+	private <N> N parseDecl(NodeBuilder<N> nodes) throws ParseException, LexException {
 
-		if (peekTwoAhead(":")) {
-			return parseVarDecl();
-		} else if (peekTwoAhead("(")) {
-			return parseFuncDecl();
+		if (peekTwoAhead(TokenKind.COLON)) {
+			return parseVarDecl(nodes);
+		} else if (peekTwoAhead(TokenKind.LEFT_PAREN)) {
+			return parseFuncDecl(nodes);
 		} else {
-			Token tok = tokens.get(0);
-			throw new ParseException("Declaration expected", tok);
+			Token tok = tokens.peek(0);
+			throw new ParseException("Declaration expected", tok, lines);
 		}
 	}
 	
@@ -120,380 +226,309 @@ public class Parser {
 	 * <func-decl> ::= <label> ( <params> ) : <ret-type> is 
 	 * 						<loc-var-decls> begin <stmts> end ;
 	 */
-	private FunctionDecl parseFuncDecl() throws ParseException {
-		Token tokenLabel = tokens.remove(0);
+	private <N> N parseFuncDecl(NodeBuilder<N> nodes) throws ParseException, LexException {
+		Token tokenLabel = tokens.next();
 		String label = tokenLabel.getValue();
-		if (isKeyword(label)){
-			throw new ParseException("Invalid label declaration", tokenLabel);
+		if (tokenLabel.getKind().isKeyword()){
+			throw new ParseException("Invalid label declaration", tokenLabel, lines);
 		}
-		checkNext("(");
-		List<Param> params = parseParams();
-		checkNext(")");
-		checkNext(":");
+		checkNext(TokenKind.LEFT_PAREN);
+		List<N> params = parseParams(nodes);
+		checkNext(TokenKind.RIGHT_PAREN);
+		checkNext(TokenKind.COLON);
 
-		Token tokenReturnType = tokens.remove(0);
+		Token tokenReturnType = tokens.next();
 		ReturnType retType = convertStringToRetType(tokenReturnType);
 
-		checkNext("is");
+		checkNext(TokenKind.IS);
 
-		List<VariableDecl> localVarDecls = parseLocalVarDecls();
+		List<N> localVarDecls = parseLocalVarDecls(nodes);
 
-		checkNext("begin");
+		checkNext(TokenKind.BEGIN);
 
-		List<Statement> stmts = parseStmts();
+		List<N> stmts = parseStmts(nodes);
 
-		checkNext("end");
-		checkNext(";");
+		checkNext(TokenKind.END);
+		checkNext(TokenKind.SEMICOLON);
 
-		return new FunctionDecl(tokenLabel, tokenLabel.getValue(), params, retType, localVarDecls, stmts);
+		return nodes.funcDecl(tokenLabel, tokenLabel.getValue(), params, retType, localVarDecls, stmts);
 	}
 
 	/*
 	 * <var-decl> ::= <label> : <type> ;
 	 */
-	private VariableDecl parseVarDecl() throws ParseException {;
-		Token tokenLabel = tokens.remove(0);
+	private <N> N parseVarDecl(NodeBuilder<N> nodes) throws ParseException, LexException {;
+		Token tokenLabel = tokens.next();
 		String label = tokenLabel.getValue();
-		if (isKeyword(label)){
-			throw new ParseException("Invalid label declaration", tokenLabel);
+		if (tokenLabel.getKind().isKeyword()){
+			throw new ParseException("Invalid label declaration", tokenLabel, lines);
 		}
 
-		checkNext(":");
+		checkNext(TokenKind.COLON);
 
-		Token tokenType = tokens.remove(0);
+		Token tokenType = tokens.next();
 		Type type = convertStringToType(tokenType);
 
-		checkNext(";");
+		checkNext(TokenKind.SEMICOLON);
 
-		return new VariableDecl(tokenLabel, label, type);
+		return nodes.varDecl(tokenLabel, label, type);
 	}
 
-	private List<VariableDecl> parseLocalVarDecls() throws ParseException{
-		List<VariableDecl> localVarDecls = new ArrayList<VariableDecl>();
-		while (!peekNext("begin")) {
-			VariableDecl varDecl = parseVarDecl();
+	private <N> List<N> parseLocalVarDecls(NodeBuilder<N> nodes) throws ParseException, LexException {
+		List<N> localVarDecls = new ArrayList<N>();
+		while (!peekNext(TokenKind.BEGIN)) {
+			N varDecl = parseVarDecl(nodes);
 			localVarDecls.add(varDecl);
 		}
 
 		return localVarDecls;
 	}
 
-	private List<Param> parseParams() throws ParseException{
-		List<Param> params = new ArrayList<Param>();
+	private <N> List<N> parseParams(NodeBuilder<N> nodes) throws ParseException, LexException {
+		List<N> params = new ArrayList<N>();
 
-		while (!peekNext(")")) {
-			Param param = parseParam();
+		while (!peekNext(TokenKind.RIGHT_PAREN)) {
+			N param = parseParam(nodes);
 			params.add(param);
-			if (peekNext(",")){
-				checkNext(",");
+			if (peekNext(TokenKind.COMMA)){
+				checkNext(TokenKind.COMMA);
 			}
 		}
 
 		return params;
 	}
 
-	private Param parseParam() throws ParseException{
-		Token tokenLabel = tokens.remove(0);
+	private <N> N parseParam(NodeBuilder<N> nodes) throws ParseException, LexException {
+		Token tokenLabel = tokens.next();
 		String label = tokenLabel.getValue();
-		if (isKeyword(label)){
-			throw new ParseException("Invalid label declaration", tokenLabel);
+		if (tokenLabel.getKind().isKeyword()){
+			throw new ParseException("Invalid label declaration", tokenLabel, lines);
 		}
-		checkNext(":");
-		Token tokenType = tokens.remove(0);
+		checkNext(TokenKind.COLON);
+		Token tokenType = tokens.next();
 		Type type = convertStringToType(tokenType);
-		return new Param(tokenLabel, label, type);
+		return nodes.param(tokenLabel, label, type);
 	}
 	
 	/*
 	 * <stmts> ::= (  <stmt>  )*
 	 */
-	private List<Statement> parseStmts() throws ParseException {
-		List<Statement> stmts = new ArrayList<Statement>();
+	private <N> List<N> parseStmts(NodeBuilder<N> nodes) throws ParseException, LexException {
+		List<N> stmts = new ArrayList<N>();
 		while (!(
-				(peekNext("end") && peekTwoAhead(";")) ||
-				(peekNext("end") && peekTwoAhead("if")) ||
-						peekNext("else") ||
-						(peekNext("end") && peekTwoAhead("while"))
+				(peekNext(TokenKind.END) && peekTwoAhead(TokenKind.SEMICOLON)) ||
+				(peekNext(TokenKind.END) && peekTwoAhead(TokenKind.IF)) ||
+						peekNext(TokenKind.ELSE) ||
+						(peekNext(TokenKind.END) && peekTwoAhead(TokenKind.WHILE))
 				)
 		) {
-			Statement stmt = parseStmt();
+			N stmt = parseStmt(nodes);
 			stmts.add(stmt);
 		}
 
 		return stmts;
 	}
 
-	private Statement parseStmt() throws ParseException{
-//		System.out.println(tokens.get(0).getValue());
-		if (peekTwoAhead(":=")) {
-			return parseAssignmentStmt();
-		} else if (peekNext("return")) {
-			return parseReturnStmt();
-		} else if (peekNext("print_line")) {
-			return parsePrintLineStmt();
-		} else if (peekNext("print")) {
-			return parsePrintStmt();
-		} else if (isLabel(tokens.get(0)) && peekTwoAhead("(") && !isKeyword(tokens.get(0).getValue())) {
-			return parseNonVoidFuncStmt();
-		} else if (peekNext("if")) {
-			return parseIfConditionStmt();
-		} else if (peekNext("while")) {
-			return parseWhileDoStmt();
-		} else {
-			Token tok = tokens.get(0);
-			System.out.println("at: " + tok.getLine() + ":" + tok.getColumn());
-			throw new ParseException("Statement expected", tok);
+	private <N> N parseStmt(NodeBuilder<N> nodes) throws ParseException, LexException {
+//		System.out.println(tokens.peek(0).getValue());
+		if (peekTwoAhead(TokenKind.ASSIGN)) {
+			return parseAssignmentStmt(nodes);
+		}
+
+		Token tok = tokens.peek(0);
+		switch (tok.getKind()) {
+			case RETURN:
+				return parseReturnStmt(nodes);
+			case PRINT_LINE:
+				return parsePrintLineStmt(nodes);
+			case PRINT:
+				return parsePrintStmt(nodes);
+			case IF:
+				return parseIfConditionStmt(nodes);
+			case WHILE:
+				return parseWhileDoStmt(nodes);
+			default:
+				if (tok.isLabel() && peekTwoAhead(TokenKind.LEFT_PAREN)) {
+					return parseNonVoidFuncStmt(nodes);
+				}
+				throw new ParseException("Statement expected", tok, lines);
 		}
 	}
 
 	// <stmt> ::= <label> := <expr> ;
-	private AssignmentStmt parseAssignmentStmt() throws ParseException{
-		Token tokenLabel = tokens.remove(0);
+	private <N> N parseAssignmentStmt(NodeBuilder<N> nodes) throws ParseException, LexException {
+		Token tokenLabel = tokens.next();
 		String label = tokenLabel.getValue();
-		if (isKeyword(label)){
-			throw new ParseException("Invalid label declaration", tokenLabel);
+		if (tokenLabel.getKind().isKeyword()){
+			throw new ParseException("Invalid label declaration", tokenLabel, lines);
 		}
 
-		checkNext(":=");
+		checkNext(TokenKind.ASSIGN);
 
-		Expression expr = parseExpressions();
+		N expr = parseExpressions(nodes);
 
-		checkNext(";");
+		checkNext(TokenKind.SEMICOLON);
 
-		return new AssignmentStmt(tokenLabel, label, expr);
+		return nodes.assign(tokenLabel, label, expr);
 	}
 	
-	private ReturnStmt parseReturnStmt() throws ParseException{
-		Token tokenReturn = tokens.remove(0);
-		if (peekNext(";")){
-			ReturnStmt returnStmt = new ReturnStmt(tokenReturn);
-			checkNext(";");
+	private <N> N parseReturnStmt(NodeBuilder<N> nodes) throws ParseException, LexException {
+		Token tokenReturn = tokens.next();
+		if (peekNext(TokenKind.SEMICOLON)){
+			N returnStmt = nodes.returnStmt(tokenReturn, null);
+			checkNext(TokenKind.SEMICOLON);
 			return returnStmt;
 		} else {
-			Expression expr = parseExpressions();
-			checkNext(";");
-			return new ReturnStmt(tokenReturn, expr);
+			N expr = parseExpressions(nodes);
+			checkNext(TokenKind.SEMICOLON);
+			return nodes.returnStmt(tokenReturn, expr);
 		}
 	}
 
-	private PrintLineStmt parsePrintLineStmt() throws ParseException{
-		Token tokenPrintLine = tokens.remove(0);
-		if (peekNext(";")){
-			PrintLineStmt printLineStmt = new PrintLineStmt(tokenPrintLine);
-			checkNext(";");
+	private <N> N parsePrintLineStmt(NodeBuilder<N> nodes) throws ParseException, LexException {
+		Token tokenPrintLine = tokens.next();
+		if (peekNext(TokenKind.SEMICOLON)){
+			N printLineStmt = nodes.printLine(tokenPrintLine);
+			checkNext(TokenKind.SEMICOLON);
 			return printLineStmt;
 		} else {
-			throw new ParseException("Expected ;",tokens.get(0));
+			throw new ParseException("Expected ;",tokens.peek(0), lines);
 		}
 	}
 
-	private PrintStmt parsePrintStmt() throws ParseException{
-		Token tokenPrint = tokens.remove(0);
-		Expression expr = parseExpressions();
-		checkNext(";");
-		return new PrintStmt(tokenPrint, expr);
+	private <N> N parsePrintStmt(NodeBuilder<N> nodes) throws ParseException, LexException {
+		Token tokenPrint = tokens.next();
+		N expr = parseExpressions(nodes);
+		checkNext(TokenKind.SEMICOLON);
+		return nodes.print(tokenPrint, expr);
 	}
 
-	private NonVoidFunctionCallStmt parseNonVoidFuncStmt() throws ParseException{
-		Token tok = tokens.remove(0);
-		Expression label = new LabelExpr(tok, tok.getValue());
-		checkNext("(");
-		List<Expression> argsList = new ArrayList<Expression>();
-		while(!peekNext(")")){
-			if (peekNext(",")){
-				checkNext(",");
+	private <N> N parseNonVoidFuncStmt(NodeBuilder<N> nodes) throws ParseException, LexException {
+		Token tok = tokens.next();
+		checkNext(TokenKind.LEFT_PAREN);
+		List<N> argsList = new ArrayList<N>();
+		while(!peekNext(TokenKind.RIGHT_PAREN)){
+			if (peekNext(TokenKind.COMMA)){
+				checkNext(TokenKind.COMMA);
 			}
-			Expression expr = parseExpressions();
+			N expr = parseExpressions(nodes);
 			argsList.add(expr);
 		}
-		checkNext(")");
-		checkNext(";");
-		Expression args = new ArgsExpr(tok, argsList);
-		return new NonVoidFunctionCallStmt(tok, label, args);
-	}
-
-	private IfConditionStmt parseIfConditionStmt() throws ParseException{
-		Token tokenIf = tokens.remove(0);
-		Expression expr = parseExpressions();
-		checkNext("then");
-		List<Statement> stmts1 = parseStmts();
-		if (peekNext("end")){
-			IfConditionStmt ifConditionStmt = new IfConditionStmt(tokenIf, expr, stmts1);
-			checkNext("end");
-			checkNext("if");
-			checkNext(";");
+		checkNext(TokenKind.RIGHT_PAREN);
+		checkNext(TokenKind.SEMICOLON);
+		return nodes.callStmt(tok, tok.getValue(), argsList);
+	}
+
+	private <N> N parseIfConditionStmt(NodeBuilder<N> nodes) throws ParseException, LexException {
+		Token tokenIf = tokens.next();
+		N expr = parseExpressions(nodes);
+		checkNext(TokenKind.THEN);
+		List<N> stmts1 = parseStmts(nodes);
+		if (peekNext(TokenKind.END)){
+			N ifConditionStmt = nodes.ifStmt(tokenIf, expr, stmts1, null);
+			checkNext(TokenKind.END);
+			checkNext(TokenKind.IF);
+			checkNext(TokenKind.SEMICOLON);
 			return ifConditionStmt;
-		} else if (peekNext("else")) {
-			checkNext("else");
-			List<Statement> stmts2 = parseStmts();
-			IfConditionStmt ifConditionStmt = new IfConditionStmt(tokenIf, expr, stmts1, stmts2);
-			checkNext("end");
-			checkNext("if");
-			checkNext(";");
+		} else if (peekNext(TokenKind.ELSE)) {
+			checkNext(TokenKind.ELSE);
+			List<N> stmts2 = parseStmts(nodes);
+			N ifConditionStmt = nodes.ifStmt(tokenIf, expr, stmts1, stmts2);
+			checkNext(TokenKind.END);
+			checkNext(TokenKind.IF);
+			checkNext(TokenKind.SEMICOLON);
 			return ifConditionStmt;
 		}else {
-			throw new ParseException("Error: else or end expected, got: " + tokens.get(0).getValue(), tokens.get(0));
+			throw new ParseException("Error: else or end expected, got: " + tokens.peek(0).getValue(), tokens.peek(0), lines);
 		}
 	}
 
-	private WhileDoStmt parseWhileDoStmt() throws ParseException{
-		Token tokenWhile = tokens.remove(0);
-		Expression expr = parseExpressions();
-		checkNext("do");
-		List<Statement> stmts = parseStmts();
-		checkNext("end");
-		checkNext("while");
-		checkNext(";");
-
-		return new WhileDoStmt(tokenWhile, expr, stmts);
-	}
-
-	private Expression parseExpressions() throws ParseException{
-		Token tok = tokens.remove(0);
-		if (isLiteral(tok)){
-			return new LiteralExpr(tok, tok.getValue());
-		} else if (isLabel(tok) && !peekNext("(")) {
-			return new LabelExpr(tok, tok.getValue());
-		} else if (isLabel(tok) && peekNext("(")) {
-			Expression label = new LabelExpr(tok, tok.getValue());
-			checkNext("(");
-			List<Expression> argsList = new ArrayList<Expression>();
-			while(!peekNext(")")){
-				if (peekNext(",")){
-					checkNext(",");
+	private <N> N parseWhileDoStmt(NodeBuilder<N> nodes) throws ParseException, LexException {
+		Token tokenWhile = tokens.next();
+		N expr = parseExpressions(nodes);
+		checkNext(TokenKind.DO);
+		List<N> stmts = parseStmts(nodes);
+		checkNext(TokenKind.END);
+		checkNext(TokenKind.WHILE);
+		checkNext(TokenKind.SEMICOLON);
+
+		return nodes.whileStmt(tokenWhile, expr, stmts);
+	}
+
+	private <N> N parseExpressions(NodeBuilder<N> nodes) throws ParseException, LexException {
+		Token tok = tokens.next();
+		if (tok.isLiteral()){
+			return nodes.literal(tok, tok.getValue());
+		} else if (tok.isLabel() && !peekNext(TokenKind.LEFT_PAREN)) {
+			return nodes.label(tok, tok.getValue());
+		} else if (tok.isLabel() && peekNext(TokenKind.LEFT_PAREN)) {
+			checkNext(TokenKind.LEFT_PAREN);
+			List<N> argsList = new ArrayList<N>();
+			while(!peekNext(TokenKind.RIGHT_PAREN)){
+				if (peekNext(TokenKind.COMMA)){
+					checkNext(TokenKind.COMMA);
 				}
-				Expression expr = parseExpressions();
+				N expr = parseExpressions(nodes);
 				argsList.add(expr);
 			}
-			checkNext(")");
-
-			Expression args = new ArgsExpr(tok, argsList);
+			checkNext(TokenKind.RIGHT_PAREN);
 			
-			return new NonVoidFunctionCallExpr(tok, label, args);
-
-		} else if (tok.getValue().equals("(")) {
-//			System.out.println("here:" + tok.getValue() + " next:" + tokens.get(0).getValue());
-			Token tokUnaryCheck = tokens.get(0);
-			if (isUnaryOp(tokUnaryCheck)){
-				Token tokUnaryOp = tokens.remove(0);
-				Expression exprUnaryOp = parseExpressions();
-				checkNext(")");
-				return new UnaryOpExpr(tok, tokUnaryOp.getValue(), exprUnaryOp);
+			return nodes.call(tok, tok.getValue(), argsList);
+
+		} else if (tok.getKind() == TokenKind.LEFT_PAREN) {
+//			System.out.println("here:" + tok.getValue() + " next:" + tokens.peek(0).getValue());
+			Token tokUnaryCheck = tokens.peek(0);
+			if (tokUnaryCheck.getKind().isUnaryOp()){
+				Token tokUnaryOp = tokens.next();
+				N exprUnaryOp = parseExpressions(nodes);
+				checkNext(TokenKind.RIGHT_PAREN);
+				return nodes.unary(tok, tokUnaryOp.getValue(), exprUnaryOp);
 			}
 			else{
-				Expression exprBinary1 = parseExpressions();
-				Token tokBinaryCheck = tokens.get(0);
-				if (isBinaryOp(tokBinaryCheck)){
-					Token tokBinary = tokens.remove(0);
-					Expression exprBinary2 = parseExpressions();
-					checkNext(")");
-					return new BinaryOpExpr(tok, tokBinary.getValue(), exprBinary1, exprBinary2);
+				N exprBinary1 = parseExpressions(nodes);
+				Token tokBinaryCheck = tokens.peek(0);
+				if (tokBinaryCheck.getKind().isBinaryOp()){
+					Token tokBinary = tokens.next();
+					N exprBinary2 = parseExpressions(nodes);
+					checkNext(TokenKind.RIGHT_PAREN);
+					return nodes.binary(tok, tokBinary.getValue(), exprBinary1, exprBinary2);
 				}
 			}
 
 		}
 		else{
-			System.out.println("at: " + tok.getLine() + ":" + tok.getColumn());
-			throw new ParseException("Expression expected 1", tok);
+			throw new ParseException("Expression expected 1", tok, lines);
 		}
-		return null;
+		// A parenthesized expression without an operator
+		throw new ParseException("Expression expected", tok, lines);
 	}
 
 	public Type convertStringToType(Token tokenType) throws ParseException{
-		String typeStr = tokenType.getValue();
-
-		Type type;
-		if (typeStr.equals("Integer")) {
-			type = Type.Integer;
-		}
-		else if (typeStr.equals("String")) {
-			type = Type.String;
+		switch (tokenType.getKind()) {
+			case INTEGER:
+				return Type.Integer;
+			case STRING:
+				return Type.String;
+			case BOOLEAN:
+				return Type.Boolean;
+			default:
+				throw new ParseException("Invalid type " + tokenType.getValue(), tokenType, lines);
 		}
-		else if (typeStr.equals("Boolean")) {
-			type = Type.Boolean;
-		}
-		else {
-			throw new ParseException("Invalid type " + typeStr, tokenType);
-		}
-
-		return type;
-	}
-
-	public Boolean isKeyword(String label){
-
-		if (label.equals("if") || label.equals("else") || label.equals("while")
-				|| label.equals("and") || label.equals("not")
-				|| label.equals("do") || label.equals("or")
-				|| label.equals("then") || label.equals("end") || label.equals("print")
-				|| label.equals("print_line") || label.equals("return") || label.equals("program")
-				|| label.equals("is") || label.equals("begin")
-				|| label.equals("void") || label.equals("Integer")
-				|| label.equals("String") || label.equals("Boolean")
-				|| label.equals("true") || label.equals("false")){
-			return true;
-		}
-
-		return false;
-	}
-
-	private Boolean isLiteral(Token tok){
-		String value = tok.getValue();
-		if (value.equals("true") || value.equals("false")
-				||
-				(value.charAt(0) == '\"' && value.charAt(value.length()-1) == '\"')
-				||
-				value.chars().allMatch(Character::isDigit)
-		){
-			return true;
-		}
-
-		return false;
-	}
-
-	private Boolean isLabel(Token token){
-		String label = token.getValue();
-		if (label.matches("^[_a-zA-z]\\w*$")) return true;
-		return false;
-	}
-
-	private Boolean isUnaryOp(Token token){
-		String value = token.getValue();
-		return (value.equals("not") || value.equals("-"));
-	}
-
-	private Boolean isBinaryOp(Token token){
-		String value = token.getValue();
-		if (value.equals("and") || value.equals("or") || value.equals(">") || value.equals("<")
-				|| value.equals("==") || value.equals(">=") || value.equals("<=")
-				|| value.equals("+") || value.equals("-") || value.equals("*")
-				|| value.equals("/") || value.equals("%")){
-			return true;
-		}
-
-		return false;
 	}
 
 	private ReturnType convertStringToRetType(Token tokenRetType) throws ParseException{
-		String typeStr = tokenRetType.getValue();
-
-		ReturnType retType;
-		if (typeStr.equals("Integer")) {
-			retType = ReturnType.Integer;
+		switch (tokenRetType.getKind()) {
+			case INTEGER:
+				return ReturnType.Integer;
+			case STRING:
+				return ReturnType.String;
+			case BOOLEAN:
+				return ReturnType.Boolean;
+			case VOID:
+				return ReturnType.Void;
+			default:
+				throw new ParseException("Invalid type " + tokenRetType.getValue(), tokenRetType, lines);
 		}
-		else if (typeStr.equals("String")) {
-			retType = ReturnType.String;
-		}
-		else if (typeStr.equals("Boolean")) {
-			retType = ReturnType.Boolean;
-		}
-		else if (typeStr.equals("void")) {
-			retType = ReturnType.Void;
-		}
-		else {
-			throw new ParseException("Invalid type " + typeStr, tokenRetType);
-		}
-
-		return retType;
 	}
 
 
@@ -4,19 +4,17 @@ import splat.lexer.Token;
 
 public abstract class ASTElement {
 
-	private int line;
-	private int column;
+	private int offset;
 	
 	public ASTElement(Token tok) {
-		this.line = tok.getLine();
-		this.column = tok.getColumn();
+		this.offset = tok.getOffset();
 	}
-	
-	public int getLine() {
-		return line;
-	}
-	
-	public int getColumn() {
-		return column;
+
+	/**
+	 * @return where the element's token starts in the program text, which
+	 * 			the program's LineMap turns into a line and a column
+	 */
+	public int getOffset() {
+		return offset;
 	}
 }
@@ -1,5 +1,9 @@
 package splat.parser.elements;
 
+import splat.executor.ExecutionException;
+import splat.executor.Frame;
+import splat.executor.Scope;
+import splat.executor.Value;
 import splat.lexer.Token;
 
 import java.util.List;
@@ -17,19 +21,21 @@ public class ArgsExpr extends Expression{
         return args;
     }
 
-    public String toString(){
-        String result = "";
-        Boolean first = true;
+    public void resolveSlots(Scope scope) throws ExecutionException {
         for (Expression expr : args){
-            if (first) {
-                result =  result + expr;
-                first = false;
-            }
-            else{
-                result = result  + ", " + expr;
-            }
+            expr.resolveSlots(scope);
         }
+    }
 
-        return result;
+    /**
+     * An argument list has no value of its own, function calls evaluate
+     * the arguments one by one instead.
+     */
+    public Value evaluate(Frame frame) throws ExecutionException {
+        throw new ExecutionException("Argument list used as a value", this);
+    }
+
+    public String toString(){
+        return AstPrinter.toString(this);
     }
 }
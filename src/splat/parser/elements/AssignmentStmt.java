@@ -1,5 +1,8 @@
 package splat.parser.elements;
 
+import splat.executor.ExecutionException;
+import splat.executor.Frame;
+import splat.executor.Scope;
 import splat.lexer.Token;
 
 public class AssignmentStmt extends Statement{
@@ -13,11 +16,39 @@ public class AssignmentStmt extends Statement{
         this.expr = expr;
     }
 
-    public String toString(){
-        String result = label;
+    // Set by resolveSlots()
+    public int slot;
+    public boolean global;
+    public Type type;
+
+    public void resolveSlots(Scope scope) throws ExecutionException {
+        slot = scope.getSlot(label);
+        global = !scope.isLocal(label);
+        type = scope.getType(label);
+        expr.resolveSlots(scope);
+    }
 
-        result = result + " := " + expr + ";";
+    public void execute(Frame frame) throws ExecutionException {
+        if (type == Type.String) {
+            CharSequence value = expr.evalString(frame);
+            if (global) {
+                frame.setGlobalObject(slot, value);
+            } else {
+                frame.setObject(slot, value);
+            }
+            return;
+        }
 
-        return result;
+        // Booleans are kept as 1 / 0
+        int value = type == Type.Integer ? expr.evalInt(frame) : expr.evalBool(frame) ? 1 : 0;
+        if (global) {
+            frame.setGlobalInt(slot, value);
+        } else {
+            frame.setInt(slot, value);
+        }
+    }
+
+    public String toString(){
+        return AstPrinter.toString(this);
     }
 }
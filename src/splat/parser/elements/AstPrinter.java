@@ -0,0 +1,196 @@
+package splat.parser.elements;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Prints elements in the form their toString() gives, straight to an
+ * Appendable, in one pass over the tree.  A whole program can be streamed
+ * to a Writer without ever being held as one String, and printing it
+ * takes time in proportion to its size.  The toString() of every element
+ * with sub-elements is this printer over a StringBuilder.
+ *
+ * The printer appends a piece at a time, so a Writer should be buffered.
+ */
+public class AstPrinter {
+
+	private Appendable out;
+
+	public AstPrinter(Appendable out) {
+		this.out = out;
+	}
+
+	/**
+	 * @return what the printer prints for the element
+	 */
+	public static String toString(ASTElement elem) {
+		StringBuilder result = new StringBuilder();
+		try {
+			new AstPrinter(result).print(elem);
+		} catch (IOException ex) {
+			// A StringBuilder never throws
+			throw new IllegalStateException(ex);
+		}
+		return result.toString();
+	}
+
+	public void print(ASTElement elem) throws IOException {
+		if (elem instanceof ProgramAST) {
+			printProgram((ProgramAST) elem);
+		} else if (elem instanceof FunctionDecl) {
+			printFunction((FunctionDecl) elem);
+		} else if (elem instanceof Statement) {
+			printStmt((Statement) elem);
+		} else if (elem instanceof Expression) {
+			printExpr((Expression) elem);
+		} else {
+			// Variables and parameters have nothing inside them
+			out.append(elem.toString());
+		}
+	}
+
+	private void printProgram(ProgramAST progAST) throws IOException {
+		out.append("program \n");
+		for (Declaration decl : progAST.getDecls()) {
+			out.append("   ");
+			print(decl);
+			out.append('\n');
+		}
+		out.append("begin \n");
+		for (Statement stmt : progAST.getStmts()) {
+			out.append("   ");
+			printStmt(stmt);
+			out.append('\n');
+		}
+		out.append("end;");
+	}
+
+	private void printFunction(FunctionDecl func) throws IOException {
+		out.append(func.label).append(" (");
+		for (int i = 0; i < func.params.size(); i++) {
+			if (i > 0) {
+				out.append(", ");
+			}
+			out.append(func.params.get(i).toString());
+		}
+		out.append("): ").append(func.retType.toString()).append(" is \n");
+
+		for (VariableDecl var : func.localVarDecls) {
+			out.append('\t').append(var.toString()).append('\n');
+		}
+		out.append("begin \n");
+		for (Statement stmt : func.stmts) {
+			out.append("   ");
+			printStmt(stmt);
+			out.append('\n');
+		}
+		out.append("end;");
+	}
+
+	private void printStmt(Statement stmt) throws IOException {
+
+		if (stmt instanceof AssignmentStmt) {
+			AssignmentStmt assign = (AssignmentStmt) stmt;
+			out.append(assign.label).append(" := ");
+			printExpr(assign.expr);
+			out.append(';');
+
+		} else if (stmt instanceof PrintStmt) {
+			out.append("print ");
+			printExpr(((PrintStmt) stmt).expr);
+			out.append(" ;");
+
+		} else if (stmt instanceof ReturnStmt) {
+			ReturnStmt ret = (ReturnStmt) stmt;
+			if (ret.expr == null) {
+				out.append("return ;");
+			} else {
+				out.append("return ");
+				printExpr(ret.expr);
+				out.append(" ;");
+			}
+
+		} else if (stmt instanceof NonVoidFunctionCallStmt) {
+			NonVoidFunctionCallStmt call = (NonVoidFunctionCallStmt) stmt;
+			printExpr(call.label);
+			out.append('(');
+			printExpr(call.args);
+			out.append(");");
+
+		} else if (stmt instanceof IfConditionStmt) {
+			IfConditionStmt ifStmt = (IfConditionStmt) stmt;
+			out.append("if ");
+			printExpr(ifStmt.expr);
+			out.append("\n   then ");
+			printBlock(ifStmt.stmts1);
+			out.append("\n   ");
+			if (ifStmt.stmts2 != null) {
+				out.append("else ");
+				printBlock(ifStmt.stmts2);
+				out.append("\n   ");
+			}
+			out.append("end if ;");
+
+		} else if (stmt instanceof WhileDoStmt) {
+			WhileDoStmt whileStmt = (WhileDoStmt) stmt;
+			out.append("while ");
+			printExpr(whileStmt.expr);
+			out.append(" \n   do ");
+			printBlock(whileStmt.stmts);
+			out.append("\n   end while ;");
+
+		} else {
+			// print_line, which is always the same
+			out.append(stmt.toString());
+		}
+	}
+
+	/*
+	 * The statements of an if or a while, on one line
+	 */
+	private void printBlock(List<Statement> stmts) throws IOException {
+		for (Statement stmt : stmts) {
+			printStmt(stmt);
+			out.append(' ');
+		}
+	}
+
+	private void printExpr(Expression expr) throws IOException {
+
+		if (expr instanceof BinaryOpExpr) {
+			BinaryOpExpr binary = (BinaryOpExpr) expr;
+			out.append('(');
+			printExpr(binary.expr1);
+			out.append(binary.operator);
+			printExpr(binary.expr2);
+			out.append(')');
+
+		} else if (expr instanceof UnaryOpExpr) {
+			UnaryOpExpr unary = (UnaryOpExpr) expr;
+			out.append('(').append(unary.operator);
+			printExpr(unary.expr);
+			out.append(')');
+
+		} else if (expr instanceof NonVoidFunctionCallExpr) {
+			NonVoidFunctionCallExpr call = (NonVoidFunctionCallExpr) expr;
+			printExpr(call.label);
+			out.append('(');
+			printExpr(call.args);
+			out.append(')');
+
+		} else if (expr instanceof ArgsExpr) {
+			List<Expression> args = ((ArgsExpr) expr).args;
+			for (int i = 0; i < args.size(); i++) {
+				if (i > 0) {
+					out.append(", ");
+				}
+				printExpr(args.get(i));
+			}
+
+		} else {
+			// A label or a literal, or null where the parser couldn't
+			// make an expression
+			out.append(String.valueOf(expr));
+		}
+	}
+}
@@ -1,5 +1,9 @@
 package splat.parser.elements;
 
+import splat.executor.ExecutionException;
+import splat.executor.Frame;
+import splat.executor.Rope;
+import splat.executor.Scope;
 import splat.lexer.Token;
 
 public class BinaryOpExpr extends Expression{
@@ -27,7 +31,137 @@ public class BinaryOpExpr extends Expression{
         return expr2;
     }
 
+    // What the operator does, for the types of its operands, chosen once
+    // by resolveSlots() so that evaluating it never looks at either again
+    private static final int AND = 1;
+    private static final int OR = 2;
+    private static final int INT_EQ = 3;
+    private static final int STRING_EQ = 4;
+    private static final int CONCAT = 5;
+    private static final int ADD = 6;
+    private static final int SUB = 7;
+    private static final int MUL = 8;
+    private static final int DIV = 9;
+    private static final int REM = 10;
+    private static final int GT = 11;
+    private static final int LT = 12;
+    private static final int GE = 13;
+    private static final int LE = 14;
+    private static final int BOOL_EQ = 15;
+
+    private int op;
+
+    public void resolveSlots(Scope scope) throws ExecutionException {
+        expr1.resolveSlots(scope);
+        expr2.resolveSlots(scope);
+        if (type == null) {
+            throw new IllegalStateException("Program must be analyzed before it runs");
+        }
+        op = specialize();
+    }
+
+    private int specialize() {
+        Type operands = expr1.getType();
+        boolean strings = operands == Type.String;
+        switch (operator) {
+            case "and":
+                return AND;
+            case "or":
+                return OR;
+            case "==":
+                return strings ? STRING_EQ : operands == Type.Boolean ? BOOL_EQ : INT_EQ;
+            case "+":
+                return strings ? CONCAT : ADD;
+            case "-":
+                return SUB;
+            case "*":
+                return MUL;
+            case "/":
+                return DIV;
+            case "%":
+                return REM;
+            case ">":
+                return GT;
+            case "<":
+                return LT;
+            case ">=":
+                return GE;
+            default: // "<="
+                return LE;
+        }
+    }
+
+    /*
+     * The SemanticAnalyzer has made sure the operands have the types the
+     * operator needs, so each is evaluated unboxed, as that type.
+     */
+
+    public int evalInt(Frame frame) throws ExecutionException {
+        int val1 = expr1.evalInt(frame);
+        int val2 = expr2.evalInt(frame);
+
+        switch (op) {
+            case ADD:
+                return val1 + val2;
+            case SUB:
+                return val1 - val2;
+            case MUL:
+                return val1 * val2;
+            case DIV:
+                if (val2 == 0) {
+                    throw new ExecutionException("Division by zero", this);
+                }
+                return val1 / val2;
+            default: // REM
+                if (val2 == 0) {
+                    throw new ExecutionException("Division by zero", this);
+                }
+                return val1 % val2;
+        }
+    }
+
+    public boolean evalBool(Frame frame) throws ExecutionException {
+        switch (op) {
+            // and / or only look at the second operand when they have to
+            case AND:
+                return expr1.evalBool(frame) && expr2.evalBool(frame);
+            case OR:
+                return expr1.evalBool(frame) || expr2.evalBool(frame);
+            case BOOL_EQ:
+                return expr1.evalBool(frame) == expr2.evalBool(frame);
+            case STRING_EQ:
+                return Rope.equals(expr1.evalString(frame), expr2.evalString(frame));
+            default:
+                break;
+        }
+
+        int val1 = expr1.evalInt(frame);
+        int val2 = expr2.evalInt(frame);
+
+        switch (op) {
+            case INT_EQ:
+                return val1 == val2;
+            case GT:
+                return val1 > val2;
+            case LT:
+                return val1 < val2;
+            case GE:
+                return val1 >= val2;
+            default: // LE
+                return val1 <= val2;
+        }
+    }
+
+    /**
+     * A String built up by + in a loop grows a Rope in place, rather than
+     * being copied on every pass.
+     */
+    public CharSequence evalString(Frame frame) throws ExecutionException {
+        // CONCAT
+        return Rope.concat(expr1.evalString(frame), expr2.evalString(frame));
+    }
+
     public String toString(){
-        return "(" + expr1 + operator + expr2 + ")";
+        return AstPrinter.toString(this);
     }
 }
@@ -1,5 +1,9 @@
 package splat.parser.elements;
 
+import splat.executor.ExecutionException;
+import splat.executor.Frame;
+import splat.executor.Scope;
+import splat.executor.Value;
 import splat.lexer.Token;
 
 public abstract class Expression extends ASTElement {
@@ -9,42 +13,63 @@ public abstract class Expression extends ASTElement {
 	}
 
 	/**
-	 * This will be needed for Phase 3 - this abstract method will need to be
-	 * implemented by every Expression subclass.  This method does two things:
-	 * 
-	 * 1) Performs typechecking and semantic analysis on this expression, and
-	 * recursively calls the same method on any sub-expressions.  Note that we
-	 * will usually need the types of the immediate sub-expressions to make 
-	 * sure all the parts of this expression are of proper types.
-	 * 
-	 * 2) Determines the type of this expression. 
-	 * 
-	 * funcMap is needed in case this expression or a sub-expression contains
-	 * a function call -- we would need to make sure the argument number and 
-	 * types match, and also get the return type.
-	 * 
-	 * varAndParamMap is needed in case this expression or a sub-expression
-	 * contains variables or parameters -- we use this map to keep track of
-	 * what items are currently in scope, and what their types are
+	 * Phase 3 - the type of this expression's value, set by the
+	 * SemanticAnalyzer once it has checked the expression.  The executor
+	 * relies on it, so a program must be analyzed before it runs.  An
+	 * argument list has no value, and no type.
 	 */
-//	 public abstract Type analyzeAndGetType(Map<String, FunctionDecl> funcMap,
-//	                                        Map<String, Type> varAndParamMap);
+	public Type type;
+
+	public Type getType() {
+		return type;
+	}
 	
 	/**
-	 * This will be needed for Phase 4 - this abstract method will need to be
-	 * implemented by every Expression subclass.  This method is used to 
-	 * "calculate" the value of this expression, which will usually require we
-	 * recursively call the same method on all sub-expressions. 
+	 * Phase 4, step 1 - done once, before anything executes.  Every
+	 * variable or parameter this expression (or a sub-expression) refers to
+	 * is looked up in the scope and remembered as a frame slot, so that
+	 * evaluating it later is just an array access.
+	 */
+	public abstract void resolveSlots(Scope scope) throws ExecutionException;
+
+	/**
+	 * Phase 4, step 2 - these methods are used to "calculate" the value of
+	 * this expression, which will usually require we recursively call the
+	 * same methods on all sub-expressions.  There is one for each type, and
+	 * only the one for this expression's type may be called, so Integers and
+	 * Booleans are computed without ever being boxed.
 	 * 
-	 * funcMap is needed in case this expression or a sub-expression contains
-	 * a function call -- we will have to evaluate the individual arguments and 
-	 * create a new varAndParamMap to bind the function params to the new values
-	 * and then execute the function body.  More on this later...
-	 *  
-	 * varAndParamMap is needed in case this expression or a sub-expression
-	 * contains variables or parameters -- we use this map to keep track of the
-	 * values of the items that are currently in scope
+	 * frame holds the values of the items that are currently in scope, in
+	 * the slots assigned by resolveSlots(), and gives access to the
+	 * program's functions in case this expression contains a function call.
+	 */
+	public int evalInt(Frame frame) throws ExecutionException {
+		throw new IllegalStateException("Not an Integer expression: " + this);
+	}
+
+	public boolean evalBool(Frame frame) throws ExecutionException {
+		throw new IllegalStateException("Not a Boolean expression: " + this);
+	}
+
+	/**
+	 * @return a String, or a Rope for a String built by +
 	 */
-//	public abstract Value evaluate(Map<String, FunctionDecl> funcMap,
-//                                 Map<String, Value> varAndParamMap);
+	public CharSequence evalString(Frame frame) throws ExecutionException {
+		throw new IllegalStateException("Not a String expression: " + this);
+	}
+
+	/**
+	 * The value of this expression as a Value, for code that does not know
+	 * its type in advance.  The executor itself never needs it.
+	 */
+	public Value evaluate(Frame frame) throws ExecutionException {
+		switch (type) {
+			case Integer:
+				return Value.of(evalInt(frame));
+			case Boolean:
+				return Value.of(evalBool(frame));
+			default:
+				return Value.of(evalString(frame).toString());
+		}
+	}
 }
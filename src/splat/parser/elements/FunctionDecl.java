@@ -1,5 +1,9 @@
 package splat.parser.elements;
 
+import splat.executor.ExecutionException;
+import splat.executor.Frame;
+import splat.executor.ReturnFromCall;
+import splat.executor.Scope;
 import splat.lexer.Token;
 
 import java.util.List;
@@ -12,6 +16,9 @@ public class FunctionDecl extends Declaration {
 	public List<VariableDecl> localVarDecls;
 	public List<Statement> stmts;
 
+	// Number of parameter and local variable slots, set by resolveSlots()
+	public int frameSize;
+
 	// Need to add extra arguments for setting fields in the constructor 
 	public FunctionDecl(Token tok,
 						String label,
@@ -49,29 +56,77 @@ public class FunctionDecl extends Declaration {
 	}
 
 
-	public String toString() {
-		Boolean first = true;
-		String result = label + " (";
-		for (Param param : params){
-			if (first) {
-				result = result  + param;
-				first = false;
+	/**
+	 * Gives the parameters slots 0 .. n-1 and the local variables the slots
+	 * after them, then resolves the body against that scope.
+	 */
+	public void resolveSlots(Scope globalScope) throws ExecutionException {
+		Scope scope = globalScope.enterFunction();
+		for (Param param : params) {
+			param.slot = scope.declareLocal(param.label, param.type);
+		}
+		for (VariableDecl var : localVarDecls) {
+			var.slot = scope.declareLocal(var.label, var.type);
+		}
+		for (Statement stmt : stmts) {
+			stmt.resolveSlots(scope);
+		}
+		frameSize = scope.getLocalCount();
+	}
+
+	/**
+	 * Calls this function.  The arguments are evaluated in the caller's
+	 * frame and stored straight into the slots of a new frame for the body.
+	 * The SemanticAnalyzer has checked the types of the arguments and of
+	 * every return, so the only thing left to check is that a function
+	 * that returns a value doesn't run off the end of its body.
+	 * 
+	 * @param args argument expressions, one per parameter
+	 * @param caller frame of the function (or program) making the call
+	 * @param callSite where the call is made, for error reporting
+	 * @return the frame the body ran in, which holds the returned value
+	 */
+	public Frame call(List<Expression> args, Frame caller, ASTElement callSite)
+			throws ExecutionException {
+
+		Frame frame = caller.newCallFrame(frameSize);
+		for (int i = 0; i < args.size(); i++) {
+			Param param = params.get(i);
+			Expression arg = args.get(i);
+			switch (param.type) {
+				case Integer:
+					frame.setInt(param.slot, arg.evalInt(caller));
+					break;
+				case Boolean:
+					frame.setInt(param.slot, arg.evalBool(caller) ? 1 : 0);
+					break;
+				default:
+					frame.setObject(param.slot, arg.evalString(caller));
 			}
-			else{
-				result = result  + ", " + param;
+		}
+		// Integer and Boolean variables start out as 0 / false already
+		for (VariableDecl var : localVarDecls) {
+			if (var.type == Type.String) {
+				frame.setObject(var.slot, "");
 			}
 		}
-		result = result  + "): " + retType + " is \n";
 
-		for (VariableDecl localVarDecl : localVarDecls){
-			result = "\t" + localVarDecl + "\n";
+		boolean returned = false;
+		try {
+			for (Statement stmt : stmts) {
+				stmt.execute(frame);
+			}
+		} catch (ReturnFromCall ret) {
+			returned = true;
 		}
-		result = result + "begin \n";
-		for (Statement stmt: stmts){
-			result = result + "   " + stmt + "\n";
+
+		if (!returned && retType != ReturnType.Void) {
+			throw new ExecutionException("Function '" + label + "' ended without returning a value", callSite);
 		}
-		result = result + "end;";
+		return frame;
+	}
 
-		return result;
+	public String toString() {
+		return AstPrinter.toString(this);
 	}
 }
@@ -1,5 +1,9 @@
 package splat.parser.elements;
 
+import splat.executor.ExecutionException;
+import splat.executor.Frame;
+import splat.executor.ReturnFromCall;
+import splat.executor.Scope;
 import splat.lexer.Token;
 
 import java.util.List;
@@ -34,19 +38,28 @@ public class IfConditionStmt extends Statement{
         return stmts2;
     }
 
-    public String toString(){
-        String  result = "if " + expr + "\n   then ";
+    public void resolveSlots(Scope scope) throws ExecutionException {
+        expr.resolveSlots(scope);
         for (Statement stmt : stmts1){
-            result = result + stmt + " ";
+            stmt.resolveSlots(scope);
         }
-        result = result + "\n   ";
         if (stmts2 != null){
-            result = result + "else ";
             for (Statement stmt : stmts2){
-                result = result + stmt + " ";
+                stmt.resolveSlots(scope);
+            }
+        }
+    }
+
+    public void execute(Frame frame) throws ReturnFromCall, ExecutionException {
+        List<Statement> branch = expr.evalBool(frame) ? stmts1 : stmts2;
+        if (branch != null){
+            for (Statement stmt : branch){
+                stmt.execute(frame);
             }
-            result = result + "\n   ";
         }
-        return result + "end if ;";
+    }
+
+    public String toString(){
+        return AstPrinter.toString(this);
     }
 }
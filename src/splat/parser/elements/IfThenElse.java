@@ -1,5 +1,7 @@
 package splat.parser.elements;
 
+import splat.executor.Frame;
+import splat.executor.Scope;
 import splat.lexer.Token;
 
 public class IfThenElse extends Statement{
@@ -7,4 +9,10 @@ public class IfThenElse extends Statement{
     public IfThenElse(Token tok){
         super(tok);
     }
+
+    public void resolveSlots(Scope scope) {
+    }
+
+    public void execute(Frame frame) {
+    }
 }
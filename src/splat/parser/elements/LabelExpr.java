@@ -1,5 +1,8 @@
 package splat.parser.elements;
 
+import splat.executor.ExecutionException;
+import splat.executor.Frame;
+import splat.executor.Scope;
 import splat.lexer.Token;
 
 public class LabelExpr extends Expression{
@@ -16,6 +19,27 @@ public class LabelExpr extends Expression{
         return value;
     }
 
+    // Set by resolveSlots()
+    public int slot;
+    public boolean global;
+
+    public void resolveSlots(Scope scope) throws ExecutionException {
+        slot = scope.getSlot(value);
+        global = !scope.isLocal(value);
+    }
+
+    public int evalInt(Frame frame) {
+        return global ? frame.getGlobalInt(slot) : frame.getInt(slot);
+    }
+
+    public boolean evalBool(Frame frame) {
+        return (global ? frame.getGlobalInt(slot) : frame.getInt(slot)) != 0;
+    }
+
+    public CharSequence evalString(Frame frame) {
+        return (CharSequence) (global ? frame.getGlobalObject(slot) : frame.getObject(slot));
+    }
+
     public String toString(){
         return value;
     }
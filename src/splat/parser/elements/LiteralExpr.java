@@ -1,5 +1,8 @@
 package splat.parser.elements;
 
+import splat.executor.Frame;
+import splat.executor.Scope;
+import splat.executor.Value;
 import splat.lexer.Token;
 
 public class LiteralExpr extends Expression{
@@ -9,14 +12,72 @@ public class LiteralExpr extends Expression{
     public LiteralExpr(Token tok, String value){
         super(tok);
         this.value = value;
+        this.constant = parse(value);
 
+        // A literal's type is known as soon as it is made, so the literals
+        // the ConstantFolder makes have one too
+        if (constant != null) {
+            this.type = constant.getType();
+        }
     }
 
     public String getValue(){
         return value;
     }
 
+    // Literals never change, so their value is only built once.  It is
+    // null for an Integer literal that does not fit in an int
+    private Value constant;
+
+    private static Value parse(String value) {
+        if (value.equals("true") || value.equals("false")) {
+            return Value.of(value.equals("true"));
+        } else if (value.startsWith("\"")) {
+            return Value.of(value.substring(1, value.length() - 1));
+        }
+        try {
+            return Value.of(Integer.parseInt(value));
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+
+    public void resolveSlots(Scope scope) {
+    }
+
+    /**
+     * @return the value of this literal, or null if it is an Integer
+     * 			literal that is out of range
+     */
+    public Value getConstant() {
+        return constant;
+    }
+
+    public Value evaluate(Frame frame) {
+        return constant;
+    }
+
+    public int evalInt(Frame frame) {
+        return constant.getInt();
+    }
+
+    public boolean evalBool(Frame frame) {
+        return constant.getBoolean();
+    }
+
+    public CharSequence evalString(Frame frame) {
+        return constant.getString();
+    }
+
     public String toString(){
+        // SPLAT has no negative literals, only the ConstantFolder makes
+        // them, so they print as the unary minus they stand for
+        if (value.startsWith("-")) {
+            if (value.equals(Integer.toString(Integer.MIN_VALUE))) {
+                return "((-" + Integer.MAX_VALUE + ")-1)";
+            }
+            return "(-" + value.substring(1) + ")";
+        }
         return value;
     }
 }
@@ -1,5 +1,8 @@
 package splat.parser.elements;
 
+import splat.executor.ExecutionException;
+import splat.executor.Frame;
+import splat.executor.Scope;
 import splat.lexer.Token;
 
 public class NonVoidFunctionCallExpr extends Expression{
@@ -8,6 +11,9 @@ public class NonVoidFunctionCallExpr extends Expression{
 
     public Expression args;
 
+    // The function called, set by the SemanticAnalyzer
+    public FunctionDecl func;
+
     public NonVoidFunctionCallExpr(Token tok, Expression label, Expression args){
         super(tok);
         this.label = label;
@@ -22,7 +28,28 @@ public class NonVoidFunctionCallExpr extends Expression{
         return args;
     }
 
+    public void resolveSlots(Scope scope) throws ExecutionException {
+        args.resolveSlots(scope);
+    }
+
+    /*
+     * The SemanticAnalyzer has made sure the function returns a value of
+     * this expression's type, which the call leaves in its frame.
+     */
+
+    public int evalInt(Frame frame) throws ExecutionException {
+        return func.call(((ArgsExpr) args).getArgs(), frame, this).getReturnInt();
+    }
+
+    public boolean evalBool(Frame frame) throws ExecutionException {
+        return func.call(((ArgsExpr) args).getArgs(), frame, this).getReturnInt() != 0;
+    }
+
+    public CharSequence evalString(Frame frame) throws ExecutionException {
+        return (CharSequence) func.call(((ArgsExpr) args).getArgs(), frame, this).getReturnObject();
+    }
+
     public String toString(){
-        return label + "(" + args + ")";
+        return AstPrinter.toString(this);
     }
 }
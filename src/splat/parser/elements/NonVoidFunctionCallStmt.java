@@ -1,5 +1,8 @@
 package splat.parser.elements;
 
+import splat.executor.ExecutionException;
+import splat.executor.Frame;
+import splat.executor.Scope;
 import splat.lexer.Token;
 
 public class NonVoidFunctionCallStmt extends Statement{
@@ -8,6 +11,9 @@ public class NonVoidFunctionCallStmt extends Statement{
 
     public Expression args;
 
+    // The function called, set by the SemanticAnalyzer
+    public FunctionDecl func;
+
     public NonVoidFunctionCallStmt(Token tok, Expression label, Expression args){
         super(tok);
         this.label = label;
@@ -22,7 +28,15 @@ public class NonVoidFunctionCallStmt extends Statement{
         return args;
     }
 
+    public void resolveSlots(Scope scope) throws ExecutionException {
+        args.resolveSlots(scope);
+    }
+
+    public void execute(Frame frame) throws ExecutionException {
+        func.call(((ArgsExpr) args).getArgs(), frame, this);
+    }
+
     public String toString(){
-        return label + "(" + args + ");";
+        return AstPrinter.toString(this);
     }
 }
@@ -1,5 +1,7 @@
 package splat.parser.elements;
 
+import splat.executor.Frame;
+import splat.executor.Scope;
 import splat.lexer.Token;
 
 public class PrintLineStmt extends Statement{
@@ -10,6 +12,13 @@ public class PrintLineStmt extends Statement{
     }
 
 
+    public void resolveSlots(Scope scope) {
+    }
+
+    public void execute(Frame frame) {
+        frame.getOut().println();
+    }
+
     public String toString(){
         return "print_line" + " ;";
     }
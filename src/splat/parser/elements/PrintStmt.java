@@ -1,5 +1,8 @@
 package splat.parser.elements;
 
+import splat.executor.ExecutionException;
+import splat.executor.Frame;
+import splat.executor.Scope;
 import splat.lexer.Token;
 
 public class PrintStmt extends Statement{
@@ -14,7 +17,24 @@ public class PrintStmt extends Statement{
     public Expression getExpr(){
         return expr;
     }
+    public void resolveSlots(Scope scope) throws ExecutionException {
+        expr.resolveSlots(scope);
+    }
+
+    public void execute(Frame frame) throws ExecutionException {
+        switch (expr.getType()) {
+            case Integer:
+                frame.getOut().print(expr.evalInt(frame));
+                break;
+            case Boolean:
+                frame.getOut().print(expr.evalBool(frame));
+                break;
+            default:
+                frame.getOut().print(expr.evalString(frame).toString());
+        }
+    }
+
     public String toString(){
-        return "print " + expr + " ;";
+        return AstPrinter.toString(this);
     }
 }
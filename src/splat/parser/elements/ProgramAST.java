@@ -2,20 +2,30 @@ package splat.parser.elements;
 
 import java.util.List;
 
+import splat.executor.ExecutionException;
+import splat.executor.Scope;
+import splat.lexer.LineMap;
 import splat.lexer.Token;
 
 public class ProgramAST extends ASTElement {
 
 	private List<Declaration> decls;
 	private List<Statement> stmts;
+	private LineMap lines;
 	
+	/**
+	 * @param lines the map of the program's text, which every element of
+	 * 			the program is positioned in
+	 */
 	public ProgramAST(List<Declaration> decls,
 					  List<Statement> stmts,
-					  Token tok) {
+					  Token tok,
+					  LineMap lines) {
 		
 		super(tok);
 		this.decls = decls;
 		this.stmts = stmts;
+		this.lines = lines;
 	}
 
 	public List<Declaration> getDecls() {
@@ -25,18 +35,46 @@ public class ProgramAST extends ASTElement {
 	public List<Statement> getStmts() {
 		return stmts;
 	}
+
+	/**
+	 * @return the map that turns the offset of an element, or of an error,
+	 * 			into a line and a column
+	 */
+	public LineMap getLineMap() {
+		return lines;
+	}
 	
-	public String toString() {
-		String result = "program \n";
+	/**
+	 * Gives every program variable a global slot, and then resolves every
+	 * variable reference in the functions and the program body to its
+	 * slot.  Variables are collected first, so they can be referred to
+	 * regardless of the order they are declared in.  The program must have
+	 * passed semantic analysis, which checks every name is declared once.
+	 * 
+	 * @return the scope holding the program's global slots
+	 */
+	public Scope resolveSlots() throws ExecutionException {
+		Scope scope = new Scope();
+
 		for (Declaration decl : decls) {
-			result = result + "   " + decl + "\n";
+			if (decl instanceof VariableDecl) {
+				VariableDecl var = (VariableDecl) decl;
+				var.slot = scope.declareGlobal(var.getLabel(), var.getType());
+			}
+		}
+
+		for (Declaration decl : decls) {
+			if (decl instanceof FunctionDecl) {
+				((FunctionDecl) decl).resolveSlots(scope);
+			}
 		}
-		result = result + "begin \n";
 		for (Statement stmt : stmts) {
-			result = result + "   " + stmt + "\n";
+			stmt.resolveSlots(scope);
 		}
-		result = result	+ "end;";
-		
-		return result;
+		return scope;
+	}
+
+	public String toString() {
+		return AstPrinter.toString(this);
 	}
 }
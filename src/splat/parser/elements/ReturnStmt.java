@@ -1,5 +1,9 @@
 package splat.parser.elements;
 
+import splat.executor.ExecutionException;
+import splat.executor.Frame;
+import splat.executor.ReturnFromCall;
+import splat.executor.Scope;
 import splat.lexer.Token;
 
 public class ReturnStmt extends Statement{
@@ -19,10 +23,32 @@ public class ReturnStmt extends Statement{
         return expr;
     }
 
-    public String toString(){
-        if (expr == null){
-            return "return" + " ;";
+    public void resolveSlots(Scope scope) throws ExecutionException {
+        if (expr != null) {
+            expr.resolveSlots(scope);
+        }
+    }
+
+    /**
+     * Leaves the value, if there is one, in the frame for the caller.
+     */
+    public void execute(Frame frame) throws ReturnFromCall, ExecutionException {
+        if (expr != null) {
+            switch (expr.getType()) {
+                case Integer:
+                    frame.setReturnInt(expr.evalInt(frame));
+                    break;
+                case Boolean:
+                    frame.setReturnInt(expr.evalBool(frame) ? 1 : 0);
+                    break;
+                default:
+                    frame.setReturnObject(expr.evalString(frame));
+            }
         }
-        return "return" + " " + expr + " ;";
+        throw ReturnFromCall.INSTANCE;
+    }
+
+    public String toString(){
+        return AstPrinter.toString(this);
     }
 }
@@ -1,5 +1,9 @@
 package splat.parser.elements;
 
+import splat.executor.ExecutionException;
+import splat.executor.Frame;
+import splat.executor.ReturnFromCall;
+import splat.executor.Scope;
 import splat.lexer.Token;
 
 public abstract class Statement extends ASTElement {
@@ -20,13 +24,18 @@ public abstract class Statement extends ASTElement {
 //	                              Map<String, Type> varAndParamMap);
 	
 	/**
-	 * This will be needed for Phase 4 - this abstract method will need to be
-	 * implemented by every Statement subclass.  This method is used to 
-	 * execute each statement, which may result in output to the console, or
-	 * updating the varAndParamMap.  Both of the given maps may be needed for 
-	 * evaluating any sub-expressions in the statement.
+	 * Phase 4, step 1 - done once, before anything executes.  Assigns frame
+	 * slots to every variable reference in this statement and in all of
+	 * its sub-statements and sub-expressions.
 	 */
-//	 public abstract void execute(Map<String, FunctionDecl> funcMap,
-//	                              Map<String, Value> varAndParamMap) 
-//										throws ReturnFromCall;   
+	public abstract void resolveSlots(Scope scope) throws ExecutionException;
+
+	/**
+	 * Phase 4, step 2 - this method is used to execute each statement,
+	 * which may result in output to the console, or updating the slots of
+	 * the frame.  A return statement ends the current function call by
+	 * throwing ReturnFromCall.
+	 */
+	public abstract void execute(Frame frame)
+			throws ReturnFromCall, ExecutionException;
 }
@@ -1,5 +1,8 @@
 package splat.parser.elements;
 
+import splat.executor.ExecutionException;
+import splat.executor.Frame;
+import splat.executor.Scope;
 import splat.lexer.Token;
 
 public class UnaryOpExpr extends Expression{
@@ -22,7 +25,25 @@ public class UnaryOpExpr extends Expression{
         return expr;
     }
 
+    public void resolveSlots(Scope scope) throws ExecutionException {
+        expr.resolveSlots(scope);
+    }
+
+    /*
+     * The SemanticAnalyzer has made sure not is only applied to a Boolean
+     * and - to an Integer, so each operator has just the one of these that
+     * can be called.
+     */
+
+    public int evalInt(Frame frame) throws ExecutionException {
+        return -expr.evalInt(frame);
+    }
+
+    public boolean evalBool(Frame frame) throws ExecutionException {
+        return !expr.evalBool(frame);
+    }
+
     public String toString(){
-        return "(" + operator + expr + ")";
+        return AstPrinter.toString(this);
     }
 }
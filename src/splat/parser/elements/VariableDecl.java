@@ -7,6 +7,9 @@ public class VariableDecl extends Declaration {
 	public Type type;
 	public String label;
 
+	// Frame slot, set when the enclosing scope is resolved
+	public int slot;
+
 	// Need to add extra arguments for setting fields in the constructor 
 	public VariableDecl(Token tok, String label, Type type) {
 		super(tok);
@@ -1,5 +1,9 @@
 package splat.parser.elements;
 
+import splat.executor.ExecutionException;
+import splat.executor.Frame;
+import splat.executor.ReturnFromCall;
+import splat.executor.Scope;
 import splat.lexer.Token;
 
 import java.util.List;
@@ -24,12 +28,22 @@ public class WhileDoStmt extends Statement{
         return stmts;
     }
 
-    public String toString(){
-        String result = "while " + expr + " \n   do ";
+    public void resolveSlots(Scope scope) throws ExecutionException {
+        expr.resolveSlots(scope);
         for (Statement stmt : stmts){
-            result = result + stmt + " ";
+            stmt.resolveSlots(scope);
+        }
+    }
+
+    public void execute(Frame frame) throws ReturnFromCall, ExecutionException {
+        while (expr.evalBool(frame)) {
+            for (Statement stmt : stmts){
+                stmt.execute(frame);
+            }
         }
-        result = result + "\n   end while ;";
-        return  result;
+    }
+
+    public String toString(){
+        return AstPrinter.toString(this);
     }
 }
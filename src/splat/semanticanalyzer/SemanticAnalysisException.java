@@ -0,0 +1,11 @@
+package splat.semanticanalyzer;
+
+import splat.SplatException;
+import splat.parser.elements.ASTElement;
+
+public class SemanticAnalysisException extends SplatException {
+
+	public SemanticAnalysisException(String msg, ASTElement elem) {
+		super(msg, elem.getOffset(), null);
+	}
+}
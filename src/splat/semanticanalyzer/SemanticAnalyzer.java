@@ -0,0 +1,375 @@
+package splat.semanticanalyzer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RecursiveAction;
+
+import splat.executor.Value;
+import splat.parser.elements.*;
+
+/**
+ * Checks a program before it runs: that every variable and function it
+ * uses is declared, that calls have the right number and types of
+ * arguments, and that every operator, assignment, condition and return is
+ * given values of the right type.  The errors are the ones the compilers
+ * report, and they are found whether or not the code would ever run.
+ *
+ * Along the way every expression is given its type, and every call the
+ * function it calls, which the executor relies on instead of checking
+ * values as the program runs.
+ *
+ * The program's functions and variables are put in one table first, which
+ * doesn't change after that.  A function body only needs that table and
+ * its own parameters and variables, so the bodies are checked in parallel,
+ * on the fork-join pool analyze() is called from, or the common pool.
+ * When several functions have errors, the one declared first is reported,
+ * whichever check happens to finish first.
+ */
+public class SemanticAnalyzer {
+
+	// Fewest functions worth handing to another thread
+	private static final int BATCH = 16;
+
+	private ProgramAST progAST;
+
+	// Filled in by analyze() before any body is checked, and only read
+	// after that, so all the checks share them
+	private Map<String, FunctionDecl> funcMap;
+	private Map<String, Type> varMap;
+
+	public SemanticAnalyzer(ProgramAST progAST) {
+		this.progAST = progAST;
+	}
+
+	public void analyze() throws SemanticAnalysisException {
+		try {
+			check();
+		} catch (SemanticAnalysisException ex) {
+			// The elements only know where in the text they are
+			ex.locate(progAST.getLineMap());
+			throw ex;
+		}
+	}
+
+	private void check() throws SemanticAnalysisException {
+
+		List<FunctionDecl> funcs = new ArrayList<FunctionDecl>();
+		Map<String, FunctionDecl> byName = new HashMap<String, FunctionDecl>();
+		Map<String, Type> vars = new HashMap<String, Type>();
+
+		for (Declaration decl : progAST.getDecls()) {
+			if (decl instanceof FunctionDecl) {
+				FunctionDecl func = (FunctionDecl) decl;
+				if (byName.put(func.getLabel(), func) != null) {
+					throw new SemanticAnalysisException("Duplicate function '" + func.getLabel() + "'", func);
+				}
+				funcs.add(func);
+			} else {
+				VariableDecl var = (VariableDecl) decl;
+				if (vars.put(var.getLabel(), var.getType()) != null) {
+					throw new SemanticAnalysisException("Duplicate declaration of '" + var.getLabel() + "'", var);
+				}
+			}
+		}
+		funcMap = Collections.unmodifiableMap(byName);
+		varMap = Collections.unmodifiableMap(vars);
+
+		SemanticAnalysisException[] errors = new SemanticAnalysisException[funcs.size()];
+		new CheckFunctions(funcs, errors, 0, funcs.size()).invoke();
+		for (SemanticAnalysisException error : errors) {
+			if (error != null) {
+				throw error;
+			}
+		}
+
+		new FunctionChecker(null).checkStmts(progAST.getStmts());
+	}
+
+	/**
+	 * Checks the functions from .. to-1, splitting them in two until there
+	 * are few enough to check on one thread.  The error of each function,
+	 * if it has one, is put in its place in errors.
+	 */
+	private class CheckFunctions extends RecursiveAction {
+
+		private List<FunctionDecl> funcs;
+		private SemanticAnalysisException[] errors;
+		private int from;
+		private int to;
+
+		CheckFunctions(List<FunctionDecl> funcs, SemanticAnalysisException[] errors,
+					   int from, int to) {
+			this.funcs = funcs;
+			this.errors = errors;
+			this.from = from;
+			this.to = to;
+		}
+
+		protected void compute() {
+			if (to - from > BATCH) {
+				int mid = (from + to) >>> 1;
+				invokeAll(new CheckFunctions(funcs, errors, from, mid),
+						  new CheckFunctions(funcs, errors, mid, to));
+				return;
+			}
+			for (int i = from; i < to; i++) {
+				try {
+					FunctionDecl func = funcs.get(i);
+					new FunctionChecker(func).checkStmts(func.getStmts());
+				} catch (SemanticAnalysisException ex) {
+					errors[i] = ex;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Checks one function body, or the program body.  Everything it
+	 * changes is its own, so any number can run at once.
+	 */
+	private class FunctionChecker {
+
+		// null for the program body
+		private FunctionDecl func;
+
+		// Parameters and local variables, which hide program variables
+		private Map<String, Type> localMap;
+
+		FunctionChecker(FunctionDecl func) throws SemanticAnalysisException {
+			this.func = func;
+			this.localMap = new HashMap<String, Type>();
+			if (func != null) {
+				for (Param param : func.getParams()) {
+					declare(param.getLabel(), param.getType(), param);
+				}
+				for (VariableDecl var : func.getLocalVarDecls()) {
+					declare(var.getLabel(), var.getType(), var);
+				}
+			}
+		}
+
+		private void declare(String label, Type type, ASTElement decl)
+				throws SemanticAnalysisException {
+			if (localMap.put(label, type) != null) {
+				throw new SemanticAnalysisException("Duplicate declaration of '" + label + "'", decl);
+			}
+		}
+
+		private Type typeOfVariable(String label, ASTElement use)
+				throws SemanticAnalysisException {
+			Type type = localMap.get(label);
+			if (type == null) {
+				type = varMap.get(label);
+			}
+			if (type == null) {
+				throw new SemanticAnalysisException("Undefined variable '" + label + "'", use);
+			}
+			return type;
+		}
+
+		void checkStmts(List<Statement> stmts) throws SemanticAnalysisException {
+			for (Statement stmt : stmts) {
+				checkStmt(stmt);
+			}
+		}
+
+		private void checkStmt(Statement stmt) throws SemanticAnalysisException {
+
+			if (stmt instanceof AssignmentStmt) {
+				AssignmentStmt assign = (AssignmentStmt) stmt;
+				Type varType = typeOfVariable(assign.label, assign);
+				Type exprType = typeOf(assign.expr);
+				if (exprType != varType) {
+					throw new SemanticAnalysisException("Cannot assign " + exprType + " to "
+							+ varType + " variable '" + assign.label + "'", assign);
+				}
+
+			} else if (stmt instanceof PrintStmt) {
+				typeOf(((PrintStmt) stmt).getExpr());
+
+			} else if (stmt instanceof ReturnStmt) {
+				checkReturn((ReturnStmt) stmt);
+
+			} else if (stmt instanceof IfConditionStmt) {
+				IfConditionStmt ifStmt = (IfConditionStmt) stmt;
+				checkCondition(ifStmt.getExpr(), "If");
+				checkStmts(ifStmt.getStmts1());
+				if (ifStmt.getStmts2() != null) {
+					checkStmts(ifStmt.getStmts2());
+				}
+
+			} else if (stmt instanceof WhileDoStmt) {
+				WhileDoStmt whileStmt = (WhileDoStmt) stmt;
+				checkCondition(whileStmt.getExpr(), "While");
+				checkStmts(whileStmt.getStmts());
+
+			} else if (stmt instanceof NonVoidFunctionCallStmt) {
+				NonVoidFunctionCallStmt call = (NonVoidFunctionCallStmt) stmt;
+				call.func = checkCall(call, call.getLabel(), call.getArgs());
+			}
+			// print_line is always fine, and IfThenElse is never produced
+			// by the parser
+		}
+
+		private void checkReturn(ReturnStmt ret) throws SemanticAnalysisException {
+			Expression expr = ret.getExpr();
+
+			// A return in the program body just ends the program
+			if (func == null) {
+				if (expr != null) {
+					typeOf(expr);
+				}
+				return;
+			}
+
+			if (func.getRetType() == ReturnType.Void) {
+				if (expr != null) {
+					throw new SemanticAnalysisException("Void function '" + func.getLabel()
+							+ "' cannot return a value", ret);
+				}
+				return;
+			}
+
+			if (expr == null) {
+				throw new SemanticAnalysisException("Function '" + func.getLabel() + "' must return "
+						+ func.getRetType(), ret);
+			}
+			Type exprType = typeOf(expr);
+			if (!exprType.name().equals(func.getRetType().name())) {
+				throw new SemanticAnalysisException("Function '" + func.getLabel() + "' must return "
+						+ func.getRetType() + ", not " + exprType, ret);
+			}
+		}
+
+		private void checkCondition(Expression cond, String what) throws SemanticAnalysisException {
+			Type type = typeOf(cond);
+			if (type != Type.Boolean) {
+				throw new SemanticAnalysisException(what + " condition must be Boolean, got " + type, cond);
+			}
+		}
+
+		/**
+		 * @return the function called
+		 */
+		private FunctionDecl checkCall(ASTElement call, Expression label, Expression args)
+				throws SemanticAnalysisException {
+			String name = ((LabelExpr) label).getValue();
+			FunctionDecl callee = funcMap.get(name);
+			if (callee == null) {
+				throw new SemanticAnalysisException("Undefined function '" + name + "'", call);
+			}
+
+			List<Expression> argList = ((ArgsExpr) args).getArgs();
+			List<Param> params = callee.getParams();
+			if (argList.size() != params.size()) {
+				throw new SemanticAnalysisException("Function '" + name + "' expects "
+						+ params.size() + " argument(s)", call);
+			}
+			for (int i = 0; i < argList.size(); i++) {
+				Type argType = typeOf(argList.get(i));
+				Type paramType = params.get(i).getType();
+				if (argType != paramType) {
+					throw new SemanticAnalysisException("Argument " + (i + 1) + " of '" + name
+							+ "' must be " + paramType + ", got " + argType, argList.get(i));
+				}
+			}
+			return callee;
+		}
+
+		/**
+		 * Checks the expression and all its sub-expressions, and gives each
+		 * its type.
+		 *
+		 * @return the type of the expression's value
+		 */
+		private Type typeOf(Expression expr) throws SemanticAnalysisException {
+			Type type = checkExpr(expr);
+			expr.type = type;
+			return type;
+		}
+
+		private Type checkExpr(Expression expr) throws SemanticAnalysisException {
+
+			if (expr instanceof LiteralExpr) {
+				LiteralExpr literal = (LiteralExpr) expr;
+				Value constant = literal.getConstant();
+				if (constant == null) {
+					throw new SemanticAnalysisException("Integer literal out of range: "
+							+ literal.getValue(), literal);
+				}
+				return constant.getType();
+
+			} else if (expr instanceof LabelExpr) {
+				return typeOfVariable(((LabelExpr) expr).getValue(), expr);
+
+			} else if (expr instanceof UnaryOpExpr) {
+				UnaryOpExpr unary = (UnaryOpExpr) expr;
+				Type type = typeOf(unary.getExpr());
+				if (unary.getOperator().equals("not") && type == Type.Boolean) {
+					return Type.Boolean;
+				} else if (unary.getOperator().equals("-") && type == Type.Integer) {
+					return Type.Integer;
+				}
+				throw new SemanticAnalysisException("Operator " + unary.getOperator()
+						+ " cannot be applied to " + type, unary);
+
+			} else if (expr instanceof BinaryOpExpr) {
+				return typeOfBinary((BinaryOpExpr) expr);
+
+			} else if (expr instanceof NonVoidFunctionCallExpr) {
+				NonVoidFunctionCallExpr call = (NonVoidFunctionCallExpr) expr;
+				call.func = checkCall(call, call.getLabel(), call.getArgs());
+				if (call.func.getRetType() == ReturnType.Void) {
+					throw new SemanticAnalysisException("Function '" + call.func.getLabel()
+							+ "' does not return a value", call);
+				}
+				return Type.valueOf(call.func.getRetType().name());
+			}
+
+			throw new SemanticAnalysisException("Argument list used as a value", expr);
+		}
+
+		private Type typeOfBinary(BinaryOpExpr binary) throws SemanticAnalysisException {
+			String op = binary.getOperator();
+			Type type1 = typeOf(binary.getExpr1());
+			Type type2 = typeOf(binary.getExpr2());
+
+			if (op.equals("and") || op.equals("or")) {
+				expectType(binary, type1, Type.Boolean);
+				expectType(binary, type2, Type.Boolean);
+				return Type.Boolean;
+			}
+			if (op.equals("==")) {
+				expectType(binary, type2, type1);
+				return Type.Boolean;
+			}
+			if (op.equals("+") && type1 == Type.String) {
+				expectType(binary, type2, Type.String);
+				return Type.String;
+			}
+
+			expectType(binary, type1, Type.Integer);
+			expectType(binary, type2, Type.Integer);
+			switch (op) {
+				case ">":
+				case "<":
+				case ">=":
+				case "<=":
+					return Type.Boolean;
+				default:
+					return Type.Integer;
+			}
+		}
+
+		private void expectType(BinaryOpExpr binary, Type actual, Type expected)
+				throws SemanticAnalysisException {
+			if (actual != expected) {
+				throw new SemanticAnalysisException("Operator " + binary.getOperator() + " cannot be applied to "
+						+ actual + " here, expected " + expected, binary);
+			}
+		}
+	}
+}
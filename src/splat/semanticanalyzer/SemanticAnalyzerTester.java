@@ -0,0 +1,114 @@
+package splat.semanticanalyzer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import splat.TestRunner;
+import splat.lexer.LexException;
+import splat.lexer.Lexer;
+import splat.parser.ParseException;
+import splat.parser.Parser;
+import splat.parser.elements.ProgramAST;
+
+public class SemanticAnalyzerTester {
+
+	private TestRunner runner;
+	private boolean verbose;
+
+	public static void main(String[] args) {
+
+		SemanticAnalyzerTester tester = new SemanticAnalyzerTester(true, TestRunner.fromArgs(args));
+		tester.runTests();
+	}
+
+	public SemanticAnalyzerTester(boolean seeResults) {
+		this(seeResults, new TestRunner());
+	}
+
+	public SemanticAnalyzerTester(boolean seeResults, TestRunner runner) {
+		this.runner = runner;
+		verbose = seeResults;
+	}
+
+	public void runTests() {
+		runner.runSuite("SEMANTIC ANALYZER", new TestRunner.Test() {
+			public TestRunner.Outcome run(File testFile, PrintStream details) throws IOException {
+				return runTest(testFile, details);
+			}
+		}, "_badsemantics.splat", "_goodsemantics.splat");
+	}
+
+	private TestRunner.Outcome runTest(File testFile, PrintStream details) throws IOException {
+
+		boolean expectSemanticError = testFile.getName().endsWith("_badsemantics.splat");
+
+		// The error expected, message and position, if the test comes with
+		// it.  When several functions have errors, the one declared first
+		// must be reported, however the checks were scheduled
+		String errName = testFile.getName().replaceAll("\\.splat$", ".err");
+		File errFile = new File(testFile.getParentFile(), errName);
+		String expectedError = null;
+		if (errFile.exists()) {
+			expectedError = new String(Files.readAllBytes(errFile.toPath()),
+					StandardCharsets.UTF_8).trim();
+		}
+
+		try {
+
+			ProgramAST prog = new Parser(new Lexer(testFile)).parse();
+			SemanticAnalyzer analyzer = new SemanticAnalyzer(prog);
+			analyzer.analyze();
+
+			// If we expected an error, but an exception wasn't thrown...fail
+			if (expectSemanticError) {
+				return TestRunner.Outcome.failed("semantic error should have been detected");
+
+			// No exceptions thrown with no errors in the file...success
+			} else {
+				return TestRunner.Outcome.passed("analysis successful");
+			}
+
+		} catch (SemanticAnalysisException ex) {
+
+			// The expected error, but not where it should be...fail
+			if (expectSemanticError && expectedError != null
+					&& !expectedError.equals(ex.toString())) {
+				details.println(ex);
+				details.println();
+				return TestRunner.Outcome.failed("error does not match " + errName);
+
+			// If a semantic error is what was expected...success
+			} else if (expectSemanticError) {
+				if (verbose) {
+					details.println(ex);
+					details.println();
+				}
+				return TestRunner.Outcome.passed("semantic error caught");
+
+			// If an exception was thrown, but it shouldn't have been...fail
+			} else {
+				details.println(ex);
+				details.println();
+				return TestRunner.Outcome.failed("analysis should have been successful");
+			}
+
+		} catch (ParseException ex) {
+
+			// All of our goodsemantics and badsemantics files should lex
+			// and parse
+			details.println(ex);
+			details.println();
+			return TestRunner.Outcome.failed("parsing should have been successful");
+
+		} catch (LexException ex) {
+
+			details.println(ex);
+			details.println();
+			return TestRunner.Outcome.failed("lexing should have been successful");
+		}
+	}
+
+}
@@ -0,0 +1,70 @@
+package splat.vm;
+
+/**
+ * Instruction set of the SPLAT register VM.  An instruction is its opcode
+ * followed by its operands, all stored as ints in one code array.
+ * 
+ * Each function activation has two banks of registers: int registers for
+ * Integer and Boolean values (false = 0, true = 1), and String registers.
+ * Operands named i, a, b are int registers, s, t are String registers,
+ * g is a global variable index, k a string constant index, loc an index
+ * into the program's error locations, and target a code offset.
+ */
+public final class Opcodes {
+
+	public static final int ICONST = 1;		// i, value		i = value
+	public static final int SCONST = 2;		// s, k			s = strings[k]
+	public static final int IMOV = 3;		// i, a			i = a
+	public static final int SMOV = 4;		// s, t			s = t
+	public static final int IGLOAD = 5;		// i, g			i = intGlobals[g]
+	public static final int IGSTORE = 6;	// g, a			intGlobals[g] = a
+	public static final int SGLOAD = 7;		// s, g			s = stringGlobals[g]
+	public static final int SGSTORE = 8;	// g, t			stringGlobals[g] = t
+
+	public static final int IADD = 9;		// i, a, b		i = a + b
+	public static final int ISUB = 10;		// i, a, b
+	public static final int IMUL = 11;		// i, a, b
+	public static final int IDIV = 12;		// i, a, b, loc	(error at loc if b == 0)
+	public static final int IREM = 13;		// i, a, b, loc
+	public static final int INEG = 14;		// i, a			i = -a
+	public static final int NOT = 15;		// i, a			i = 1 - a
+
+	public static final int ILT = 16;		// i, a, b		i = a < b
+	public static final int ILE = 17;		// i, a, b
+	public static final int IGT = 18;		// i, a, b
+	public static final int IGE = 19;		// i, a, b
+	public static final int IEQ = 20;		// i, a, b
+	public static final int SEQ = 21;		// i, s, t		i = s.equals(t)
+	public static final int SCONCAT = 22;	// s, t, u		s = t + u
+
+	public static final int JMP = 23;		// target
+	public static final int JZ = 24;		// a, target	jump if a == 0
+	public static final int JNZ = 25;		// a, target	jump if a != 0
+	public static final int JLT = 26;		// a, b, target	jump if a < b
+	public static final int JLE = 27;		// a, b, target
+	public static final int JGT = 28;		// a, b, target
+	public static final int JGE = 29;		// a, b, target
+	public static final int JEQ = 30;		// a, b, target
+	public static final int JNE = 31;		// a, b, target
+
+	// func, dst, argc, arg registers..., loc  The arguments are copied into
+	// the callee's parameter registers; on return the result goes to dst
+	public static final int CALL = 32;
+	public static final int IRET = 33;		// a
+	public static final int SRET = 34;		// s
+	public static final int RET = 35;
+
+	public static final int PRINTI = 36;	// a
+	public static final int PRINTB = 37;	// a
+	public static final int PRINTS = 38;	// s
+	public static final int PRINTLN = 39;
+
+	public static final int ERROR = 40;		// k, loc		fail with strings[k]
+
+	// k  Fail with strings[k] at the location of the call that entered the
+	// current function
+	public static final int NORET = 41;
+
+	private Opcodes() {
+	}
+}
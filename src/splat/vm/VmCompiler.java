@@ -0,0 +1,536 @@
+package splat.vm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import splat.executor.ExecutionException;
+import splat.executor.Scope;
+import splat.executor.Value;
+import splat.parser.elements.*;
+
+import static splat.vm.Opcodes.*;
+
+/**
+ * Compiles a program to register VM code.  Variables live in fixed
+ * registers (or global slots), and every expression is computed into a
+ * register, using fresh temporaries above the variables that are all
+ * released again at the end of each statement.
+ *
+ * The SemanticAnalyzer has given every expression its type and every call
+ * its function, so integer and string operations get their own
+ * instructions, and a program must be analyzed before it is compiled.
+ */
+public class VmCompiler {
+
+	private ProgramAST progAST;
+
+	private int[] code;
+	private int length;
+	private int lastInstruction;
+
+	private List<String> strings;
+	private Map<String, Integer> stringIndexes;
+	private List<ASTElement> locations;
+
+	private Map<String, Integer> funcIndexes;
+	private VmFunction[] functions;
+
+	// Bank index of each program variable, by global slot
+	private int[] globalIndexes;
+
+	// The function being compiled (null for the program body)
+	private FunctionDecl func;
+	private VmFunction vmFunc;
+	private int[] localRegs;
+
+	// Next free temporary in each bank
+	private int nextInt;
+	private int nextString;
+
+	public VmCompiler(ProgramAST progAST) {
+		this.progAST = progAST;
+	}
+
+	public VmProgram compile() throws ExecutionException {
+
+		code = new int[1024];
+		length = 0;
+		strings = new ArrayList<String>();
+		stringIndexes = new HashMap<String, Integer>();
+		locations = new ArrayList<ASTElement>();
+
+		Scope scope = progAST.resolveSlots();
+
+		globalIndexes = new int[scope.getGlobalCount()];
+		int intGlobals = 0;
+		int stringGlobals = 0;
+		for (Declaration decl : progAST.getDecls()) {
+			if (decl instanceof VariableDecl) {
+				VariableDecl var = (VariableDecl) decl;
+				if (var.getType() == Type.String) {
+					globalIndexes[var.slot] = stringGlobals++;
+				} else {
+					globalIndexes[var.slot] = intGlobals++;
+				}
+			}
+		}
+
+		// Number the functions up front so calls can refer to them by index
+		List<FunctionDecl> decls = new ArrayList<FunctionDecl>();
+		for (Declaration decl : progAST.getDecls()) {
+			if (decl instanceof FunctionDecl) {
+				decls.add((FunctionDecl) decl);
+			}
+		}
+		functions = new VmFunction[decls.size() + 1];
+		funcIndexes = new HashMap<String, Integer>();
+		functions[0] = new VmFunction("program");
+		for (int i = 0; i < decls.size(); i++) {
+			functions[i + 1] = new VmFunction(decls.get(i).getLabel());
+			funcIndexes.put(decls.get(i).getLabel(), i + 1);
+		}
+
+		compileMain();
+		for (int i = 0; i < decls.size(); i++) {
+			compileFunction(decls.get(i), functions[i + 1]);
+		}
+
+		return new VmProgram(Arrays.copyOf(code, length),
+				strings.toArray(new String[0]),
+				functions,
+				locations.toArray(new ASTElement[0]),
+				intGlobals, stringGlobals);
+	}
+
+	private void compileMain() throws ExecutionException {
+		func = null;
+		vmFunc = functions[0];
+		localRegs = new int[0];
+		vmFunc.paramRegs = new int[0];
+		vmFunc.paramIsString = new boolean[0];
+
+		vmFunc.entry = length;
+		compileStmts(progAST.getStmts());
+		emit(RET);
+	}
+
+	private void compileFunction(FunctionDecl decl, VmFunction target) throws ExecutionException {
+		func = decl;
+		vmFunc = target;
+		localRegs = new int[decl.frameSize];
+
+		int ints = 0;
+		int strs = 0;
+		List<Param> params = decl.getParams();
+		vmFunc.paramRegs = new int[params.size()];
+		vmFunc.paramIsString = new boolean[params.size()];
+		for (int i = 0; i < params.size(); i++) {
+			Param param = params.get(i);
+			boolean isString = param.getType() == Type.String;
+			localRegs[param.slot] = isString ? strs++ : ints++;
+			vmFunc.paramRegs[i] = localRegs[param.slot];
+			vmFunc.paramIsString[i] = isString;
+		}
+		vmFunc.intParams = ints;
+		vmFunc.stringParams = strs;
+
+		for (VariableDecl var : decl.getLocalVarDecls()) {
+			localRegs[var.slot] = var.getType() == Type.String ? strs++ : ints++;
+		}
+		vmFunc.intVars = ints;
+		vmFunc.stringVars = strs;
+		vmFunc.intRegs = ints;
+		vmFunc.stringRegs = strs;
+
+		vmFunc.entry = length;
+		compileStmts(decl.getStmts());
+
+		if (decl.getRetType() == ReturnType.Void) {
+			emit(RET);
+		} else {
+			emit(NORET, string("Function '" + decl.getLabel() + "' ended without returning a value"));
+		}
+	}
+
+	private void compileStmts(List<Statement> stmts) throws ExecutionException {
+		for (Statement stmt : stmts) {
+			// Temporaries only live within a statement
+			nextInt = vmFunc.intVars;
+			nextString = vmFunc.stringVars;
+			compileStmt(stmt);
+		}
+	}
+
+	private void compileStmt(Statement stmt) throws ExecutionException {
+
+		if (stmt instanceof AssignmentStmt) {
+			AssignmentStmt assign = (AssignmentStmt) stmt;
+			int reg = compileExpr(assign.expr);
+			boolean isString = assign.type == Type.String;
+			if (assign.global) {
+				emit(isString ? SGSTORE : IGSTORE, globalIndexes[assign.slot], reg);
+			} else if (!retarget(reg, isString, localRegs[assign.slot])) {
+				emit(isString ? SMOV : IMOV, localRegs[assign.slot], reg);
+			}
+
+		} else if (stmt instanceof PrintStmt) {
+			Expression expr = ((PrintStmt) stmt).getExpr();
+			int reg = compileExpr(expr);
+			switch (expr.getType()) {
+				case Integer:
+					emit(PRINTI, reg);
+					break;
+				case Boolean:
+					emit(PRINTB, reg);
+					break;
+				default:
+					emit(PRINTS, reg);
+			}
+
+		} else if (stmt instanceof PrintLineStmt) {
+			emit(PRINTLN);
+
+		} else if (stmt instanceof ReturnStmt) {
+			compileReturn((ReturnStmt) stmt);
+
+		} else if (stmt instanceof IfConditionStmt) {
+			IfConditionStmt ifStmt = (IfConditionStmt) stmt;
+			int toElse = compileJumpUnless(ifStmt.getExpr());
+			compileStmts(ifStmt.getStmts1());
+			if (ifStmt.getStmts2() != null) {
+				int toEnd = emitJump(JMP, -1);
+				patch(toElse);
+				compileStmts(ifStmt.getStmts2());
+				patch(toEnd);
+			} else {
+				patch(toElse);
+			}
+
+		} else if (stmt instanceof WhileDoStmt) {
+			WhileDoStmt whileStmt = (WhileDoStmt) stmt;
+			int top = length;
+			int toEnd = compileJumpUnless(whileStmt.getExpr());
+			compileStmts(whileStmt.getStmts());
+			emit(JMP, top);
+			patch(toEnd);
+
+		} else if (stmt instanceof NonVoidFunctionCallStmt) {
+			NonVoidFunctionCallStmt call = (NonVoidFunctionCallStmt) stmt;
+			compileCall(call.func, call.getArgs(), call);
+		}
+		// IfThenElse is never produced by the parser, nothing to do
+	}
+
+	private void compileReturn(ReturnStmt ret) throws ExecutionException {
+		Expression expr = ret.getExpr();
+		if (expr == null) {
+			emit(RET);
+			return;
+		}
+
+		// A return in the program body just ends the program
+		int reg = compileExpr(expr);
+		if (func == null) {
+			emit(RET);
+		} else {
+			emit(expr.getType() == Type.String ? SRET : IRET, reg);
+		}
+	}
+
+	/*
+	 * Emits a jump, to be patched, taken when the condition is false.  An
+	 * integer comparison is folded into the jump itself.
+	 *
+	 * @return the code offset of the target operand
+	 */
+	private int compileJumpUnless(Expression cond) throws ExecutionException {
+
+		if (cond instanceof BinaryOpExpr) {
+			BinaryOpExpr binary = (BinaryOpExpr) cond;
+			int jump = negatedJump(binary.getOperator());
+			if (jump != 0) {
+				int reg1 = compileExpr(binary.getExpr1());
+				int reg2 = compileExpr(binary.getExpr2());
+				if (binary.getExpr1().getType() != Type.String) {
+					emit(jump, reg1, reg2, -1);
+					return length - 1;
+				}
+				int reg = tempInt();
+				emit(SEQ, reg, reg1, reg2);
+				return emitJump(JZ, reg);
+			}
+		}
+
+		int reg = compileExpr(cond);
+		return emitJump(JZ, reg);
+	}
+
+	/*
+	 * @return the jump taken when the comparison does not hold, or 0 if
+	 * 			the operator is not a comparison
+	 */
+	private static int negatedJump(String op) {
+		switch (op) {
+			case "<":
+				return JGE;
+			case "<=":
+				return JGT;
+			case ">":
+				return JLE;
+			case ">=":
+				return JLT;
+			case "==":
+				return JNE;
+			default:
+				return 0;
+		}
+	}
+
+	/**
+	 * Computes the value of the expression into a register.
+	 *
+	 * @return the register holding the value, in the int bank for Integer
+	 * 			and Boolean values and in the String bank otherwise
+	 */
+	private int compileExpr(Expression expr) throws ExecutionException {
+
+		if (expr instanceof LiteralExpr) {
+			Value constant = ((LiteralExpr) expr).getConstant();
+			if (constant.getType() == Type.String) {
+				int reg = tempString();
+				emit(SCONST, reg, string(constant.getString()));
+				return reg;
+			}
+			int reg = tempInt();
+			emit(ICONST, reg, constant.getInt());
+			return reg;
+
+		} else if (expr instanceof LabelExpr) {
+			LabelExpr label = (LabelExpr) expr;
+			if (!label.global) {
+				return localRegs[label.slot];
+			}
+			if (label.getType() == Type.String) {
+				int reg = tempString();
+				emit(SGLOAD, reg, globalIndexes[label.slot]);
+				return reg;
+			}
+			int reg = tempInt();
+			emit(IGLOAD, reg, globalIndexes[label.slot]);
+			return reg;
+
+		} else if (expr instanceof UnaryOpExpr) {
+			UnaryOpExpr unary = (UnaryOpExpr) expr;
+			int operand = compileExpr(unary.getExpr());
+			int reg = tempInt();
+			emit(unary.getOperator().equals("not") ? NOT : INEG, reg, operand);
+			return reg;
+
+		} else if (expr instanceof BinaryOpExpr) {
+			return compileBinary((BinaryOpExpr) expr);
+
+		} else if (expr instanceof NonVoidFunctionCallExpr) {
+			NonVoidFunctionCallExpr call = (NonVoidFunctionCallExpr) expr;
+			return compileCall(call.func, call.getArgs(), call);
+		}
+
+		throw new IllegalStateException("Argument list used as a value: " + expr);
+	}
+
+	private int compileBinary(BinaryOpExpr binary) throws ExecutionException {
+		String op = binary.getOperator();
+
+		// and / or only evaluate the second operand when they have to
+		if (op.equals("and") || op.equals("or")) {
+			int reg = tempInt();
+			int first = compileExpr(binary.getExpr1());
+			emit(IMOV, reg, first);
+			int toEnd = emitJump(op.equals("and") ? JZ : JNZ, reg);
+			int second = compileExpr(binary.getExpr2());
+			emit(IMOV, reg, second);
+			patch(toEnd);
+			return reg;
+		}
+
+		int reg1 = compileExpr(binary.getExpr1());
+		int reg2 = compileExpr(binary.getExpr2());
+		boolean strings = binary.getExpr1().getType() == Type.String;
+
+		if (op.equals("==")) {
+			int reg = tempInt();
+			emit(strings ? SEQ : IEQ, reg, reg1, reg2);
+			return reg;
+		}
+		if (op.equals("+") && strings) {
+			int reg = tempString();
+			emit(SCONCAT, reg, reg1, reg2);
+			return reg;
+		}
+
+		int reg = tempInt();
+		switch (op) {
+			case "+":
+				emit(IADD, reg, reg1, reg2);
+				break;
+			case "-":
+				emit(ISUB, reg, reg1, reg2);
+				break;
+			case "*":
+				emit(IMUL, reg, reg1, reg2);
+				break;
+			case "/":
+				emit(IDIV, reg, reg1, reg2, location(binary));
+				break;
+			case "%":
+				emit(IREM, reg, reg1, reg2, location(binary));
+				break;
+			case ">":
+				emit(IGT, reg, reg1, reg2);
+				break;
+			case "<":
+				emit(ILT, reg, reg1, reg2);
+				break;
+			case ">=":
+				emit(IGE, reg, reg1, reg2);
+				break;
+			default: // "<="
+				emit(ILE, reg, reg1, reg2);
+		}
+		return reg;
+	}
+
+	/**
+	 * @return the register the result ends up in, or -1 for a void function
+	 */
+	private int compileCall(FunctionDecl callee, Expression args, ASTElement site)
+			throws ExecutionException {
+		List<Expression> argList = ((ArgsExpr) args).getArgs();
+
+		int[] argRegs = new int[argList.size()];
+		for (int i = 0; i < argList.size(); i++) {
+			argRegs[i] = compileExpr(argList.get(i));
+		}
+
+		int dst = -1;
+		if (callee.getRetType() == ReturnType.String) {
+			dst = tempString();
+		} else if (callee.getRetType() != ReturnType.Void) {
+			dst = tempInt();
+		}
+
+		int[] call = new int[5 + argRegs.length];
+		call[0] = CALL;
+		call[1] = funcIndexes.get(callee.getLabel());
+		call[2] = dst;
+		call[3] = argRegs.length;
+		System.arraycopy(argRegs, 0, call, 4, argRegs.length);
+		call[4 + argRegs.length] = location(site);
+		emit(call);
+		return dst;
+	}
+
+	/*
+	 * Makes the instruction just emitted write straight to the register
+	 * dst instead of the temporary reg, if it is safe to.
+	 *
+	 * @return true if no move to dst is needed any more
+	 */
+	private boolean retarget(int reg, boolean isString, int dst) {
+		if (reg == dst) {
+			return true;
+		}
+		boolean isTemp = isString ? reg >= vmFunc.stringVars : reg >= vmFunc.intVars;
+		if (!isTemp || lastInstruction < 0) {
+			return false;
+		}
+		switch (code[lastInstruction]) {
+			case ICONST: case IMOV: case IGLOAD:
+			case IADD: case ISUB: case IMUL: case IDIV: case IREM: case INEG: case NOT:
+			case ILT: case ILE: case IGT: case IGE: case IEQ: case SEQ:
+				if (isString) {
+					return false;
+				}
+				break;
+			case SCONST: case SMOV: case SGLOAD: case SCONCAT:
+				if (!isString) {
+					return false;
+				}
+				break;
+			default:
+				return false;
+		}
+		if (code[lastInstruction + 1] != reg) {
+			return false;
+		}
+		code[lastInstruction + 1] = dst;
+		return true;
+	}
+
+	private int tempInt() {
+		int reg = nextInt++;
+		if (nextInt > vmFunc.intRegs) {
+			vmFunc.intRegs = nextInt;
+		}
+		return reg;
+	}
+
+	private int tempString() {
+		int reg = nextString++;
+		if (nextString > vmFunc.stringRegs) {
+			vmFunc.stringRegs = nextString;
+		}
+		return reg;
+	}
+
+	private int string(String value) {
+		Integer index = stringIndexes.get(value);
+		if (index == null) {
+			index = strings.size();
+			strings.add(value);
+			stringIndexes.put(value, index);
+		}
+		return index;
+	}
+
+	private int location(ASTElement elem) {
+		locations.add(elem);
+		return locations.size() - 1;
+	}
+
+	/*
+	 * Emits a jump whose target is filled in later by patch().
+	 *
+	 * @param reg the register tested, or -1 for an unconditional JMP
+	 * @return the code offset of the target operand
+	 */
+	private int emitJump(int opcode, int reg) {
+		if (reg < 0) {
+			emit(opcode, -1);
+		} else {
+			emit(opcode, reg, -1);
+		}
+		return length - 1;
+	}
+
+	/*
+	 * Points a jump emitted by emitJump() at the current end of the code.
+	 */
+	private void patch(int operand) {
+		code[operand] = length;
+		// Code can now be reached from elsewhere, so leave it alone
+		lastInstruction = -1;
+	}
+
+	private void emit(int... words) {
+		lastInstruction = length;
+		if (length + words.length > code.length) {
+			code = Arrays.copyOf(code, Math.max(code.length * 2, length + words.length));
+		}
+		for (int word : words) {
+			code[length++] = word;
+		}
+	}
+}
@@ -0,0 +1,313 @@
+package splat.vm;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+
+import splat.executor.ExecutionException;
+import splat.executor.Rope;
+import splat.parser.elements.ProgramAST;
+
+import static splat.vm.Opcodes.*;
+
+/**
+ * Runs a program by compiling it to register VM code and interpreting
+ * that.  Registers of all active calls sit on two shared stacks, one
+ * int[] and one CharSequence[], so integers and booleans are never boxed.
+ * Strings are joined with Rope.concat, the same as the interpreter.
+ */
+public class VmExecutor {
+
+	// Deeper recursion than this is reported as a stack overflow
+	private static final int MAX_DEPTH = 1000000;
+
+	private ProgramAST progAST;
+	private PrintStream out;
+
+	public VmExecutor(ProgramAST progAST) {
+		this(progAST, System.out);
+	}
+
+	public VmExecutor(ProgramAST progAST, PrintStream out) {
+		this.progAST = progAST;
+		this.out = out;
+	}
+
+	public void runProgram() throws ExecutionException {
+		VmProgram program = new VmCompiler(progAST).compile();
+		try {
+			run(program);
+		} finally {
+			out.flush();
+		}
+	}
+
+	private void run(VmProgram program) throws ExecutionException {
+
+		int[] code = program.code;
+		String[] strings = program.strings;
+		VmFunction[] functions = program.functions;
+
+		int[] intGlobals = new int[program.intGlobals];
+		CharSequence[] stringGlobals = new CharSequence[program.stringGlobals];
+		Arrays.fill(stringGlobals, "");
+
+		VmFunction func = functions[0];
+		int[] iregs = new int[Math.max(256, func.intRegs)];
+		CharSequence[] sregs = new CharSequence[Math.max(256, func.stringRegs)];
+		int ibase = 0;
+		int sbase = 0;
+
+		// Saved state of the callers, one entry per active call
+		int depth = 0;
+		int[] retPcs = new int[64];
+		int[] retDsts = new int[64];
+		int[] ibases = new int[64];
+		int[] sbases = new int[64];
+		VmFunction[] funcs = new VmFunction[64];
+
+		int pc = func.entry;
+
+		while (true) {
+			switch (code[pc]) {
+
+				case ICONST:
+					iregs[ibase + code[pc + 1]] = code[pc + 2];
+					pc += 3;
+					break;
+				case SCONST:
+					sregs[sbase + code[pc + 1]] = strings[code[pc + 2]];
+					pc += 3;
+					break;
+				case IMOV:
+					iregs[ibase + code[pc + 1]] = iregs[ibase + code[pc + 2]];
+					pc += 3;
+					break;
+				case SMOV:
+					sregs[sbase + code[pc + 1]] = sregs[sbase + code[pc + 2]];
+					pc += 3;
+					break;
+				case IGLOAD:
+					iregs[ibase + code[pc + 1]] = intGlobals[code[pc + 2]];
+					pc += 3;
+					break;
+				case IGSTORE:
+					intGlobals[code[pc + 1]] = iregs[ibase + code[pc + 2]];
+					pc += 3;
+					break;
+				case SGLOAD:
+					sregs[sbase + code[pc + 1]] = stringGlobals[code[pc + 2]];
+					pc += 3;
+					break;
+				case SGSTORE:
+					stringGlobals[code[pc + 1]] = sregs[sbase + code[pc + 2]];
+					pc += 3;
+					break;
+
+				case IADD:
+					iregs[ibase + code[pc + 1]] = iregs[ibase + code[pc + 2]] + iregs[ibase + code[pc + 3]];
+					pc += 4;
+					break;
+				case ISUB:
+					iregs[ibase + code[pc + 1]] = iregs[ibase + code[pc + 2]] - iregs[ibase + code[pc + 3]];
+					pc += 4;
+					break;
+				case IMUL:
+					iregs[ibase + code[pc + 1]] = iregs[ibase + code[pc + 2]] * iregs[ibase + code[pc + 3]];
+					pc += 4;
+					break;
+				case IDIV: {
+					int divisor = iregs[ibase + code[pc + 3]];
+					if (divisor == 0) {
+						throw new ExecutionException("Division by zero", program.locations[code[pc + 4]]);
+					}
+					iregs[ibase + code[pc + 1]] = iregs[ibase + code[pc + 2]] / divisor;
+					pc += 5;
+					break;
+				}
+				case IREM: {
+					int divisor = iregs[ibase + code[pc + 3]];
+					if (divisor == 0) {
+						throw new ExecutionException("Division by zero", program.locations[code[pc + 4]]);
+					}
+					iregs[ibase + code[pc + 1]] = iregs[ibase + code[pc + 2]] % divisor;
+					pc += 5;
+					break;
+				}
+				case INEG:
+					iregs[ibase + code[pc + 1]] = -iregs[ibase + code[pc + 2]];
+					pc += 3;
+					break;
+				case NOT:
+					iregs[ibase + code[pc + 1]] = 1 - iregs[ibase + code[pc + 2]];
+					pc += 3;
+					break;
+
+				case ILT:
+					iregs[ibase + code[pc + 1]] = iregs[ibase + code[pc + 2]] < iregs[ibase + code[pc + 3]] ? 1 : 0;
+					pc += 4;
+					break;
+				case ILE:
+					iregs[ibase + code[pc + 1]] = iregs[ibase + code[pc + 2]] <= iregs[ibase + code[pc + 3]] ? 1 : 0;
+					pc += 4;
+					break;
+				case IGT:
+					iregs[ibase + code[pc + 1]] = iregs[ibase + code[pc + 2]] > iregs[ibase + code[pc + 3]] ? 1 : 0;
+					pc += 4;
+					break;
+				case IGE:
+					iregs[ibase + code[pc + 1]] = iregs[ibase + code[pc + 2]] >= iregs[ibase + code[pc + 3]] ? 1 : 0;
+					pc += 4;
+					break;
+				case IEQ:
+					iregs[ibase + code[pc + 1]] = iregs[ibase + code[pc + 2]] == iregs[ibase + code[pc + 3]] ? 1 : 0;
+					pc += 4;
+					break;
+				case SEQ:
+					iregs[ibase + code[pc + 1]] = Rope.equals(sregs[sbase + code[pc + 2]], sregs[sbase + code[pc + 3]]) ? 1 : 0;
+					pc += 4;
+					break;
+				case SCONCAT:
+					sregs[sbase + code[pc + 1]] = Rope.concat(sregs[sbase + code[pc + 2]], sregs[sbase + code[pc + 3]]);
+					pc += 4;
+					break;
+
+				case JMP:
+					pc = code[pc + 1];
+					break;
+				case JZ:
+					pc = iregs[ibase + code[pc + 1]] == 0 ? code[pc + 2] : pc + 3;
+					break;
+				case JNZ:
+					pc = iregs[ibase + code[pc + 1]] != 0 ? code[pc + 2] : pc + 3;
+					break;
+
+				case JLT:
+					pc = iregs[ibase + code[pc + 1]] < iregs[ibase + code[pc + 2]] ? code[pc + 3] : pc + 4;
+					break;
+				case JLE:
+					pc = iregs[ibase + code[pc + 1]] <= iregs[ibase + code[pc + 2]] ? code[pc + 3] : pc + 4;
+					break;
+				case JGT:
+					pc = iregs[ibase + code[pc + 1]] > iregs[ibase + code[pc + 2]] ? code[pc + 3] : pc + 4;
+					break;
+				case JGE:
+					pc = iregs[ibase + code[pc + 1]] >= iregs[ibase + code[pc + 2]] ? code[pc + 3] : pc + 4;
+					break;
+				case JEQ:
+					pc = iregs[ibase + code[pc + 1]] == iregs[ibase + code[pc + 2]] ? code[pc + 3] : pc + 4;
+					break;
+				case JNE:
+					pc = iregs[ibase + code[pc + 1]] != iregs[ibase + code[pc + 2]] ? code[pc + 3] : pc + 4;
+					break;
+
+				case CALL: {
+					VmFunction callee = functions[code[pc + 1]];
+					int argc = code[pc + 3];
+					if (depth == MAX_DEPTH) {
+						throw new ExecutionException("Stack overflow, recursion too deep", progAST);
+					}
+					if (depth == retPcs.length) {
+						int size = depth * 2;
+						retPcs = Arrays.copyOf(retPcs, size);
+						retDsts = Arrays.copyOf(retDsts, size);
+						ibases = Arrays.copyOf(ibases, size);
+						sbases = Arrays.copyOf(sbases, size);
+						funcs = Arrays.copyOf(funcs, size);
+					}
+
+					// The callee's registers go right above the caller's
+					int newIbase = ibase + func.intRegs;
+					int newSbase = sbase + func.stringRegs;
+					if (newIbase + callee.intRegs > iregs.length) {
+						iregs = Arrays.copyOf(iregs, Math.max(iregs.length * 2, newIbase + callee.intRegs));
+					}
+					if (newSbase + callee.stringRegs > sregs.length) {
+						sregs = Arrays.copyOf(sregs, Math.max(sregs.length * 2, newSbase + callee.stringRegs));
+					}
+
+					for (int i = 0; i < argc; i++) {
+						int arg = code[pc + 4 + i];
+						if (callee.paramIsString[i]) {
+							sregs[newSbase + callee.paramRegs[i]] = sregs[sbase + arg];
+						} else {
+							iregs[newIbase + callee.paramRegs[i]] = iregs[ibase + arg];
+						}
+					}
+					Arrays.fill(iregs, newIbase + callee.intParams, newIbase + callee.intVars, 0);
+					Arrays.fill(sregs, newSbase + callee.stringParams, newSbase + callee.stringVars, "");
+
+					retPcs[depth] = pc + 5 + argc;
+					retDsts[depth] = code[pc + 2];
+					ibases[depth] = ibase;
+					sbases[depth] = sbase;
+					funcs[depth] = func;
+					depth++;
+
+					func = callee;
+					ibase = newIbase;
+					sbase = newSbase;
+					pc = callee.entry;
+					break;
+				}
+				case IRET: {
+					int result = iregs[ibase + code[pc + 1]];
+					depth--;
+					func = funcs[depth];
+					ibase = ibases[depth];
+					sbase = sbases[depth];
+					pc = retPcs[depth];
+					iregs[ibase + retDsts[depth]] = result;
+					break;
+				}
+				case SRET: {
+					CharSequence result = sregs[sbase + code[pc + 1]];
+					depth--;
+					func = funcs[depth];
+					ibase = ibases[depth];
+					sbase = sbases[depth];
+					pc = retPcs[depth];
+					sregs[sbase + retDsts[depth]] = result;
+					break;
+				}
+				case RET:
+					if (depth == 0) {
+						return;
+					}
+					depth--;
+					func = funcs[depth];
+					ibase = ibases[depth];
+					sbase = sbases[depth];
+					pc = retPcs[depth];
+					break;
+
+				case PRINTI:
+					out.print(iregs[ibase + code[pc + 1]]);
+					pc += 2;
+					break;
+				case PRINTB:
+					out.print(iregs[ibase + code[pc + 1]] != 0);
+					pc += 2;
+					break;
+				case PRINTS:
+					out.print(sregs[sbase + code[pc + 1]]);
+					pc += 2;
+					break;
+				case PRINTLN:
+					out.println();
+					pc += 1;
+					break;
+
+				case ERROR:
+					throw new ExecutionException(strings[code[pc + 1]], program.locations[code[pc + 2]]);
+				case NORET:
+					// The call's location is the last operand of the CALL
+					// instruction, just before where it returns to
+					throw new ExecutionException(strings[code[pc + 1]],
+							program.locations[code[retPcs[depth - 1] - 1]]);
+
+				default:
+					throw new IllegalStateException("Bad opcode " + code[pc] + " at " + pc);
+			}
+		}
+	}
+}
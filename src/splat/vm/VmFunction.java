@@ -0,0 +1,31 @@
+package splat.vm;
+
+/**
+ * A compiled function: where its code starts, and how its registers are
+ * laid out.  Registers are numbered separately in each bank, with the
+ * parameters first, then the local variables, then temporaries.
+ */
+public class VmFunction {
+
+	public String name;
+	public int entry;
+
+	// For each parameter, its register and whether it is a String
+	public int[] paramRegs;
+	public boolean[] paramIsString;
+
+	// Registers [params, vars) hold local variables that start out at
+	// their default value
+	public int intParams;
+	public int intVars;
+	public int stringParams;
+	public int stringVars;
+
+	// Total register counts, including temporaries
+	public int intRegs;
+	public int stringRegs;
+
+	public VmFunction(String name) {
+		this.name = name;
+	}
+}
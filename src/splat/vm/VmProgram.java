@@ -0,0 +1,28 @@
+package splat.vm;
+
+import splat.parser.elements.ASTElement;
+
+/**
+ * A program compiled for the register VM.  Function 0 is the program
+ * body.
+ */
+public class VmProgram {
+
+	public int[] code;
+	public String[] strings;
+	public VmFunction[] functions;
+	public ASTElement[] locations;
+
+	public int intGlobals;
+	public int stringGlobals;
+
+	public VmProgram(int[] code, String[] strings, VmFunction[] functions,
+					 ASTElement[] locations, int intGlobals, int stringGlobals) {
+		this.code = code;
+		this.strings = strings;
+		this.functions = functions;
+		this.locations = locations;
+		this.intGlobals = intGlobals;
+		this.stringGlobals = stringGlobals;
+	}
+}